@@ -0,0 +1,59 @@
+package cn.edu.thssdb.common;
+
+public class Global {
+  public static int fanout = 129;
+  public static final int MIN_FANOUT = 3;
+
+  public static int PAGE_SIZE = 4096;
+  public static long BUFFER_POOL_SIZE = 64L * 1024 * 1024;
+  public static int MAP_REGION_SIZE = 64 << 20; // bytes of a table file mapped at a time, for tables with mmap=1
+  public static double BULK_LOAD_FILL_FACTOR = 0.9;
+  public static long VACUUM_INTERVAL = 1000;
+  public static String WAL_COMMIT_POLICY = "group"; // sync, group or async
+  public static long WAL_GROUP_WINDOW = 0; // microseconds
+  public static int WAL_BUFFER_SIZE = 1 << 20;
+  public static long CHECKPOINT_INTERVAL = 60 * 1000; // milliseconds, 0 for none
+  public static long CHECKPOINT_LOG_BYTES = 16L << 20; // log bytes since the last checkpoint that start the next one, 0 for none
+  public static int LSM_MEMTABLE_SIZE = 64 * 1024; // entries of an LSM table's memtable before it is flushed to a run
+  public static int LSM_MAX_FROZEN = 4; // memtables waiting for the background flush before writers flush them
+  public static int LSM_COMPACTION_THRESHOLD = 4; // neighbouring runs of one size tier that are merged into one
+  public static int LSM_BLOOM_BITS_PER_KEY = 10;
+  public static int LSM_BLOCK_SIZE = 16 * 1024; // bytes of entries before compression in one block (row group) of a run
+  public static int RECOVERY_THREADS = Runtime.getRuntime().availableProcessors(); // tables replayed in parallel at startup
+  public static int CHECKPOINT_THREADS = Runtime.getRuntime().availableProcessors(); // tables written in parallel by a checkpoint
+  public static int LOCK_ESCALATION_THRESHOLD = 1000; // row locks of a transaction in one table before it locks the whole table
+  public static long TABLE_IDLE_TIME = 10 * 60 * 1000; // milliseconds, a checkpoint closes tables idle that long, 0 for never
+
+  public static int SUCCESS_CODE = 0;
+  public static int FAILURE_CODE = -1;
+
+  public static String DEFAULT_SERVER_HOST = "127.0.0.1";
+  public static int DEFAULT_SERVER_PORT = 6667;
+
+  public static String CLI_PREFIX = "ThssDB";
+  public static final String SHOW_TIME = "show time;";
+  public static final String QUIT = "quit;";
+  public static final String CONNECT = "connect;";
+  public static final String DISCONNECT = "disconnect;";
+
+
+  public static final String S_URL_INTERNAL = "jdbc:default:connection";
+
+  public static final String ROW_EMPTY = "EMPTY_ROW";
+  public static final String DATABASE_EMPTY = "EMPTY_DATABASE";
+  public static final String ENTRY_NULL = "null";
+
+  public static final String DBMS_DIR = "thssdb";
+  public static final String META_SUFFIX = "_meta";
+  public static final String INDEX_META_SUFFIX = ".indexes";
+  public static final String FANOUT_OPTION = "fanout";
+  public static final String MMAP_OPTION = "mmap";
+  public static final String ENGINE_OPTION = "engine";
+  public static final String ENGINE_BPLUSTREE = "bplustree";
+  public static final String ENGINE_LSM = "lsm";
+
+  public static final String LEGACY_LOG_SUFFIX = ".sql";
+
+  public static final String LOG_BEGIN_TRANSACTION = "begin transaction";
+  public static final String LOG_COMMIT = "commit";
+}
@@ -0,0 +1,25 @@
+package cn.edu.thssdb.exception;
+
+public class IndexNotExistException extends RuntimeException {
+    private String key;
+
+    public IndexNotExistException()
+    {
+        super();
+        this.key = null;
+    }
+
+    public IndexNotExistException(String key)
+    {
+        super();
+        this.key = key;
+    }
+
+    @Override
+    public String getMessage() {
+        if (key == null)
+            return "Exception: index doesn't exist!";
+        else
+            return "Exception: index \"" + this.key + "\" doesn't exist!";
+    }
+}
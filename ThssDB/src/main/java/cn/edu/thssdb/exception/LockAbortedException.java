@@ -0,0 +1,17 @@
+package cn.edu.thssdb.exception;
+
+public class LockAbortedException extends RuntimeException{
+    private String reason;
+
+    public LockAbortedException(String reason)
+    {
+        super();
+        this.reason = reason;
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "Exception: waiting for a lock aborted: " + reason + "!";
+    }
+}
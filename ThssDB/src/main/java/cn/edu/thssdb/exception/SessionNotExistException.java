@@ -0,0 +1,16 @@
+package cn.edu.thssdb.exception;
+
+
+public class SessionNotExistException extends RuntimeException {
+    private long session;
+
+    public SessionNotExistException(long session) {
+        super();
+        this.session = session;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Exception: session " + this.session + " doesn't exist, please connect first!";
+    }
+}
@@ -0,0 +1,18 @@
+package cn.edu.thssdb.exception;
+
+public class TableOptionInvalidException extends RuntimeException {
+    private String option;
+    private String value;
+
+    public TableOptionInvalidException(String option, String value)
+    {
+        super();
+        this.option = option;
+        this.value = value;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Exception: invalid table option " + option + " = " + value + "!";
+    }
+}
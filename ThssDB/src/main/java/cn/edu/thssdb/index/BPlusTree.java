@@ -0,0 +1,518 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.DuplicateKeyException;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.exception.KeyNotExistException;
+import cn.edu.thssdb.storage.PageFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A B+ tree that many threads may use at once, with optimistic lock coupling: lookups and cursors
+ * descend without latching and validate node versions, restarting if a node changed under them.
+ * Writers latch only the leaf when it neither splits nor merges; otherwise they latch the path top down,
+ * letting go of everything above a node that the change cannot propagate past.
+ */
+public final class BPlusTree<K extends Comparable<K>, V> implements SortedIndex<K, V>, Iterable<Pair<K, V>> {
+
+  volatile BPlusTreeNode<K, V> root;
+  private final LongAdder size;
+  private final KeyLayout<K> layout;
+  private final int fanout;
+  private final BPlusTreePager<K, V> pager;
+
+  public BPlusTree() {
+    this(KeyLayout.objects());
+  }
+
+  public BPlusTree(KeyLayout<K> layout) {
+    this(layout, Global.fanout);
+  }
+
+  /**
+   * An in-memory tree whose nodes hold at most {@code fanout} children, {@code fanout - 1} keys.
+   */
+  public BPlusTree(KeyLayout<K> layout, int fanout) {
+    checkFanout(fanout);
+    this.layout = layout;
+    this.fanout = fanout;
+    pager = null;
+    size = new LongAdder();
+    root = new BPlusTreeLeafNode<>(0, layout, fanout, null);
+  }
+
+  public BPlusTree(PageFile file, BPlusTreeCodec<K, V> codec) {
+    this(file, codec, KeyLayout.objects());
+  }
+
+  public BPlusTree(PageFile file, BPlusTreeCodec<K, V> codec, KeyLayout<K> layout) {
+    this(file, codec, layout, Global.fanout);
+  }
+
+  /**
+   * A tree whose nodes are pages of {@code file}, opened at the last checkpoint written to it.
+   * The fanout is not stored in the file, it has to be the one the tree was written with.
+   */
+  public BPlusTree(PageFile file, BPlusTreeCodec<K, V> codec, KeyLayout<K> layout, int fanout) {
+    checkFanout(fanout);
+    this.layout = layout;
+    this.fanout = fanout;
+    pager = new BPlusTreePager<>(file, codec, layout, fanout);
+    size = new LongAdder();
+    root = pager.open();
+    size.add(file.getEntryCount());
+  }
+
+  private static void checkFanout(int fanout) {
+    if (fanout < Global.MIN_FANOUT)
+      throw new IllegalArgumentException("argument fanout to BPlusTree() is below " + Global.MIN_FANOUT);
+  }
+
+  public int size() {
+    return size.intValue();
+  }
+
+  public int getFanout() {
+    return fanout;
+  }
+
+  public V get(K key) {
+    if (key == null) throw new IllegalArgumentException("argument key to get() is null");
+    try {
+      long[] version = new long[1];
+      while (true) {
+        BPlusTreeLeafNode<K, V> leaf = findLeaf(key, false, version);
+        int index;
+        V value;
+        try {
+          index = leaf.binarySearch(key);
+          value = index >= 0 ? leaf.valueAt(index) : null;
+        } catch (RuntimeException e) {
+          // read a leaf in the middle of a change, the validation below fails
+          continue;
+        }
+        if (!leaf.latch.validate(version[0]))
+          continue;
+        if (index < 0)
+          throw new KeyNotExistException();
+        return value;
+      }
+    } finally {
+      evictIfNeeded();
+    }
+  }
+
+  public boolean contains(K key) {
+    if (key == null) throw new IllegalArgumentException("argument key to contains() is null");
+    try {
+      long[] version = new long[1];
+      while (true) {
+        BPlusTreeLeafNode<K, V> leaf = findLeaf(key, false, version);
+        boolean found;
+        try {
+          found = leaf.binarySearch(key) >= 0;
+        } catch (RuntimeException e) {
+          continue;
+        }
+        if (leaf.latch.validate(version[0]))
+          return found;
+      }
+    } finally {
+      evictIfNeeded();
+    }
+  }
+
+  /**
+   * Replace the value of an existing key.
+   */
+  public void update(K key, V value) {
+    if (key == null) throw new IllegalArgumentException("argument key to update() is null");
+    try {
+      BPlusTreeLeafNode<K, V> leaf = latchLeaf(key);
+      try {
+        leaf.replace(key, value);
+      } finally {
+        leaf.unlock();
+      }
+    } finally {
+      evictIfNeeded();
+    }
+  }
+
+  public void put(K key, V value) {
+    if (key == null) throw new IllegalArgumentException("argument key to put() is null");
+    try {
+      BPlusTreeLeafNode<K, V> leaf = latchLeaf(key);
+      try {
+        if (leaf.containsKey(key))
+          throw new DuplicateKeyException();
+        if (leaf.canTakeKey()) {
+          leaf.put(key, value);
+          size.increment();
+          return;
+        }
+      } finally {
+        leaf.unlock();
+      }
+      putSplitting(key, value);
+    } finally {
+      evictIfNeeded();
+    }
+  }
+
+  public void remove(K key) {
+    if (key == null) throw new IllegalArgumentException("argument key to remove() is null");
+    try {
+      BPlusTreeLeafNode<K, V> leaf = latchLeaf(key);
+      try {
+        if (!leaf.containsKey(key))
+          throw new KeyNotExistException();
+        if (leaf.canLoseKey() || leaf == root) {
+          leaf.remove(key);
+          size.decrement();
+          return;
+        }
+      } finally {
+        leaf.unlock();
+      }
+      removeMerging(key);
+    } finally {
+      evictIfNeeded();
+    }
+  }
+
+  // the leaf splits: latch the path down from the highest node that splits as well, and the right neighbour
+  private void putSplitting(K key, V value) {
+    ArrayList<BPlusTreeNode<K, V>> path = new ArrayList<>();
+    try {
+      BPlusTreeNode<K, V> node = latchRoot();
+      path.add(node);
+      while (node instanceof BPlusTreeInternalNode) {
+        BPlusTreeNode<K, V> child = ((BPlusTreeInternalNode<K, V>) node).searchChild(key);
+        child.lock();
+        if (child.canTakeKey())
+          unlock(path);
+        path.add(child);
+        node = child;
+      }
+      BPlusTreeLeafNode<K, V> leaf = (BPlusTreeLeafNode<K, V>) node;
+      if (leaf.containsKey(key))
+        throw new DuplicateKeyException();
+      BPlusTreeNode<K, V> top = path.get(0);
+      if (!leaf.canTakeKey() && leaf.next != null) {
+        leaf.next.lock();
+        path.add(leaf.next);
+      }
+      top.put(key, value);
+      size.increment();
+      if (top == root)
+        splitRoot();
+    } finally {
+      unlock(path);
+    }
+  }
+
+  // the leaf merges: latch the path down from the highest node that merges as well, and the nodes merged with
+  private void removeMerging(K key) {
+    ArrayList<BPlusTreeNode<K, V>> path = new ArrayList<>();
+    ArrayList<BPlusTreeNode<K, V>> siblings = new ArrayList<>();
+    try {
+      while (true) {
+        BPlusTreeNode<K, V> node = latchRoot();
+        path.add(node);
+        while (node instanceof BPlusTreeInternalNode) {
+          BPlusTreeNode<K, V> child = ((BPlusTreeInternalNode<K, V>) node).searchChild(key);
+          child.lock();
+          if (child.canLoseKey())
+            unlock(path);
+          path.add(child);
+          node = child;
+        }
+        if (!((BPlusTreeLeafNode<K, V>) node).containsKey(key))
+          throw new KeyNotExistException();
+        if (latchSiblings(key, path, siblings))
+          break;
+        // siblings are latched out of the top down order, so only try them and start over if one is busy
+        unlock(siblings);
+        unlock(path);
+        Thread.yield();
+      }
+      BPlusTreeNode<K, V> top = path.get(0);
+      top.remove(key);
+      size.decrement();
+      if (top == root && root instanceof BPlusTreeInternalNode && root.size() == 0) {
+        root = ((BPlusTreeInternalNode<K, V>) top).children[0];
+        top.free();
+      }
+    } finally {
+      unlock(siblings);
+      unlock(path);
+    }
+  }
+
+  private boolean latchSiblings(K key, ArrayList<BPlusTreeNode<K, V>> path, ArrayList<BPlusTreeNode<K, V>> siblings) {
+    for (int i = 1; i < path.size(); i++) {
+      BPlusTreeNode<K, V> node = path.get(i);
+      if (node.canLoseKey())
+        continue;
+      BPlusTreeInternalNode<K, V> parent = (BPlusTreeInternalNode<K, V>) path.get(i - 1);
+      int index = parent.binarySearch(key);
+      int childIndex = index >= 0 ? index + 1 : -index - 1;
+      BPlusTreeNode<K, V> sibling = parent.children[childIndex > 0 ? childIndex - 1 : childIndex + 1];
+      if (!sibling.tryLock())
+        return false;
+      siblings.add(sibling);
+      if (node instanceof BPlusTreeLeafNode) {
+        // the leaf after the merged pair gets a new prev link
+        BPlusTreeLeafNode<K, V> after = childIndex > 0 ? ((BPlusTreeLeafNode<K, V>) node).next
+                : ((BPlusTreeLeafNode<K, V>) sibling).next;
+        if (after != null) {
+          if (!after.tryLock())
+            return false;
+          siblings.add(after);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fill an empty tree from entries in strictly ascending key order. Nodes are packed to about
+   * {@code fillFactor} of the fanout and built bottom-up instead of going through put().
+   */
+  public void bulkLoad(Iterator<Pair<K, V>> sorted, double fillFactor) {
+    if (fillFactor <= 0 || fillFactor > 1)
+      throw new IllegalArgumentException("argument fillFactor to bulkLoad() is not in (0, 1]");
+    BPlusTreeNode<K, V> oldRoot = latchRoot();
+    try {
+      if (size.sum() != 0)
+        throw new IllegalStateException("bulkLoad() on a non-empty tree");
+      BPlusTreeLoader<K, V> loader = new BPlusTreeLoader<>(layout, fanout, pager, fillFactor);
+      BPlusTreeNode<K, V> newRoot = loader.load(sorted);
+      if (newRoot == null)
+        return;
+      size.add(loader.size());
+      root = newRoot;
+      oldRoot.free();
+    } finally {
+      oldRoot.unlock();
+      evictIfNeeded();
+    }
+  }
+
+  /**
+   * Write the dirty leaves one at a time, each under its own latch only, so that writers go on meanwhile.
+   * A {@link #checkpoint()} right after only has the leaves changed since and the internal nodes left to write.
+   * Does nothing for in-memory trees.
+   */
+  public void flushLeaves() {
+    if (pager == null) return;
+    BPlusTreeLeafNode<K, V> leaf = findLeaf(null, false, new long[1]);
+    try {
+      while (leaf != null) {
+        BPlusTreeLeafNode<K, V> next;
+        leaf.lock();
+        try {
+          pager.clean(leaf);
+          next = leaf.next;
+        } finally {
+          leaf.unlock();
+        }
+        leaf = next;
+      }
+    } finally {
+      evictIfNeeded();
+    }
+  }
+
+  @Override
+  public void flush() {
+    flushLeaves();
+  }
+
+  /**
+   * Write the nodes changed since the last checkpoint, with {@code lsn} in the header of the page file.
+   * Does nothing for in-memory trees.
+   */
+  @Override
+  public void checkpoint(long lsn) {
+    if (pager == null) return;
+    pager.getFile().setLsn(lsn);
+    checkpoint();
+  }
+
+  @Override
+  public long getLsn() {
+    return pager == null ? 0 : pager.getFile().getLsn();
+  }
+
+  /**
+   * Write the nodes changed since the last checkpoint. Does nothing for in-memory trees.
+   */
+  public void checkpoint() {
+    if (pager == null) return;
+    BPlusTreeNode<K, V> node = latchRoot();
+    try {
+      pager.checkpoint(node, size());
+    } finally {
+      node.unlock();
+      evictIfNeeded();
+    }
+  }
+
+  /**
+   * Release the page file and the buffer pool frames of a paged tree, without writing anything.
+   */
+  public void close() {
+    if (pager == null) return;
+    BPlusTreeNode<K, V> node = latchRoot();
+    try {
+      pager.close(node);
+    } finally {
+      node.unlock();
+    }
+  }
+
+  @Override
+  public void drop() {
+    if (pager == null) return;
+    close();
+    File file = new File(pager.getFile().getPath());
+    if (file.exists() && !file.delete())
+      throw new FileIOException(file.getPath() + " when drop");
+  }
+
+  /**
+   * A cursor over all entries in ascending key order.
+   */
+  public BPlusTreeCursor<K, V> cursor() {
+    return new BPlusTreeCursor<>(this, false, null, false, null, false);
+  }
+
+  /**
+   * A cursor over all entries in descending key order.
+   */
+  public BPlusTreeCursor<K, V> descendingCursor() {
+    return new BPlusTreeCursor<>(this, true, null, false, null, false);
+  }
+
+  /**
+   * A cursor over the entries with keys not less than {@code key}, in ascending order.
+   */
+  public BPlusTreeCursor<K, V> seek(K key) {
+    return range(key, true, null, false);
+  }
+
+  /**
+   * A cursor over the entries with keys between {@code from} and {@code to} in ascending order.
+   * A null bound leaves that side of the range open.
+   */
+  public BPlusTreeCursor<K, V> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    return new BPlusTreeCursor<>(this, false, from, fromInclusive, to, toInclusive);
+  }
+
+  /**
+   * Descend without latching to the leaf covering {@code key}, or to the first (last) leaf if key is null.
+   * version[0] is set to the leaf version that later reads of the leaf are validated against.
+   */
+  BPlusTreeLeafNode<K, V> findLeaf(K key, boolean last, long[] version) {
+    while (true) {
+      BPlusTreeNode<K, V> node = root;
+      long stamp = node.readVersion();
+      if (node != root)
+        continue;
+      try {
+        while (node instanceof BPlusTreeInternalNode) {
+          BPlusTreeInternalNode<K, V> internal = (BPlusTreeInternalNode<K, V>) node;
+          BPlusTreeNode<K, V> child = key != null ? internal.searchChild(key)
+                  : internal.children[last ? internal.nodeSize : 0];
+          long childStamp = child.readVersion();
+          if (!node.latch.validate(stamp)) {
+            node = null;
+            break;
+          }
+          node = child;
+          stamp = childStamp;
+        }
+      } catch (RuntimeException e) {
+        // read an internal node in the middle of a change
+        node = null;
+      }
+      if (node == null)
+        continue;
+      BPlusTreeLeafNode<K, V> leaf = (BPlusTreeLeafNode<K, V>) node;
+      if (!leaf.isResident()) {
+        leaf.lock();
+        try {
+          leaf.load();
+        } finally {
+          leaf.unlock();
+        }
+        continue;
+      }
+      leaf.touch();
+      version[0] = stamp;
+      return leaf;
+    }
+  }
+
+  // the leaf covering key, write latched
+  private BPlusTreeLeafNode<K, V> latchLeaf(K key) {
+    long[] version = new long[1];
+    while (true) {
+      BPlusTreeLeafNode<K, V> leaf = findLeaf(key, false, version);
+      // fails if the leaf changed since the descent, it may no longer cover key
+      if (leaf.latch.tryConvertToWriteLock(version[0]) != 0)
+        return leaf;
+    }
+  }
+
+  private BPlusTreeNode<K, V> latchRoot() {
+    while (true) {
+      BPlusTreeNode<K, V> node = root;
+      node.lock();
+      if (node == root)
+        return node;
+      node.unlock();
+    }
+  }
+
+  private void unlock(ArrayList<BPlusTreeNode<K, V>> nodes) {
+    for (BPlusTreeNode<K, V> node : nodes)
+      node.unlock();
+    nodes.clear();
+  }
+
+  // the caller holds the write latch of the root
+  private void splitRoot() {
+    if (root.isOverFlow()) {
+      K separator = root.splitKey();
+      BPlusTreeNode<K, V> newSiblingNode = root.split();
+      BPlusTreeInternalNode<K, V> newRoot = new BPlusTreeInternalNode<>(1, layout, fanout, pager);
+      newRoot.keys.set(0, separator);
+      newRoot.children[0] = root;
+      newRoot.children[1] = newSiblingNode;
+      root = newRoot;
+    }
+  }
+
+  // operation boundary: this thread holds no latches, the pool may page leaves out
+  void evictIfNeeded() {
+    if (pager != null)
+      pager.evictIfNeeded();
+  }
+
+  @Override
+  public BPlusTreeIterator<K, V> iterator() {
+    return new BPlusTreeIterator<>(cursor());
+  }
+
+  public BPlusTreeIterator<K, V> descendingIterator() {
+    return new BPlusTreeIterator<>(descendingCursor());
+  }
+}
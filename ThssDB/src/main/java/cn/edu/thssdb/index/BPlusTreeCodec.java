@@ -0,0 +1,18 @@
+package cn.edu.thssdb.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes keys and values of a paged {@link BPlusTree} into node pages.
+ */
+public interface BPlusTreeCodec<K, V> {
+  void writeKey(DataOutput out, K key) throws IOException;
+
+  K readKey(DataInput in) throws IOException;
+
+  void writeValue(DataOutput out, V value) throws IOException;
+
+  V readValue(DataInput in) throws IOException;
+}
@@ -0,0 +1,149 @@
+package cn.edu.thssdb.index;
+
+/**
+ * Walks the leaf chain of a {@link BPlusTree} one entry at a time, without copying entries out of the leaves.
+ * Call {@link #next()} before reading the first entry. Leaves are read optimistically: if the current leaf
+ * was changed by another thread in the meantime, the cursor finds its place again after the last key it returned.
+ */
+public final class BPlusTreeCursor<K extends Comparable<K>, V> implements SortedCursor<K, V> {
+  // outcomes of one step: at an entry, past the end, on to the neighbour leaf, start over from the last key
+  private static final int FOUND = 0;
+  private static final int END = 1;
+  private static final int MOVED = 2;
+  private static final int RETRY = 3;
+
+  private final BPlusTree<K, V> tree;
+  private final boolean descending;
+  // upper bound of an ascending range, null if unbounded
+  private final K to;
+  private final boolean toInclusive;
+  // where to go on from if the leaf changed: the start of the range, then the last key returned
+  private K from;
+  private boolean fromInclusive;
+  private BPlusTreeLeafNode<K, V> leaf;
+  private long version;
+  private int index;
+  private boolean done;
+  private K key;
+  private V value;
+
+  BPlusTreeCursor(BPlusTree<K, V> tree, boolean descending, K from, boolean fromInclusive,
+                  K to, boolean toInclusive) {
+    this.tree = tree;
+    this.descending = descending;
+    this.from = from;
+    this.fromInclusive = fromInclusive;
+    this.to = to;
+    this.toInclusive = toInclusive;
+  }
+
+  /**
+   * Move to the next entry, returns false once the cursor has passed the last one.
+   */
+  public boolean next() {
+    if (done)
+      return false;
+    try {
+      while (true) {
+        if (leaf == null)
+          position();
+        int result;
+        try {
+          result = step();
+        } catch (RuntimeException e) {
+          // read a leaf in the middle of a change
+          result = RETRY;
+        }
+        if (result == RETRY)
+          leaf = null;
+        else if (result != MOVED) {
+          done = result == END;
+          return !done;
+        }
+      }
+    } finally {
+      tree.evictIfNeeded();
+    }
+  }
+
+  public K key() {
+    return key;
+  }
+
+  public V value() {
+    return value;
+  }
+
+  private int step() {
+    BPlusTreeLeafNode<K, V> current = leaf;
+    int i = descending ? index - 1 : index + 1;
+    if (descending ? i < 0 : i >= current.nodeSize) {
+      BPlusTreeLeafNode<K, V> neighbour = descending ? current.prev : current.next;
+      if (neighbour == null)
+        return current.latch.validate(version) ? END : RETRY;
+      long neighbourVersion = neighbour.readVersion();
+      if (!current.latch.validate(version))
+        return RETRY;
+      if (!neighbour.isResident()) {
+        neighbour.lock();
+        try {
+          neighbour.load();
+        } finally {
+          neighbour.unlock();
+        }
+        return RETRY;
+      }
+      neighbour.touch();
+      leaf = neighbour;
+      version = neighbourVersion;
+      // validated with the next step
+      index = descending ? neighbour.nodeSize : -1;
+      return MOVED;
+    }
+    boolean inRange = true;
+    if (to != null) {
+      int cmp = current.keys.compare(i, to);
+      inRange = cmp < 0 || (cmp == 0 && toInclusive);
+    }
+    K k = inRange ? current.keys.get(i) : null;
+    V v = inRange ? current.valueAt(i) : null;
+    if (!current.latch.validate(version))
+      return RETRY;
+    if (!inRange)
+      return END;
+    index = i;
+    key = k;
+    value = v;
+    from = k;
+    fromInclusive = false;
+    return FOUND;
+  }
+
+  // find the place to go on from, just before the first entry after (before) from
+  private void position() {
+    long[] stamp = new long[1];
+    while (true) {
+      BPlusTreeLeafNode<K, V> found = tree.findLeaf(from, descending, stamp);
+      int i;
+      try {
+        if (from == null)
+          i = descending ? found.nodeSize : -1;
+        else {
+          int search = found.binarySearch(from);
+          if (descending)
+            i = search >= 0 ? (fromInclusive ? search + 1 : search) : -search - 1;
+          else
+            i = search >= 0 ? (fromInclusive ? search - 1 : search) : -search - 2;
+        }
+      } catch (RuntimeException e) {
+        continue;
+      }
+      if (found.latch.validate(stamp[0])) {
+        leaf = found;
+        version = stamp[0];
+        index = i;
+        return;
+      }
+    }
+  }
+}
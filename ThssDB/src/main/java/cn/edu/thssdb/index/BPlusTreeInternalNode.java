@@ -0,0 +1,110 @@
+package cn.edu.thssdb.index;
+
+import java.util.Arrays;
+
+public final class BPlusTreeInternalNode<K extends Comparable<K>, V> extends BPlusTreeNode<K, V> {
+
+  BPlusTreeNode<K, V>[] children;
+
+  @SuppressWarnings("unchecked")
+  BPlusTreeInternalNode(int size, KeyLayout<K> layout, int fanout, BPlusTreePager<K, V> pager) {
+    super(layout, fanout, pager);
+    keys = layout.newKeys(capacity());
+    children = (BPlusTreeNode<K, V>[]) new BPlusTreeNode[capacity() + 1];
+    this.nodeSize = size;
+  }
+
+  private void childrenAdd(int index, BPlusTreeNode<K, V> node) {
+    System.arraycopy(children, index, children, index + 1, nodeSize + 1 - index);
+    children[index] = node;
+    dirty = true;
+  }
+
+  private void childrenRemove(int index) {
+    System.arraycopy(children, index + 1, children, index, nodeSize - index);
+    children[nodeSize] = null;
+    dirty = true;
+  }
+
+  @Override
+  void put(K key, V value) {
+    BPlusTreeNode<K, V> child = searchChild(key);
+    child.put(key, value);
+    if (child.isOverFlow()) {
+      K separator = child.splitKey();
+      insertChild(separator, child.split());
+    }
+  }
+
+  // separators only bound their subtrees, they are left alone when the first key of a subtree goes away
+  @Override
+  void remove(K key) {
+    int index = binarySearch(key);
+    int childIndex = index >= 0 ? index + 1 : -index - 1;
+    BPlusTreeNode<K, V> child = children[childIndex];
+    child.remove(key);
+    if (child.isUnderFlow()) {
+      // merge with the left sibling, or the right one for the first child
+      int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+      BPlusTreeNode<K, V> left = children[leftIndex];
+      BPlusTreeNode<K, V> right = children[leftIndex + 1];
+      left.merge(keys.get(leftIndex), right);
+      childrenRemove(leftIndex + 1);
+      keysRemove(leftIndex);
+      right.free();
+      if (left.isOverFlow()) {
+        K separator = left.splitKey();
+        insertChild(separator, left.split());
+      }
+    }
+  }
+
+  @Override
+  K splitKey() {
+    return keys.get(size() / 2);
+  }
+
+  @Override
+  BPlusTreeNode<K, V> split() {
+    int from = size() / 2 + 1;
+    int to = size();
+    BPlusTreeInternalNode<K, V> newSiblingNode = new BPlusTreeInternalNode<>(to - from, layout, fanout, pager);
+    keys.copyTo(from, newSiblingNode.keys, 0, to - from);
+    System.arraycopy(children, from, newSiblingNode.children, 0, to - from + 1);
+    // the key at from - 1 moves up to the parent
+    keys.clear(from - 1, to);
+    Arrays.fill(children, from, to + 1, null);
+    this.nodeSize = from - 1;
+    dirty = true;
+    return newSiblingNode;
+  }
+
+  @Override
+  void merge(K separator, BPlusTreeNode<K, V> sibling) {
+    int index = nodeSize;
+    BPlusTreeInternalNode<K, V> node = (BPlusTreeInternalNode<K, V>) sibling;
+    int length = node.nodeSize;
+    keys.set(index, separator);
+    node.keys.copyTo(0, keys, index + 1, length);
+    System.arraycopy(node.children, 0, children, index + 1, length + 1);
+    nodeSize = index + length + 1;
+    dirty = true;
+  }
+
+  BPlusTreeNode<K, V> searchChild(K key) {
+    int index = binarySearch(key);
+    return children[index >= 0 ? index + 1 : -index - 1];
+  }
+
+  private void insertChild(K key, BPlusTreeNode<K, V> child) {
+    int index = binarySearch(key);
+    int childIndex = index >= 0 ? index + 1 : -index - 1;
+    if (index >= 0) {
+      children[childIndex] = child;
+      dirty = true;
+    } else {
+      childrenAdd(childIndex + 1, child);
+      keysAdd(childIndex, key);
+    }
+  }
+}
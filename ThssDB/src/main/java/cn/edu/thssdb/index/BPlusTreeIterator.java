@@ -0,0 +1,30 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Pair;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class BPlusTreeIterator<K extends Comparable<K>, V> implements Iterator<Pair<K, V>> {
+  private final BPlusTreeCursor<K, V> cursor;
+  private boolean hasNext;
+
+  BPlusTreeIterator(BPlusTreeCursor<K, V> cursor) {
+    this.cursor = cursor;
+    this.hasNext = cursor.next();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return hasNext;
+  }
+
+  @Override
+  public Pair<K, V> next() {
+    if (!hasNext)
+      throw new NoSuchElementException();
+    Pair<K, V> pair = new Pair<>(cursor.key(), cursor.value());
+    hasNext = cursor.next();
+    return pair;
+  }
+}
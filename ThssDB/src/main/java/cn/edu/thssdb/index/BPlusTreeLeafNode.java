@@ -0,0 +1,174 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.exception.DuplicateKeyException;
+import cn.edu.thssdb.exception.KeyNotExistException;
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.storage.BufferPool;
+
+import java.util.Arrays;
+
+public class BPlusTreeLeafNode<K extends Comparable<K>, V> extends BPlusTreeNode<K, V> implements BufferPool.Frame {
+
+  Object[] values;
+  BPlusTreeLeafNode<K, V> next;
+  BPlusTreeLeafNode<K, V> prev;
+  private boolean referenced;
+  int bytes;
+
+  // a new leaf of a paged tree is attached to the pager once it is filled, the pool could page it out from then on
+  BPlusTreeLeafNode(int size, KeyLayout<K> layout, int fanout, BPlusTreePager<K, V> pager) {
+    super(layout, fanout, pager);
+    allocate(size);
+  }
+
+  // a leaf stored at the given page, loaded on first access
+  BPlusTreeLeafNode(KeyLayout<K> layout, int fanout, BPlusTreePager<K, V> pager, int page) {
+    super(layout, fanout, pager);
+    this.pages = new int[]{page};
+    this.nodeSize = -1;
+    this.dirty = false;
+  }
+
+  void allocate(int size) {
+    keys = layout.newKeys(capacity());
+    values = new Object[capacity()];
+    nodeSize = size;
+  }
+
+  boolean isResident() {
+    return keys != null;
+  }
+
+  void load() {
+    if (keys == null)
+      pager.load(this);
+    referenced = true;
+  }
+
+  // an optimistic read of a resident leaf
+  void touch() {
+    referenced = true;
+  }
+
+  @SuppressWarnings("unchecked")
+  V valueAt(int index) {
+    return (V) values[index];
+  }
+
+  private void valuesAdd(int index, V value) {
+    System.arraycopy(values, index, values, index + 1, nodeSize - index);
+    values[index] = value;
+  }
+
+  private void valuesRemove(int index) {
+    System.arraycopy(values, index + 1, values, index, nodeSize - index - 1);
+    values[nodeSize - 1] = null;
+  }
+
+  @Override
+  int size() {
+    load();
+    return nodeSize;
+  }
+
+  boolean containsKey(K key) {
+    load();
+    return binarySearch(key) >= 0;
+  }
+
+  @Override
+  void put(K key, V value) {
+    load();
+    int index = binarySearch(key);
+    int valueIndex = index >= 0 ? index : -index - 1;
+    if (index >= 0)
+      throw new DuplicateKeyException();
+    else {
+      valuesAdd(valueIndex, value);
+      keysAdd(valueIndex, key);
+    }
+  }
+
+  // replace the value of an existing key in place
+  void replace(K key, V value) {
+    load();
+    int index = binarySearch(key);
+    if (index < 0)
+      throw new KeyNotExistException();
+    values[index] = value;
+    dirty = true;
+  }
+
+  @Override
+  void remove(K key) {
+    load();
+    int index = binarySearch(key);
+    if (index >= 0) {
+      valuesRemove(index);
+      keysRemove(index);
+    } else
+      throw new KeyNotExistException();
+  }
+
+  @Override
+  K splitKey() {
+    load();
+    return keys.get((size() + 1) / 2);
+  }
+
+  // the right neighbour has to be latched as well, its prev link changes
+  @Override
+  BPlusTreeNode<K, V> split() {
+    load();
+    int from = (size() + 1) / 2;
+    int to = size();
+    BPlusTreeLeafNode<K, V> newSiblingNode = new BPlusTreeLeafNode<>(to - from, layout, fanout, pager);
+    keys.copyTo(from, newSiblingNode.keys, 0, to - from);
+    System.arraycopy(values, from, newSiblingNode.values, 0, to - from);
+    keys.clear(from, to);
+    Arrays.fill(values, from, to, null);
+    nodeSize = from;
+    dirty = true;
+    if (pager != null)
+      pager.attach(newSiblingNode);
+    newSiblingNode.next = next;
+    newSiblingNode.prev = this;
+    if (next != null)
+      next.prev = newSiblingNode;
+    next = newSiblingNode;
+    return newSiblingNode;
+  }
+
+  @Override
+  void merge(K separator, BPlusTreeNode<K, V> sibling) {
+    BPlusTreeLeafNode<K, V> node = (BPlusTreeLeafNode<K, V>) sibling;
+    node.load();
+    load();
+    int index = size();
+    int length = node.size();
+    node.keys.copyTo(0, keys, index, length);
+    System.arraycopy(node.values, 0, values, index, length);
+    nodeSize = index + length;
+    dirty = true;
+    next = node.next;
+    if (next != null)
+      next.prev = this;
+  }
+
+  @Override
+  public int pageWeight() {
+    return Math.max(1, (bytes + Global.PAGE_SIZE - 1) / Global.PAGE_SIZE);
+  }
+
+  @Override
+  public boolean testAndClearReferenced() {
+    boolean result = referenced;
+    referenced = false;
+    return result;
+  }
+
+  @Override
+  public boolean tryEvict() {
+    return pager.evict(this);
+  }
+}
@@ -0,0 +1,137 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Builds a tree bottom-up from entries sorted by key: leaves are packed left to right,
+ * then every level of internal nodes is built over the one below it.
+ */
+final class BPlusTreeLoader<K extends Comparable<K>, V> {
+  private final KeyLayout<K> layout;
+  private final int fanout;
+  private final BPlusTreePager<K, V> pager;
+  // entries per leaf and children per internal node
+  private final int leafSize;
+  private final int internalSize;
+  private int size;
+
+  BPlusTreeLoader(KeyLayout<K> layout, int fanout, BPlusTreePager<K, V> pager, double fillFactor) {
+    this.layout = layout;
+    this.fanout = fanout;
+    this.pager = pager;
+    int minKeys = Math.max(1, (fanout + 1) / 2 - 1);
+    this.leafSize = Math.max(minKeys, Math.min(fanout - 1, (int) Math.ceil(fillFactor * (fanout - 1))));
+    this.internalSize = Math.max(minKeys + 1, Math.min(fanout, (int) Math.ceil(fillFactor * fanout)));
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the new root, or null if there are no entries.
+   */
+  BPlusTreeNode<K, V> load(Iterator<Pair<K, V>> sorted) {
+    ArrayList<BPlusTreeNode<K, V>> nodes = new ArrayList<>();
+    ArrayList<K> firstKeys = new ArrayList<>();
+    try {
+      loadLeaves(sorted, nodes, firstKeys);
+    } catch (RuntimeException e) {
+      for (BPlusTreeNode<K, V> node : nodes)
+        node.free();
+      throw e;
+    }
+    if (nodes.isEmpty())
+      return null;
+    balance(nodes, firstKeys);
+    while (nodes.size() > 1) {
+      ArrayList<BPlusTreeNode<K, V>> parents = new ArrayList<>();
+      ArrayList<K> parentKeys = new ArrayList<>();
+      for (int i = 0; i < nodes.size(); i += internalSize) {
+        int count = Math.min(internalSize, nodes.size() - i);
+        BPlusTreeInternalNode<K, V> parent = new BPlusTreeInternalNode<>(count - 1, layout, fanout, pager);
+        for (int j = 0; j < count; j++) {
+          parent.children[j] = nodes.get(i + j);
+          if (j > 0)
+            parent.keys.set(j - 1, firstKeys.get(i + j));
+        }
+        parents.add(parent);
+        parentKeys.add(firstKeys.get(i));
+      }
+      balance(parents, parentKeys);
+      nodes = parents;
+      firstKeys = parentKeys;
+    }
+    return nodes.get(0);
+  }
+
+  private void loadLeaves(Iterator<Pair<K, V>> sorted, ArrayList<BPlusTreeNode<K, V>> nodes, ArrayList<K> firstKeys) {
+    BPlusTreeLeafNode<K, V> leaf = null;
+    K last = null;
+    while (sorted.hasNext()) {
+      Pair<K, V> entry = sorted.next();
+      if (entry.left == null)
+        throw new IllegalArgumentException("argument key to bulkLoad() is null");
+      if (last != null) {
+        int cmp = last.compareTo(entry.left);
+        if (cmp == 0)
+          throw new DuplicateKeyException();
+        if (cmp > 0)
+          throw new IllegalArgumentException("keys to bulkLoad() are not in ascending order");
+      }
+      if (leaf == null || leaf.nodeSize == leafSize) {
+        BPlusTreeLeafNode<K, V> next = new BPlusTreeLeafNode<>(0, layout, fanout, pager);
+        if (leaf != null) {
+          leaf.next = next;
+          next.prev = leaf;
+          attach(leaf);
+        }
+        leaf = next;
+        nodes.add(leaf);
+        firstKeys.add(entry.left);
+      }
+      leaf.keys.set(leaf.nodeSize, entry.left);
+      leaf.values[leaf.nodeSize] = entry.right;
+      leaf.nodeSize++;
+      last = entry.left;
+      size++;
+    }
+    if (leaf != null)
+      attach(leaf);
+  }
+
+  // finished leaves may be written out to make room, the tree is only reachable from here
+  private void attach(BPlusTreeLeafNode<K, V> leaf) {
+    if (pager == null)
+      return;
+    pager.attach(leaf);
+    pager.evictIfNeeded();
+  }
+
+  // only the last node of a level can be short, fold it into its left neighbour and split again if needed
+  private void balance(ArrayList<BPlusTreeNode<K, V>> nodes, ArrayList<K> firstKeys) {
+    int last = nodes.size() - 1;
+    if (last < 1 || !nodes.get(last).isUnderFlow())
+      return;
+    BPlusTreeNode<K, V> left = nodes.get(last - 1);
+    BPlusTreeNode<K, V> right = nodes.remove(last);
+    // attached leaves are latched against eviction while they change
+    left.lock();
+    right.lock();
+    try {
+      left.merge(firstKeys.remove(last), right);
+      right.free();
+      if (left.isOverFlow()) {
+        firstKeys.add(left.splitKey());
+        nodes.add(left.split());
+      }
+    } finally {
+      right.unlock();
+      left.unlock();
+    }
+  }
+}
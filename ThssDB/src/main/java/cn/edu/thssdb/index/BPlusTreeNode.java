@@ -0,0 +1,109 @@
+package cn.edu.thssdb.index;
+
+import java.util.concurrent.locks.StampedLock;
+
+abstract class BPlusTreeNode<K extends Comparable<K>, V> {
+  KeyArray<K> keys;
+  int nodeSize;
+  final KeyLayout<K> layout;
+  final int fanout;
+  // readers take an optimistic stamp and validate it, writers hold the write lock of every node they change
+  final StampedLock latch = new StampedLock();
+
+  // paging state, pager is null for in-memory trees
+  BPlusTreePager<K, V> pager;
+  int[] pages;
+  boolean dirty = true;
+  boolean moved;
+
+  BPlusTreeNode(KeyLayout<K> layout, int fanout, BPlusTreePager<K, V> pager) {
+    this.layout = layout;
+    this.fanout = fanout;
+    this.pager = pager;
+  }
+
+  abstract void put(K key, V value);
+
+  abstract void remove(K key);
+
+  // the key split() moves up to the parent, the first key of the new sibling's subtree
+  abstract K splitKey();
+
+  abstract BPlusTreeNode<K, V> split();
+
+  // separator is the parent's key between this node and its right sibling
+  abstract void merge(K separator, BPlusTreeNode<K, V> sibling);
+
+  // a node may hold one key above the fanout before it splits, and up to about 1.5 fanout after a merge
+  int capacity() {
+    return (int) (1.5 * fanout) + 1;
+  }
+
+  int size() {
+    return nodeSize;
+  }
+
+  boolean isOverFlow() {
+    return size() > fanout - 1;
+  }
+
+  boolean isUnderFlow() {
+    return size() < (fanout + 1) / 2 - 1;
+  }
+
+  // an insert below this node cannot make it split
+  boolean canTakeKey() {
+    return size() < fanout - 1;
+  }
+
+  // a remove below this node cannot make it merge
+  boolean canLoseKey() {
+    return size() - 1 >= (fanout + 1) / 2 - 1;
+  }
+
+  /**
+   * Version to validate optimistic reads against, waits while a writer holds the node.
+   */
+  long readVersion() {
+    long stamp = latch.tryOptimisticRead();
+    while (stamp == 0) {
+      latch.unlockRead(latch.readLock());
+      stamp = latch.tryOptimisticRead();
+    }
+    return stamp;
+  }
+
+  void lock() {
+    latch.writeLock();
+  }
+
+  boolean tryLock() {
+    return latch.tryWriteLock() != 0;
+  }
+
+  void unlock() {
+    latch.tryUnlockWrite();
+  }
+
+  // the node has been merged away or replaced, give its pages back
+  void free() {
+    if (pager != null)
+      pager.free(this);
+  }
+
+  int binarySearch(K key) {
+    return keys.binarySearch(nodeSize, key);
+  }
+
+  void keysAdd(int index, K key) {
+    keys.insert(index, nodeSize, key);
+    nodeSize++;
+    dirty = true;
+  }
+
+  void keysRemove(int index) {
+    keys.remove(index, nodeSize);
+    nodeSize--;
+    dirty = true;
+  }
+}
@@ -0,0 +1,253 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.storage.BufferPool;
+import cn.edu.thssdb.storage.PageFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Moves the nodes of one {@link BPlusTree} between memory and its {@link PageFile}.
+ * Internal nodes stay in memory once the tree is opened, leaves are loaded on access
+ * and handed to the {@link BufferPool}, which may write them back and drop them whenever they are not latched.
+ */
+final class BPlusTreePager<K extends Comparable<K>, V> {
+  private static final byte LEAF = 0;
+  private static final byte INTERNAL = 1;
+
+  private final PageFile file;
+  private final BPlusTreeCodec<K, V> codec;
+  private final KeyLayout<K> layout;
+  private final int fanout;
+  private final BufferPool pool;
+  private BPlusTreeLeafNode<K, V> lastLeaf;
+
+  BPlusTreePager(PageFile file, BPlusTreeCodec<K, V> codec, KeyLayout<K> layout, int fanout) {
+    this.file = file;
+    this.codec = codec;
+    this.layout = layout;
+    this.fanout = fanout;
+    this.pool = BufferPool.getInstance();
+  }
+
+  // called at operation boundaries, and by long operations such as a bulk load to page out finished leaves
+  void evictIfNeeded() {
+    pool.evictIfNeeded();
+  }
+
+  BPlusTreeNode<K, V> open() {
+    int rootPage = file.getRootPage();
+    if (rootPage < 0) {
+      BPlusTreeLeafNode<K, V> root = new BPlusTreeLeafNode<>(0, layout, fanout, this);
+      attach(root);
+      return root;
+    }
+    lastLeaf = null;
+    BPlusTreeNode<K, V> root = read(rootPage);
+    lastLeaf = null;
+    return root;
+  }
+
+  void attach(BPlusTreeLeafNode<K, V> leaf) {
+    pool.register(leaf);
+  }
+
+  // the caller holds the write latch of the leaf
+  void load(BPlusTreeLeafNode<K, V> leaf) {
+    Pair<int[], byte[]> chain = file.read(leaf.pages[0]);
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(chain.right));
+      if (in.readByte() != LEAF)
+        throw new FileIOException(file.getPath() + " (page " + leaf.pages[0] + " is not a leaf)");
+      readLeaf(leaf, in);
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when load page " + leaf.pages[0]);
+    }
+    leaf.pages = chain.left;
+    leaf.bytes = chain.right.length;
+    leaf.dirty = false;
+    pool.register(leaf);
+  }
+
+  boolean evict(BPlusTreeLeafNode<K, V> leaf) {
+    if (!leaf.tryLock())
+      return false;
+    try {
+      if (!leaf.isResident())
+        return true;
+      if (leaf.dirty)
+        write(leaf);
+      leaf.keys = null;
+      leaf.values = null;
+      return true;
+    } finally {
+      leaf.unlock();
+    }
+  }
+
+  // the caller holds the write latch of the leaf; like an eviction, a relocated leaf dirties its parent at the next checkpoint
+  void clean(BPlusTreeLeafNode<K, V> leaf) {
+    if (leaf.isResident() && leaf.dirty)
+      write(leaf);
+  }
+
+  void free(BPlusTreeNode<K, V> node) {
+    file.release(node.pages);
+    node.pages = null;
+    node.dirty = false;
+    if (node instanceof BPlusTreeLeafNode)
+      pool.unregister((BPlusTreeLeafNode<K, V>) node);
+  }
+
+  /**
+   * Write every dirty node, children before parents since relocating a child dirties its parent,
+   * then switch the page file header to the new root. The caller holds the write latch of the root,
+   * the other nodes are latched top down while they are written, so operations that started earlier finish first.
+   */
+  void checkpoint(BPlusTreeNode<K, V> root, int size) {
+    flush(root);
+    root.moved = false;
+    file.commit(root.pages[0], size);
+  }
+
+  PageFile getFile() {
+    return file;
+  }
+
+  void close(BPlusTreeNode<K, V> root) {
+    detach(root);
+    file.close();
+  }
+
+  private void flush(BPlusTreeNode<K, V> node) {
+    if (node instanceof BPlusTreeInternalNode) {
+      BPlusTreeInternalNode<K, V> internal = (BPlusTreeInternalNode<K, V>) node;
+      for (int i = 0; i <= internal.nodeSize; i++) {
+        BPlusTreeNode<K, V> child = internal.children[i];
+        child.lock();
+        try {
+          flush(child);
+        } finally {
+          child.unlock();
+        }
+        if (child.moved) {
+          internal.dirty = true;
+          child.moved = false;
+        }
+      }
+    }
+    if (node.dirty)
+      write(node);
+  }
+
+  private void detach(BPlusTreeNode<K, V> node) {
+    if (node instanceof BPlusTreeInternalNode) {
+      BPlusTreeInternalNode<K, V> internal = (BPlusTreeInternalNode<K, V>) node;
+      for (int i = 0; i <= internal.nodeSize; i++)
+        detach(internal.children[i]);
+    } else
+      pool.unregister((BPlusTreeLeafNode<K, V>) node);
+  }
+
+  private void write(BPlusTreeNode<K, V> node) {
+    byte[] data;
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      if (node instanceof BPlusTreeLeafNode)
+        writeLeaf((BPlusTreeLeafNode<K, V>) node, out);
+      else
+        writeInternal((BPlusTreeInternalNode<K, V>) node, out);
+      out.flush();
+      data = bytes.toByteArray();
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when encode node");
+    }
+    int[] chain = file.write(node.pages, data);
+    if (node.pages == null || node.pages[0] != chain[0])
+      node.moved = true;
+    node.pages = chain;
+    node.dirty = false;
+    if (node instanceof BPlusTreeLeafNode)
+      ((BPlusTreeLeafNode<K, V>) node).bytes = data.length;
+  }
+
+  private void writeLeaf(BPlusTreeLeafNode<K, V> leaf, DataOutputStream out) throws IOException {
+    out.writeByte(LEAF);
+    out.writeInt(leaf.nodeSize);
+    for (int i = 0; i < leaf.nodeSize; i++)
+      codec.writeKey(out, leaf.keys.get(i));
+    for (int i = 0; i < leaf.nodeSize; i++)
+      codec.writeValue(out, leaf.valueAt(i));
+  }
+
+  private void readLeaf(BPlusTreeLeafNode<K, V> leaf, DataInputStream in) throws IOException {
+    int size = in.readInt();
+    leaf.allocate(size);
+    for (int i = 0; i < size; i++)
+      leaf.keys.set(i, codec.readKey(in));
+    for (int i = 0; i < size; i++)
+      leaf.values[i] = codec.readValue(in);
+  }
+
+  private void writeInternal(BPlusTreeInternalNode<K, V> node, DataOutputStream out) throws IOException {
+    out.writeByte(INTERNAL);
+    out.writeBoolean(node.children[0] instanceof BPlusTreeLeafNode);
+    out.writeInt(node.nodeSize);
+    for (int i = 0; i < node.nodeSize; i++)
+      codec.writeKey(out, node.keys.get(i));
+    for (int i = 0; i <= node.nodeSize; i++)
+      out.writeInt(node.children[i].pages[0]);
+  }
+
+  private BPlusTreeNode<K, V> read(int page) {
+    Pair<int[], byte[]> chain = file.read(page);
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(chain.right));
+      if (in.readByte() == LEAF) {
+        BPlusTreeLeafNode<K, V> leaf = new BPlusTreeLeafNode<>(layout, fanout, this, page);
+        readLeaf(leaf, in);
+        leaf.pages = chain.left;
+        leaf.bytes = chain.right.length;
+        pool.register(leaf);
+        link(leaf);
+        return leaf;
+      }
+      boolean leafChildren = in.readBoolean();
+      int size = in.readInt();
+      BPlusTreeInternalNode<K, V> node = new BPlusTreeInternalNode<>(size, layout, fanout, this);
+      for (int i = 0; i < size; i++)
+        node.keys.set(i, codec.readKey(in));
+      int[] children = new int[size + 1];
+      for (int i = 0; i <= size; i++)
+        children[i] = in.readInt();
+      node.pages = chain.left;
+      node.dirty = false;
+      for (int i = 0; i <= size; i++) {
+        BPlusTreeNode<K, V> child;
+        if (leafChildren) {
+          BPlusTreeLeafNode<K, V> leaf = new BPlusTreeLeafNode<>(layout, fanout, this, children[i]);
+          link(leaf);
+          child = leaf;
+        } else
+          child = read(children[i]);
+        node.children[i] = child;
+      }
+      return node;
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when read page " + page);
+    }
+  }
+
+  private void link(BPlusTreeLeafNode<K, V> leaf) {
+    if (lastLeaf != null)
+      lastLeaf.next = leaf;
+    leaf.prev = lastLeaf;
+    lastLeaf = leaf;
+  }
+}
@@ -0,0 +1,81 @@
+package cn.edu.thssdb.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A bloom filter over encoded keys, so that a lookup skips the runs of an {@link LSMTree} that cannot hold its key.
+ * Probes are derived from one 64-bit hash of the key bytes (FNV-1a, then mixed) by double hashing.
+ */
+final class BloomFilter {
+  private final long[] bits;
+  private final int probes;
+
+  /**
+   * A filter sized for {@code expected} keys at {@code bitsPerKey} bits each.
+   */
+  BloomFilter(long expected, int bitsPerKey) {
+    long size = Math.max(64, expected * Math.max(1, bitsPerKey));
+    this.bits = new long[(int) Math.min(Integer.MAX_VALUE / 64, (size + 63) / 64)];
+    // the false positive rate is lowest with ln 2 probes per bit per key
+    this.probes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+  }
+
+  private BloomFilter(long[] bits, int probes) {
+    this.bits = bits;
+    this.probes = probes;
+  }
+
+  void add(byte[] key) {
+    long hash = hash(key);
+    long length = (long) bits.length * 64;
+    for (int i = 0; i < probes; i++) {
+      long bit = Math.floorMod(probe(hash, i), length);
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  boolean mightContain(byte[] key) {
+    long hash = hash(key);
+    long length = (long) bits.length * 64;
+    for (int i = 0; i < probes; i++) {
+      long bit = Math.floorMod(probe(hash, i), length);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+        return false;
+    }
+    return true;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(probes);
+    out.writeInt(bits.length);
+    for (long word : bits)
+      out.writeLong(word);
+  }
+
+  static BloomFilter read(DataInput in) throws IOException {
+    int probes = in.readInt();
+    long[] bits = new long[in.readInt()];
+    for (int i = 0; i < bits.length; i++)
+      bits[i] = in.readLong();
+    return new BloomFilter(bits, probes);
+  }
+
+  private static long probe(long hash, int i) {
+    return (int) hash + (long) i * (int) (hash >>> 32);
+  }
+
+  private static long hash(byte[] key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    // spread the last bytes over the high half as well, which gives the step between probes
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
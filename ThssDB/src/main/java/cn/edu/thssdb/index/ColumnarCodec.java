@@ -0,0 +1,22 @@
+package cn.edu.thssdb.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A codec that can also write the values of a row group column by column, as the runs of an {@link LSMTree} do:
+ * columns compress better than rows, and statistics of each row group let a scan skip the groups it cannot match.
+ * The statistics are opaque to the index, they are only handed to the filter given to
+ * {@link SortedIndex#range(Comparable, boolean, Comparable, boolean, java.util.function.Predicate)}.
+ */
+public interface ColumnarCodec<K, V> extends BPlusTreeCodec<K, V> {
+  void writeColumns(DataOutput out, List<V> values) throws IOException;
+
+  List<V> readColumns(DataInput in, int count) throws IOException;
+
+  void writeStatistics(DataOutput out, List<V> values) throws IOException;
+
+  Object readStatistics(DataInput in) throws IOException;
+}
@@ -0,0 +1,191 @@
+package cn.edu.thssdb.index;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fixed-capacity key storage of one node. Shifting uses {@link System#arraycopy},
+ * and the primitive variants search without materializing keys.
+ */
+abstract class KeyArray<K extends Comparable<K>> {
+
+  abstract K get(int index);
+
+  abstract void set(int index, K key);
+
+  /** Compare the key at index with the given key. */
+  abstract int compare(int index, K key);
+
+  /** Same contract as {@link Arrays#binarySearch(Object[], int, int, Object)} over {@code [0, size)}. */
+  abstract int binarySearch(int size, K key);
+
+  /** Insert at index, shifting {@code [index, size)} one slot to the right. */
+  abstract void insert(int index, int size, K key);
+
+  /** Remove at index, shifting {@code [index + 1, size)} one slot to the left. */
+  abstract void remove(int index, int size);
+
+  /** Copy to another array of the same layout. */
+  abstract void copyTo(int from, KeyArray<K> dest, int to, int length);
+
+  abstract void clear(int from, int to);
+
+  static final class Objects<K extends Comparable<K>> extends KeyArray<K> {
+    private final Object[] keys;
+
+    Objects(int capacity) {
+      keys = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    K get(int index) {
+      return (K) keys[index];
+    }
+
+    @Override
+    void set(int index, K key) {
+      keys[index] = key;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    int compare(int index, K key) {
+      return ((K) keys[index]).compareTo(key);
+    }
+
+    @Override
+    int binarySearch(int size, K key) {
+      return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    @Override
+    void insert(int index, int size, K key) {
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      keys[index] = key;
+    }
+
+    @Override
+    void remove(int index, int size) {
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+      keys[size - 1] = null;
+    }
+
+    @Override
+    void copyTo(int from, KeyArray<K> dest, int to, int length) {
+      System.arraycopy(keys, from, ((Objects<K>) dest).keys, to, length);
+    }
+
+    @Override
+    void clear(int from, int to) {
+      Arrays.fill(keys, from, to, null);
+    }
+  }
+
+  static final class Ints<K extends Comparable<K>> extends KeyArray<K> {
+    private final int[] keys;
+    private final ToIntFunction<K> toInt;
+    private final IntFunction<K> fromInt;
+
+    Ints(int capacity, ToIntFunction<K> toInt, IntFunction<K> fromInt) {
+      this.keys = new int[capacity];
+      this.toInt = toInt;
+      this.fromInt = fromInt;
+    }
+
+    @Override
+    K get(int index) {
+      return fromInt.apply(keys[index]);
+    }
+
+    @Override
+    void set(int index, K key) {
+      keys[index] = toInt.applyAsInt(key);
+    }
+
+    @Override
+    int compare(int index, K key) {
+      return Integer.compare(keys[index], toInt.applyAsInt(key));
+    }
+
+    @Override
+    int binarySearch(int size, K key) {
+      return Arrays.binarySearch(keys, 0, size, toInt.applyAsInt(key));
+    }
+
+    @Override
+    void insert(int index, int size, K key) {
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      keys[index] = toInt.applyAsInt(key);
+    }
+
+    @Override
+    void remove(int index, int size) {
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    }
+
+    @Override
+    void copyTo(int from, KeyArray<K> dest, int to, int length) {
+      System.arraycopy(keys, from, ((Ints<K>) dest).keys, to, length);
+    }
+
+    @Override
+    void clear(int from, int to) {
+    }
+  }
+
+  static final class Longs<K extends Comparable<K>> extends KeyArray<K> {
+    private final long[] keys;
+    private final ToLongFunction<K> toLong;
+    private final LongFunction<K> fromLong;
+
+    Longs(int capacity, ToLongFunction<K> toLong, LongFunction<K> fromLong) {
+      this.keys = new long[capacity];
+      this.toLong = toLong;
+      this.fromLong = fromLong;
+    }
+
+    @Override
+    K get(int index) {
+      return fromLong.apply(keys[index]);
+    }
+
+    @Override
+    void set(int index, K key) {
+      keys[index] = toLong.applyAsLong(key);
+    }
+
+    @Override
+    int compare(int index, K key) {
+      return Long.compare(keys[index], toLong.applyAsLong(key));
+    }
+
+    @Override
+    int binarySearch(int size, K key) {
+      return Arrays.binarySearch(keys, 0, size, toLong.applyAsLong(key));
+    }
+
+    @Override
+    void insert(int index, int size, K key) {
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      keys[index] = toLong.applyAsLong(key);
+    }
+
+    @Override
+    void remove(int index, int size) {
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    }
+
+    @Override
+    void copyTo(int from, KeyArray<K> dest, int to, int length) {
+      System.arraycopy(keys, from, ((Longs<K>) dest).keys, to, length);
+    }
+
+    @Override
+    void clear(int from, int to) {
+    }
+  }
+}
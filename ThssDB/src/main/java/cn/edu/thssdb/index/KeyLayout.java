@@ -0,0 +1,43 @@
+package cn.edu.thssdb.index;
+
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * How the nodes of a {@link BPlusTree} store their keys.
+ * Keys that wrap an int or a long can be kept unboxed, they are converted back only when read out of a node.
+ * The conversions must preserve the order of the keys.
+ */
+public abstract class KeyLayout<K extends Comparable<K>> {
+
+  abstract KeyArray<K> newKeys(int capacity);
+
+  public static <K extends Comparable<K>> KeyLayout<K> objects() {
+    return new KeyLayout<K>() {
+      @Override
+      KeyArray<K> newKeys(int capacity) {
+        return new KeyArray.Objects<>(capacity);
+      }
+    };
+  }
+
+  public static <K extends Comparable<K>> KeyLayout<K> ints(ToIntFunction<K> toInt, IntFunction<K> fromInt) {
+    return new KeyLayout<K>() {
+      @Override
+      KeyArray<K> newKeys(int capacity) {
+        return new KeyArray.Ints<>(capacity, toInt, fromInt);
+      }
+    };
+  }
+
+  public static <K extends Comparable<K>> KeyLayout<K> longs(ToLongFunction<K> toLong, LongFunction<K> fromLong) {
+    return new KeyLayout<K>() {
+      @Override
+      KeyArray<K> newKeys(int capacity) {
+        return new KeyArray.Longs<>(capacity, toLong, fromLong);
+      }
+    };
+  }
+}
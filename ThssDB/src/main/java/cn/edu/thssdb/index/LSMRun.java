@@ -0,0 +1,372 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.FileIOException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * One immutable sorted run of an {@link LSMTree}: entries in ascending key order packed into blocks of about
+ * {@code Global.LSM_BLOCK_SIZE} bytes before compression, then the offset, length and first key of every block,
+ * a {@link BloomFilter} of all keys, and a fixed-size footer.
+ * A block is the number of entries, a flag for each (0 for a value, 1 for a deletion), the keys, and then the values
+ * of the entries that are not deletions: one after the other, or column by column if the codec is a
+ * {@link ColumnarCodec}, whose statistics of each block are kept in the block index as well.
+ * The block index and the filter stay in memory, so a lookup reads at most one block, and a scan reads only the keys
+ * of a block its filter rejects.
+ */
+final class LSMRun<K extends Comparable<K>, V> {
+  private static final int MAGIC = 0x4C534D32; // "LSM2", blocks with the keys in front of the values
+  private static final int FOOTER_LENGTH = 8 + 8 + 4; // index offset, entries, magic
+  private static final byte VALUE = 0;
+  private static final byte DELETION = 1;
+
+  /**
+   * Thrown by the reads of a run that was closed in the meantime, a reader starts over on the current runs.
+   */
+  static final class ClosedException extends RuntimeException {
+  }
+
+  final long id;
+  final File file;
+  final long entries; // deletions included
+  final long bytes;
+  private final BPlusTreeCodec<K, V> codec;
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final ArrayList<K> firstKeys;
+  private final long[] offsets;
+  private final int[] lengths;
+  private final int[] keyLengths; // of the count, the flags and the keys at the front of each block
+  private final Object[] statistics; // of each block if the values are in columns, otherwise null
+  private final BloomFilter filter;
+
+  private LSMRun(long id, File file, BPlusTreeCodec<K, V> codec) throws IOException {
+    this.id = id;
+    this.file = file;
+    this.codec = codec;
+    this.raf = new RandomAccessFile(file, "r");
+    this.channel = raf.getChannel();
+    this.bytes = channel.size();
+    if (bytes < FOOTER_LENGTH)
+      throw new FileIOException(file.getPath() + " (not a sorted run)");
+    ByteBuffer footer = read(bytes - FOOTER_LENGTH, FOOTER_LENGTH);
+    long indexOffset = footer.getLong();
+    this.entries = footer.getLong();
+    if (footer.getInt() != MAGIC)
+      throw new FileIOException(file.getPath() + " (not a sorted run)");
+    ByteBuffer index = read(indexOffset, (int) (bytes - FOOTER_LENGTH - indexOffset));
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+    int blocks = in.readInt();
+    this.firstKeys = new ArrayList<>(blocks);
+    this.offsets = new long[blocks];
+    this.lengths = new int[blocks];
+    this.keyLengths = new int[blocks];
+    this.statistics = codec instanceof ColumnarCodec ? new Object[blocks] : null;
+    for (int i = 0; i < blocks; i++) {
+      offsets[i] = in.readLong();
+      lengths[i] = in.readInt();
+      keyLengths[i] = in.readInt();
+      firstKeys.add(codec.readKey(in));
+      if (statistics != null)
+        statistics[i] = ((ColumnarCodec<K, V>) codec).readStatistics(in);
+    }
+    this.filter = BloomFilter.read(in);
+  }
+
+  static <K extends Comparable<K>, V> LSMRun<K, V> open(long id, File file, BPlusTreeCodec<K, V> codec) {
+    try {
+      return new LSMRun<>(id, file, codec);
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when open sorted run");
+    }
+  }
+
+  /**
+   * Write entries in strictly ascending key order to a new run file, make it durable and open it.
+   * A value that is {@link LSMTree#TOMBSTONE} is written as a deletion.
+   * @param expected about how many entries there are, to size the bloom filter
+   */
+  static <K extends Comparable<K>, V> LSMRun<K, V> write(long id, File file, Iterator<Map.Entry<K, Object>> sorted,
+                                                         long expected, BPlusTreeCodec<K, V> codec) {
+    ColumnarCodec<K, V> columnar = codec instanceof ColumnarCodec ? (ColumnarCodec<K, V>) codec : null;
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+      BloomFilter filter = new BloomFilter(expected, Global.LSM_BLOOM_BITS_PER_KEY);
+      ByteArrayOutputStream index = new ByteArrayOutputStream();
+      DataOutputStream indexOut = new DataOutputStream(index);
+      ByteArrayOutputStream flags = new ByteArrayOutputStream();
+      ByteArrayOutputStream keys = new ByteArrayOutputStream(2 * Global.LSM_BLOCK_SIZE);
+      ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+      DataOutputStream keyOut = new DataOutputStream(keyBytes);
+      ByteArrayOutputStream values = new ByteArrayOutputStream(2 * Global.LSM_BLOCK_SIZE);
+      DataOutputStream valuesOut = new DataOutputStream(values);
+      ArrayList<V> columns = new ArrayList<>(); // the values of the block, for a columnar codec
+      ByteArrayOutputStream block = new ByteArrayOutputStream(2 * Global.LSM_BLOCK_SIZE);
+      DataOutputStream blockOut = new DataOutputStream(block);
+      long offset = 0;
+      int blocks = 0;
+      long entries = 0;
+      int count = 0;
+      byte[] firstKey = null;
+      while (sorted.hasNext()) {
+        Map.Entry<K, Object> entry = sorted.next();
+        keyBytes.reset();
+        codec.writeKey(keyOut, entry.getKey());
+        keyOut.flush();
+        byte[] key = keyBytes.toByteArray();
+        filter.add(key);
+        keys.write(key);
+        if (count == 0)
+          firstKey = key;
+        boolean deletion = entry.getValue() == LSMTree.TOMBSTONE;
+        flags.write(deletion ? DELETION : VALUE);
+        if (!deletion) {
+          @SuppressWarnings("unchecked")
+          V value = (V) entry.getValue();
+          // values are written one after the other anyway, which also measures the block before compression
+          codec.writeValue(valuesOut, value);
+          if (columnar != null)
+            columns.add(value);
+        }
+        count++;
+        entries++;
+        if (keys.size() + values.size() >= Global.LSM_BLOCK_SIZE || !sorted.hasNext()) {
+          valuesOut.flush();
+          blockOut.writeInt(count);
+          flags.writeTo(blockOut);
+          keys.writeTo(blockOut);
+          blockOut.flush();
+          int keyLength = block.size();
+          if (columnar != null)
+            columnar.writeColumns(blockOut, columns);
+          else
+            values.writeTo(blockOut);
+          blockOut.flush();
+          block.writeTo(out);
+          indexOut.writeLong(offset);
+          indexOut.writeInt(block.size());
+          indexOut.writeInt(keyLength);
+          indexOut.write(firstKey);
+          if (columnar != null)
+            columnar.writeStatistics(indexOut, columns);
+          blocks++;
+          offset += block.size();
+          block.reset();
+          flags.reset();
+          keys.reset();
+          values.reset();
+          columns.clear();
+          count = 0;
+        }
+      }
+      indexOut.flush();
+      DataOutputStream tail = new DataOutputStream(out);
+      tail.writeInt(blocks);
+      index.writeTo(tail);
+      filter.write(tail);
+      tail.writeLong(offset);
+      tail.writeLong(entries);
+      tail.writeInt(MAGIC);
+      tail.flush();
+      stream.getFD().sync();
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when write sorted run");
+    }
+    return open(id, file, codec);
+  }
+
+  /**
+   * The value of {@code key}, {@link LSMTree#TOMBSTONE} if the run deletes it, null if the run does not have it.
+   */
+  Object get(K key, byte[] encodedKey) {
+    if (firstKeys.isEmpty() || !filter.mightContain(encodedKey))
+      return null;
+    int block = blockOf(key);
+    if (block < 0)
+      return null;
+    Block<K> entries = readBlock(block, true);
+    int index = entries.search(key);
+    return index >= 0 ? entries.values.get(index) : null;
+  }
+
+  /**
+   * Encode a key the way the run files and their filters hold it.
+   */
+  static <K> byte[] encode(BPlusTreeCodec<K, ?> codec, K key) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      codec.writeKey(out, key);
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The entries from {@code from} on in ascending order, deletions included.
+   */
+  Iterator<Map.Entry<K, Object>> iterator(K from, boolean fromInclusive) {
+    return iterator(from, fromInclusive, null);
+  }
+
+  /**
+   * Like {@link #iterator(Comparable, boolean)}, but the values of the blocks whose statistics {@code rowGroups}
+   * rejects are not read: they come as {@link LSMTree#SKIPPED}, so that the keys still hide older entries.
+   */
+  Iterator<Map.Entry<K, Object>> iterator(K from, boolean fromInclusive, Predicate<Object> rowGroups) {
+    return new Iterator<Map.Entry<K, Object>>() {
+      private int block = from == null ? 0 : Math.max(0, blockOf(from));
+      private Block<K> entries;
+      private int index;
+
+      private Block<K> read(int block) {
+        return readBlock(block, rowGroups == null || statistics == null || rowGroups.test(statistics[block]));
+      }
+
+      {
+        if (block < firstKeys.size()) {
+          entries = read(block);
+          if (from != null) {
+            index = entries.search(from);
+            if (index < 0)
+              index = -index - 1;
+            else if (!fromInclusive)
+              index++;
+          }
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        while (entries != null && index >= entries.keys.size()) {
+          block++;
+          entries = block < firstKeys.size() ? read(block) : null;
+          index = 0;
+        }
+        return entries != null;
+      }
+
+      @Override
+      public Map.Entry<K, Object> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        Map.Entry<K, Object> entry = new AbstractMap.SimpleImmutableEntry<>(
+                entries.keys.get(index), entries.values.get(index));
+        index++;
+        return entry;
+      }
+    };
+  }
+
+  void close() {
+    try {
+      channel.close();
+      raf.close();
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when close sorted run");
+    }
+  }
+
+  // the last block whose first key is not greater than key, -1 if key is before all of them
+  private int blockOf(K key) {
+    int low = 0;
+    int high = firstKeys.size() - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (firstKeys.get(middle).compareTo(key) <= 0)
+        low = middle + 1;
+      else
+        high = middle - 1;
+    }
+    return high;
+  }
+
+  private static final class Block<K extends Comparable<K>> {
+    final ArrayList<K> keys = new ArrayList<>();
+    final ArrayList<Object> values = new ArrayList<>();
+
+    int search(K key) {
+      int low = 0;
+      int high = keys.size() - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int compare = keys.get(middle).compareTo(key);
+        if (compare < 0)
+          low = middle + 1;
+        else if (compare > 0)
+          high = middle - 1;
+        else
+          return middle;
+      }
+      return -low - 1;
+    }
+  }
+
+  // with values false only the keys are read, the values are LSMTree.SKIPPED
+  private Block<K> readBlock(int block, boolean values) {
+    ByteBuffer buffer;
+    try {
+      buffer = read(offsets[block], values ? lengths[block] : keyLengths[block]);
+    } catch (ClosedChannelException e) {
+      throw new ClosedException();
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " when read block " + block);
+    }
+    Block<K> entries = new Block<>();
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+      int count = in.readInt();
+      byte[] flags = new byte[count];
+      in.readFully(flags);
+      int live = 0;
+      for (int i = 0; i < count; i++) {
+        entries.keys.add(codec.readKey(in));
+        if (flags[i] != DELETION)
+          live++;
+      }
+      List<V> columns = values && statistics != null ? ((ColumnarCodec<K, V>) codec).readColumns(in, live) : null;
+      int next = 0;
+      for (int i = 0; i < count; i++) {
+        if (flags[i] == DELETION)
+          entries.values.add(LSMTree.TOMBSTONE);
+        else if (!values)
+          entries.values.add(LSMTree.SKIPPED);
+        else
+          entries.values.add(columns != null ? columns.get(next++) : codec.readValue(in));
+      }
+    } catch (IOException e) {
+      throw new FileIOException(file.getPath() + " (broken block " + block + ")");
+    }
+    return entries;
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining())
+      if (channel.read(buffer, position + buffer.position()) < 0)
+        throw new FileIOException(file.getPath() + " (truncated sorted run)");
+    buffer.flip();
+    return buffer;
+  }
+}
@@ -0,0 +1,646 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.exception.KeyNotExistException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * A log-structured merge tree in a directory, for tables that are mostly appended to: writes go to a sorted
+ * in-memory memtable without reading anything, and a memtable of {@code Global.LSM_MEMTABLE_SIZE} entries is
+ * frozen and flushed by a background thread into an immutable {@link LSMRun}. Lookups and cursors merge the memtables
+ * and the runs, newest first; a deletion is a tombstone until a compaction that includes the oldest run drops it.
+ * Runs of about the same size (one tier per factor of {@code Global.LSM_COMPACTION_THRESHOLD}) are merged in the
+ * background once there are {@code Global.LSM_COMPACTION_THRESHOLD} of them next to each other.
+ * The manifest lists the runs of the last checkpoint with its log sequence number and entry count, it is the only
+ * file that changes in place (by an atomic rename). Runs flushed or merged since are not in it, and are deleted
+ * when the tree is opened again, like the pages a B+ tree wrote after its last checkpoint; the runs a compaction
+ * replaced are deleted once a manifest without them is written.
+ */
+public final class LSMTree<K extends Comparable<K>, V> implements SortedIndex<K, V> {
+  static final Object TOMBSTONE = new Object();
+  static final Object SKIPPED = new Object(); // the value of a row group a filtered scan did not read
+  private static final String MANIFEST = "MANIFEST";
+  private static final String RUN_PREFIX = "run-";
+  // flushes and compactions of all trees, one at a time
+  private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "lsm");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static final class Memtable<K> {
+    final ConcurrentSkipListMap<K, Object> map = new ConcurrentSkipListMap<>();
+    final AtomicInteger entries = new AtomicInteger();
+    long size; // the size of the tree when it was frozen
+  }
+
+  // what readers see, replaced as a whole; runs and frozen memtables newest first
+  private static final class State<K extends Comparable<K>, V> {
+    final Memtable<K> memtable;
+    final List<Memtable<K>> frozen;
+    final List<LSMRun<K, V>> runs;
+
+    State(Memtable<K> memtable, List<Memtable<K>> frozen, List<LSMRun<K, V>> runs) {
+      this.memtable = memtable;
+      this.frozen = Collections.unmodifiableList(frozen);
+      this.runs = Collections.unmodifiableList(runs);
+    }
+  }
+
+  private final File directory;
+  private final BPlusTreeCodec<K, V> codec;
+  private final LongAdder size = new LongAdder();
+  // writers share it, freezing the memtable takes it alone
+  private final ReentrantReadWriteLock switchLock = new ReentrantReadWriteLock();
+  // one flush at a time, a checkpoint holds it from freezing the memtable to writing the manifest
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final ReentrantLock compactionLock = new ReentrantLock();
+  private final AtomicBoolean compactionQueued = new AtomicBoolean();
+  private final ArrayList<LSMRun<K, V>> replaced = new ArrayList<>(); // merged away, still in the manifest
+  private volatile State<K, V> state;
+  private volatile long lsn;
+  private volatile boolean closed;
+  private long nextId;
+
+  /**
+   * Open the tree in {@code path}, a directory created if missing, at its last checkpoint.
+   */
+  public LSMTree(String path, BPlusTreeCodec<K, V> codec) {
+    this.directory = new File(path);
+    this.codec = codec;
+    if (!directory.exists() ? !directory.mkdirs() : !directory.isDirectory())
+      throw new FileIOException(path + " when open LSM tree");
+    ArrayList<LSMRun<K, V>> runs = new ArrayList<>();
+    HashSet<String> live = new HashSet<>();
+    live.add(MANIFEST);
+    File manifest = new File(directory, MANIFEST);
+    if (manifest.isFile()) {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] pair = line.split("=", 2);
+          long value = Long.parseLong(pair[1]);
+          switch (pair[0]) {
+            case "lsn":
+              lsn = value;
+              break;
+            case "size":
+              size.add(value);
+              break;
+            case "next":
+              nextId = value;
+              break;
+            case "run":
+              runs.add(LSMRun.open(value, runFile(value), codec));
+              live.add(RUN_PREFIX + value);
+              break;
+            default:
+              throw new FileIOException(manifest.getPath() + " (unknown entry " + pair[0] + ")");
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        for (LSMRun<K, V> run : runs)
+          run.close();
+        if (e instanceof FileIOException)
+          throw (FileIOException) e;
+        throw new FileIOException(manifest.getPath() + " when open LSM tree");
+      }
+    }
+    // runs written after the last checkpoint, and a manifest that was never renamed
+    File[] files = directory.listFiles();
+    if (files != null)
+      for (File file : files)
+        if (!live.contains(file.getName()) && !file.delete())
+          throw new FileIOException(file.getPath() + " when open LSM tree");
+    this.state = new State<>(new Memtable<>(), new ArrayList<>(), runs);
+  }
+
+  private File runFile(long id) {
+    return new File(directory, RUN_PREFIX + id);
+  }
+
+  @Override
+  public int size() {
+    return size.intValue();
+  }
+
+  @Override
+  public V get(K key) {
+    Object value = find(key);
+    if (value == null || value == TOMBSTONE)
+      throw new KeyNotExistException();
+    @SuppressWarnings("unchecked")
+    V result = (V) value;
+    return result;
+  }
+
+  @Override
+  public boolean contains(K key) {
+    Object value = find(key);
+    return value != null && value != TOMBSTONE;
+  }
+
+  // the newest entry of key: a value, a tombstone, or null
+  private Object find(K key) {
+    if (key == null) throw new IllegalArgumentException("argument key to get() is null");
+    byte[] encoded = null;
+    while (true) {
+      State<K, V> state = this.state;
+      Object value = state.memtable.map.get(key);
+      for (int i = 0; value == null && i < state.frozen.size(); i++)
+        value = state.frozen.get(i).map.get(key);
+      if (value != null)
+        return value;
+      if (encoded == null)
+        encoded = LSMRun.encode(codec, key);
+      try {
+        for (LSMRun<K, V> run : state.runs) {
+          value = run.get(key, encoded);
+          if (value != null)
+            return value;
+        }
+        return null;
+      } catch (LSMRun.ClosedException e) {
+        // a compaction replaced a run in the meantime
+      }
+    }
+  }
+
+  @Override
+  public void put(K key, V value) {
+    write(key, value, 1);
+  }
+
+  @Override
+  public void update(K key, V value) {
+    write(key, value, 0);
+  }
+
+  @Override
+  public void remove(K key) {
+    write(key, TOMBSTONE, -1);
+  }
+
+  private void write(K key, Object value, int delta) {
+    if (key == null) throw new IllegalArgumentException("argument key to put() is null");
+    Memtable<K> memtable;
+    switchLock.readLock().lock();
+    try {
+      memtable = state.memtable;
+      if (memtable.map.put(key, value) == null)
+        memtable.entries.incrementAndGet();
+      size.add(delta);
+    } finally {
+      switchLock.readLock().unlock();
+    }
+    if (memtable.entries.get() >= Global.LSM_MEMTABLE_SIZE && freeze(memtable)) {
+      if (state.frozen.size() > Global.LSM_MAX_FROZEN)
+        flushFrozen(null); // the background thread falls behind, the writer helps
+      else
+        background(() -> flushFrozen(null));
+    }
+  }
+
+  /**
+   * Writes everything one entry at a time, the memtable keeps the entries sorted anyway.
+   */
+  @Override
+  public void bulkLoad(Iterator<Pair<K, V>> sorted, double fillFactor) {
+    while (sorted.hasNext()) {
+      Pair<K, V> pair = sorted.next();
+      put(pair.left, pair.right);
+    }
+  }
+
+  @Override
+  public SortedCursor<K, V> cursor() {
+    return range(null, false, null, false);
+  }
+
+  @Override
+  public SortedCursor<K, V> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+    return new MergeCursor(from, fromInclusive, to, toInclusive, null);
+  }
+
+  /**
+   * The runs skip the row groups the filter rejects, the memtables are returned whole.
+   */
+  @Override
+  public SortedCursor<K, V> range(K from, boolean fromInclusive, K to, boolean toInclusive, Predicate<Object> rowGroups) {
+    return new MergeCursor(from, fromInclusive, to, toInclusive, rowGroups);
+  }
+
+  /**
+   * Freeze the memtable and flush it and the ones frozen before into runs.
+   */
+  @Override
+  public void flush() {
+    Memtable<K> memtable = state.memtable;
+    if (memtable.entries.get() > 0)
+      freeze(memtable);
+    flushFrozen(null);
+  }
+
+  @Override
+  public void checkpoint(long lsn) {
+    flushLock.lock();
+    try {
+      if (closed) return;
+      // everything up to this memtable goes into the checkpoint, memtables frozen later do not
+      Memtable<K> memtable;
+      do {
+        memtable = state.memtable;
+      } while (!freeze(memtable));
+      flushFrozen(memtable);
+      long size = memtable.size;
+      List<LSMRun<K, V>> runs;
+      ArrayList<LSMRun<K, V>> replaced;
+      synchronized (this) {
+        runs = state.runs;
+        replaced = new ArrayList<>(this.replaced);
+        this.replaced.clear();
+      }
+      writeManifest(runs, lsn, size);
+      this.lsn = lsn;
+      for (LSMRun<K, V> run : replaced)
+        delete(run);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  @Override
+  public long getLsn() {
+    return lsn;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    flushLock.lock();
+    compactionLock.lock();
+    try {
+      for (LSMRun<K, V> run : state.runs)
+        run.close();
+      synchronized (this) {
+        for (LSMRun<K, V> run : replaced)
+          run.close();
+      }
+    } finally {
+      compactionLock.unlock();
+      flushLock.unlock();
+    }
+  }
+
+  @Override
+  public void drop() {
+    close();
+    File[] files = directory.listFiles();
+    if (files != null)
+      for (File file : files)
+        if (!file.delete())
+          throw new FileIOException(file.getPath() + " when drop");
+    if (!directory.delete())
+      throw new FileIOException(directory.getPath() + " when drop");
+  }
+
+  /**
+   * The number of runs, for tests and benchmarks.
+   */
+  public int getRunCount() {
+    return state.runs.size();
+  }
+
+  // returns false if another thread froze it first
+  private boolean freeze(Memtable<K> memtable) {
+    switchLock.writeLock().lock();
+    try {
+      synchronized (this) {
+        if (state.memtable != memtable)
+          return false;
+        memtable.size = size.sum();
+        ArrayList<Memtable<K>> frozen = new ArrayList<>(state.frozen.size() + 1);
+        frozen.add(memtable);
+        frozen.addAll(state.frozen);
+        state = new State<>(new Memtable<>(), frozen, state.runs);
+        return true;
+      }
+    } finally {
+      switchLock.writeLock().unlock();
+    }
+  }
+
+  // flush the frozen memtables oldest first, up to and including last if it is not null
+  private void flushFrozen(Memtable<K> last) {
+    flushLock.lock();
+    try {
+      while (!closed) {
+        List<Memtable<K>> frozen = state.frozen;
+        if (frozen.isEmpty())
+          break;
+        Memtable<K> oldest = frozen.get(frozen.size() - 1);
+        LSMRun<K, V> run = null;
+        if (!oldest.map.isEmpty()) {
+          long id;
+          synchronized (this) {
+            id = nextId++;
+          }
+          run = LSMRun.write(id, runFile(id), oldest.map.entrySet().iterator(), oldest.entries.get(), codec);
+        }
+        synchronized (this) {
+          ArrayList<LSMRun<K, V>> runs = new ArrayList<>(state.runs.size() + 1);
+          if (run != null)
+            runs.add(run);
+          runs.addAll(state.runs);
+          ArrayList<Memtable<K>> remaining = new ArrayList<>(state.frozen);
+          remaining.remove(remaining.size() - 1);
+          state = new State<>(state.memtable, remaining, runs);
+        }
+        if (oldest == last)
+          break;
+      }
+    } finally {
+      flushLock.unlock();
+    }
+    if (compactionQueued.compareAndSet(false, true))
+      background(this::compact);
+  }
+
+  private void background(Runnable task) {
+    BACKGROUND.execute(() -> {
+      try {
+        if (!closed)
+          task.run();
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  // a run's tier: how many times LSM_COMPACTION_THRESHOLD memtables it holds
+  private static int tier(LSMRun<?, ?> run) {
+    int tier = 0;
+    long entries = run.entries / Math.max(1, Global.LSM_MEMTABLE_SIZE);
+    while (entries >= Global.LSM_COMPACTION_THRESHOLD) {
+      entries /= Global.LSM_COMPACTION_THRESHOLD;
+      tier++;
+    }
+    return tier;
+  }
+
+  private void compact() {
+    compactionQueued.set(false);
+    compactionLock.lock();
+    try {
+      while (!closed) {
+        // the first stretch of enough neighbouring runs in one tier
+        List<LSMRun<K, V>> runs = state.runs;
+        int from = -1;
+        int to = -1;
+        for (int i = 0; i < runs.size() && to < 0; ) {
+          int j = i;
+          while (j < runs.size() && tier(runs.get(j)) == tier(runs.get(i)))
+            j++;
+          if (j - i >= Global.LSM_COMPACTION_THRESHOLD) {
+            from = i;
+            to = j;
+          }
+          i = j;
+        }
+        if (from < 0)
+          return;
+        List<LSMRun<K, V>> inputs = new ArrayList<>(runs.subList(from, to));
+        // nothing older is left for a deletion to hide
+        boolean oldest = to == runs.size();
+        long expected = 0;
+        ArrayList<Iterator<Map.Entry<K, Object>>> sources = new ArrayList<>();
+        for (LSMRun<K, V> run : inputs) {
+          expected += run.entries;
+          sources.add(run.iterator(null, false));
+        }
+        Iterator<Map.Entry<K, Object>> merged = new MergeIterator<>(sources, null, false, !oldest);
+        long id;
+        synchronized (this) {
+          id = nextId++;
+        }
+        LSMRun<K, V> output = LSMRun.write(id, runFile(id), merged, expected, codec);
+        synchronized (this) {
+          // flushes only add newer runs in front, the inputs are still next to each other
+          ArrayList<LSMRun<K, V>> current = new ArrayList<>(state.runs);
+          int start = current.indexOf(inputs.get(0));
+          current.subList(start, start + inputs.size()).clear();
+          current.add(start, output);
+          state = new State<>(state.memtable, state.frozen, current);
+          replaced.addAll(inputs);
+        }
+      }
+    } finally {
+      compactionLock.unlock();
+    }
+  }
+
+  private void writeManifest(List<LSMRun<K, V>> runs, long lsn, long size) {
+    File manifest = new File(directory, MANIFEST);
+    File tmp = new File(directory, MANIFEST + ".tmp");
+    try {
+      try (FileOutputStream stream = new FileOutputStream(tmp)) {
+        OutputStreamWriter writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        writer.write("lsn=" + lsn + "\n");
+        writer.write("size=" + size + "\n");
+        synchronized (this) {
+          writer.write("next=" + nextId + "\n");
+        }
+        for (LSMRun<K, V> run : runs)
+          writer.write("run=" + run.id + "\n");
+        writer.flush();
+        stream.getFD().sync();
+      }
+      Files.move(tmp.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new FileIOException(manifest.getPath() + " when checkpoint");
+    }
+  }
+
+  private void delete(LSMRun<K, V> run) {
+    run.close();
+    if (run.file.exists() && !run.file.delete())
+      throw new FileIOException(run.file.getPath() + " when compact");
+  }
+
+  private static <K> NavigableMap<K, Object> view(NavigableMap<K, Object> map, K from, boolean fromInclusive,
+                                                  K to, boolean toInclusive) {
+    if (from != null)
+      map = map.tailMap(from, fromInclusive);
+    if (to != null)
+      map = map.headMap(to, toInclusive);
+    return map;
+  }
+
+  /**
+   * Merges sorted sources, the first source that has a key wins. Tombstones are passed on or dropped,
+   * values a filtered scan skipped are always dropped.
+   */
+  private static final class MergeIterator<K extends Comparable<K>> implements Iterator<Map.Entry<K, Object>> {
+    private final PriorityQueue<Pair<Map.Entry<K, Object>, Integer>> heads;
+    private final List<Iterator<Map.Entry<K, Object>>> sources;
+    private final boolean keepTombstones;
+    private final K to;
+    private final boolean toInclusive;
+    private Map.Entry<K, Object> next;
+    private boolean ready; // next is looked up on demand, so a failed lookup loses nothing
+
+    MergeIterator(List<Iterator<Map.Entry<K, Object>>> sources, K to, boolean toInclusive, boolean keepTombstones) {
+      this.sources = sources;
+      this.to = to;
+      this.toInclusive = toInclusive;
+      this.keepTombstones = keepTombstones;
+      this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+        int compare = a.left.getKey().compareTo(b.left.getKey());
+        return compare != 0 ? compare : Integer.compare(a.right, b.right);
+      });
+      for (int i = 0; i < sources.size(); i++)
+        pull(i);
+    }
+
+    private void pull(int source) {
+      Iterator<Map.Entry<K, Object>> iterator = sources.get(source);
+      if (iterator.hasNext())
+        heads.add(new Pair<>(iterator.next(), source));
+    }
+
+    private void advance() {
+      next = null;
+      while (next == null && !heads.isEmpty()) {
+        Pair<Map.Entry<K, Object>, Integer> head = heads.poll();
+        K key = head.left.getKey();
+        pull(head.right);
+        // older entries of the same key
+        while (!heads.isEmpty() && heads.peek().left.getKey().compareTo(key) == 0)
+          pull(heads.poll().right);
+        if (to != null) {
+          int compare = key.compareTo(to);
+          if (compare > 0 || compare == 0 && !toInclusive) {
+            heads.clear();
+            return;
+          }
+        }
+        Object value = head.left.getValue();
+        if (value != SKIPPED && (keepTombstones || value != TOMBSTONE))
+          next = head.left;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!ready) {
+        advance();
+        ready = true;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<K, Object> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      ready = false;
+      return next;
+    }
+  }
+
+  /**
+   * Merges the memtables and the runs of the state it started on. If a compaction closes one of those runs,
+   * it starts over on the current state after the last key it returned.
+   */
+  private final class MergeCursor implements SortedCursor<K, V> {
+    private K from;
+    private boolean fromInclusive;
+    private final K to;
+    private final boolean toInclusive;
+    private final Predicate<Object> rowGroups;
+    private MergeIterator<K> merged;
+    private K key;
+    private V value;
+
+    MergeCursor(K from, boolean fromInclusive, K to, boolean toInclusive, Predicate<Object> rowGroups) {
+      this.from = from;
+      this.fromInclusive = fromInclusive;
+      this.to = to;
+      this.toInclusive = toInclusive;
+      this.rowGroups = rowGroups;
+    }
+
+    private MergeIterator<K> open() {
+      State<K, V> state = LSMTree.this.state;
+      ArrayList<Iterator<Map.Entry<K, Object>>> sources = new ArrayList<>();
+      sources.add(view(state.memtable.map, from, fromInclusive, to, toInclusive).entrySet().iterator());
+      for (Memtable<K> memtable : state.frozen)
+        sources.add(view(memtable.map, from, fromInclusive, to, toInclusive).entrySet().iterator());
+      for (LSMRun<K, V> run : state.runs)
+        sources.add(run.iterator(from, fromInclusive, rowGroups));
+      return new MergeIterator<>(sources, to, toInclusive, false);
+    }
+
+    @Override
+    public boolean next() {
+      while (true) {
+        try {
+          if (merged == null)
+            merged = open();
+          if (!merged.hasNext())
+            return false;
+          Map.Entry<K, Object> entry = merged.next();
+          key = entry.getKey();
+          @SuppressWarnings("unchecked")
+          V value = (V) entry.getValue();
+          this.value = value;
+          from = key;
+          fromInclusive = false;
+          return true;
+        } catch (LSMRun.ClosedException e) {
+          merged = null;
+        }
+      }
+    }
+
+    @Override
+    public K key() {
+      return key;
+    }
+
+    @Override
+    public V value() {
+      return value;
+    }
+  }
+}
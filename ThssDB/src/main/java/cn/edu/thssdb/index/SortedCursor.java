@@ -0,0 +1,15 @@
+package cn.edu.thssdb.index;
+
+/**
+ * Walks the entries of a {@link SortedIndex} one at a time. Call {@link #next()} before reading the first entry.
+ */
+public interface SortedCursor<K, V> {
+  /**
+   * Move to the next entry, returns false once the cursor has passed the last one.
+   */
+  boolean next();
+
+  K key();
+
+  V value();
+}
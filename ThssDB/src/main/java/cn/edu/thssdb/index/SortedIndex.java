@@ -0,0 +1,77 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Pair;
+
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * A sorted map from keys to values, as a table stores its rows by primary key: the {@link BPlusTree},
+ * or the {@link LSMTree} for tables that are mostly appended to.
+ * {@link #put} is for keys that are not there yet, {@link #update} and {@link #remove} for keys that are;
+ * the B+ tree checks this, the LSM tree writes blindly and relies on the caller.
+ * A paged index keeps the log sequence number its last checkpoint covers, 0 for none.
+ */
+public interface SortedIndex<K extends Comparable<K>, V> {
+  int size();
+
+  /**
+   * @throws cn.edu.thssdb.exception.KeyNotExistException if the key is not there
+   */
+  V get(K key);
+
+  boolean contains(K key);
+
+  void put(K key, V value);
+
+  void update(K key, V value);
+
+  void remove(K key);
+
+  /**
+   * Fill an empty index from entries in strictly ascending key order.
+   */
+  void bulkLoad(Iterator<Pair<K, V>> sorted, double fillFactor);
+
+  /**
+   * A cursor over all entries in ascending key order.
+   */
+  SortedCursor<K, V> cursor();
+
+  /**
+   * A cursor over the entries with keys between {@code from} and {@code to} in ascending order.
+   * A null bound leaves that side of the range open.
+   */
+  SortedCursor<K, V> range(K from, boolean fromInclusive, K to, boolean toInclusive);
+
+  /**
+   * Like {@link #range(Comparable, boolean, Comparable, boolean)}, but may leave out the row groups whose
+   * statistics (see {@link ColumnarCodec}) the filter rejects. Only a hint: the caller still checks every value,
+   * and an index without row group statistics returns the whole range.
+   */
+  default SortedCursor<K, V> range(K from, boolean fromInclusive, K to, boolean toInclusive, Predicate<Object> rowGroups) {
+    return range(from, fromInclusive, to, toInclusive);
+  }
+
+  /**
+   * Write out what has changed without blocking writers, so that the {@link #checkpoint} right after has little left.
+   */
+  void flush();
+
+  /**
+   * Make the current contents durable, recorded as covering the log up to {@code lsn}.
+   */
+  void checkpoint(long lsn);
+
+  long getLsn();
+
+  /**
+   * Release the files, without writing anything.
+   */
+  void close();
+
+  /**
+   * Close and delete the files.
+   */
+  void drop();
+}
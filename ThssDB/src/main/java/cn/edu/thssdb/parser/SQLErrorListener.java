@@ -0,0 +1,15 @@
+package cn.edu.thssdb.parser;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+public class SQLErrorListener extends BaseErrorListener {
+    static final SQLErrorListener instance = new SQLErrorListener();
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+        throw new ParseCancellationException("line " + line + ":" + line + " " + msg);
+    }
+}
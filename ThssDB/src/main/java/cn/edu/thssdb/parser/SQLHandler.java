@@ -0,0 +1,84 @@
+package cn.edu.thssdb.parser;
+
+import cn.edu.thssdb.exception.SessionNotExistException;
+import cn.edu.thssdb.query.QueryResult;
+import cn.edu.thssdb.schema.Manager;
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.transaction.Session;
+import cn.edu.thssdb.transaction.SessionManager;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import java.util.ArrayList;
+
+
+public class SQLHandler {
+    private final Manager manager;
+    private final static String SELECT = "select";
+
+    public SQLHandler(Manager manager) {
+        this.manager = manager;
+    }
+
+    public ArrayList<QueryResult> evaluate(String statement, long session) {
+        System.out.println("session:" +session + "  " + statement);
+        // 只接受已连接的会话，断开或不存在的会话号不会得到新会话
+        Session state = SessionManager.getInstance().get(session);
+        if (state == null) {
+            ArrayList<QueryResult> queryResults = new ArrayList<QueryResult>();
+            queryResults.add(new QueryResult(new SessionNotExistException(session).getMessage()));
+            return queryResults;
+        }
+        state.executed();
+        if (statement.equals(Global.LOG_BEGIN_TRANSACTION)) {
+            ArrayList<QueryResult> queryResults = new ArrayList<QueryResult>();
+            try{
+                if (!state.begin()){
+                    System.out.println("session already in a transaction.");
+                }
+            } catch (Exception e){
+                queryResults.add(new QueryResult(e.getMessage()));
+                return queryResults;
+            }
+            queryResults.add(new QueryResult("start transaction."));
+            return queryResults;
+        }
+
+        if (statement.equals(Global.LOG_COMMIT)) {
+            ArrayList<QueryResult> queryResults = new ArrayList<QueryResult>();
+            try{
+                if (state.inTransaction()){
+                    // 事务写过的每个数据库（不一定是当前数据库）都写提交记录，按提交策略落盘后再放锁
+                    state.commit();
+                } else {
+                    System.out.println("session not in a transaction.");
+                }
+            }catch (Exception e){
+                queryResults.add(new QueryResult(e.getMessage()));
+                return queryResults;
+            }
+            queryResults.add(new QueryResult("commit transaction."));
+            return queryResults;
+        }
+        SQLLexer lexer = new SQLLexer(CharStreams.fromString(statement));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(SQLErrorListener.instance);
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+
+        SQLParser parser = new SQLParser(tokenStream);
+        parser.removeErrorListeners();
+        parser.addErrorListener(SQLErrorListener.instance);
+
+        try {
+            ImpVisitor visitor = new ImpVisitor(manager, state);
+            return (ArrayList<QueryResult>) visitor.visitParse(parser.parse());
+        } catch (Exception e) {
+            String message = "Exception: illegal SQL statement! Error message: " + e.getMessage();
+            QueryResult result = new QueryResult(message);
+            ArrayList<QueryResult> results = new ArrayList<>();
+            results.add(result);
+            return results;
+        }
+    }
+
+}
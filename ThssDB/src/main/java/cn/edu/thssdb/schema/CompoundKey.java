@@ -0,0 +1,86 @@
+package cn.edu.thssdb.schema;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Value of a composite primary key cell, compared field by field in key column order.
+ * A prefix bound holds only the leading fields and sorts before or after every key starting with them,
+ * it is used to scan all rows sharing a prefix.
+ */
+public class CompoundKey implements Comparable<CompoundKey>, Serializable {
+  private static final long serialVersionUID = 7357949007485207436L;
+  final Comparable[] values;
+  private final int bound;
+
+  public CompoundKey(Comparable[] values) {
+    this(values, 0);
+  }
+
+  private CompoundKey(Comparable[] values, int bound) {
+    this.values = values;
+    this.bound = bound;
+  }
+
+  public static CompoundKey lowerBound(Comparable... prefix) {
+    return new CompoundKey(prefix, -1);
+  }
+
+  public static CompoundKey upperBound(Comparable... prefix) {
+    return new CompoundKey(prefix, 1);
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  public Comparable get(int index) {
+    return values[index];
+  }
+
+  boolean isBound() {
+    return bound != 0;
+  }
+
+  int getBound() {
+    return bound;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public int compareTo(CompoundKey e) {
+    int length = Math.min(values.length, e.values.length);
+    for (int i = 0; i < length; i++) {
+      int cmp = values[i].compareTo(e.values[i]);
+      if (cmp != 0)
+        return cmp;
+    }
+    if (values.length == e.values.length)
+      return Integer.compare(bound, e.bound);
+    // 一方是另一方的前缀，前缀的上下界决定顺序
+    if (values.length < e.values.length)
+      return bound != 0 ? bound : -1;
+    return e.bound != 0 ? -e.bound : 1;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof CompoundKey))
+      return false;
+    CompoundKey e = (CompoundKey) obj;
+    return bound == e.bound && Arrays.equals(values, e.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values);
+  }
+
+  public String toString() {
+    StringJoiner sj = new StringJoiner(", ", "(", ")");
+    for (Comparable value : values)
+      sj.add(String.valueOf(value));
+    return sj.toString();
+  }
+}
@@ -0,0 +1,337 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.DuplicateTableException;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.exception.TableNotExistException;
+import cn.edu.thssdb.query.QueryResult;
+import cn.edu.thssdb.query.QueryTable;
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.storage.Checkpointer;
+import cn.edu.thssdb.storage.WriteAheadLog;
+import cn.edu.thssdb.transaction.TransactionManager;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+// TODO Query: please also add other functions needed at Database level.
+
+public class Database implements TransactionManager.Journal {
+
+  private String databaseName;
+  private final ConcurrentHashMap<String, Table> tableMap; // 查表不加锁
+  private RedoLog redoLog;
+  private Checkpointer checkpointer;
+  private volatile boolean closed; // 删除或关闭之后日志不再可写
+  ReentrantReadWriteLock lock; // 建表删表拿写锁串行执行
+
+  public Database(String databaseName) {
+    this.databaseName = databaseName;
+    this.tableMap = new ConcurrentHashMap<>();
+    this.lock = new ReentrantReadWriteLock();
+    File tableFolder = new File(this.getDatabaseTableFolderPath());
+    if(!tableFolder.exists())
+      tableFolder.mkdirs();
+    File logFile = new File(this.getDatabaseLogFilePath());
+    // 旧版本的SQL文本日志先移到一边，由Manager.readLog重新执行
+    if (!WriteAheadLog.isLog(logFile) && logFile.isFile()
+            && !logFile.renameTo(new File(this.getDatabaseLogFilePath() + Global.LEGACY_LOG_SUFFIX)))
+      throw new FileIOException(this.getDatabaseLogFilePath() + " when open log");
+    this.redoLog = new RedoLog(new WriteAheadLog(this.getDatabaseLogFilePath()));
+    recover();
+    this.checkpointer = new Checkpointer(databaseName, this.redoLog.getLog(), this::checkpoint,
+            Global.CHECKPOINT_INTERVAL, Global.CHECKPOINT_LOG_BYTES);
+  }
+
+
+  // Operations: (basic) persist, create tables
+  private void persist() {
+    // 把新建的表的元数据写到磁盘上，已有的表元数据不变
+    for (Table table : this.tableMap.values()) {
+      if (!table.isMetaDirty())
+        continue;
+      String filename = table.getTableMetaPath();
+      ArrayList<Column> columns = table.columns;
+      try {
+        FileOutputStream fileOutputStream = new FileOutputStream(filename);
+        OutputStreamWriter outputStreamWriter = new OutputStreamWriter(fileOutputStream);
+        for (Column column : columns)
+          outputStreamWriter.write(column.toString() + "\n");
+        // 列之后是"选项=值"形式的表选项
+        outputStreamWriter.write(Global.FANOUT_OPTION + "=" + table.getFanout() + "\n");
+        outputStreamWriter.write(Global.MMAP_OPTION + "=" + (table.isMapped() ? 1 : 0) + "\n");
+        outputStreamWriter.write(Global.ENGINE_OPTION + "=" + table.getEngine() + "\n");
+        outputStreamWriter.close();
+        fileOutputStream.close();
+      } catch (Exception e) {
+        throw new FileIOException(filename);
+      }
+      table.metaPersisted();
+    }
+  }
+
+  public void create(String tableName, Column[] columns) {
+    create(tableName, columns, Global.fanout);
+  }
+
+  public void create(String tableName, Column[] columns, int fanout) {
+    create(tableName, columns, fanout, false);
+  }
+
+  public void create(String tableName, Column[] columns, int fanout, boolean mapped) {
+    create(tableName, columns, fanout, mapped, Global.ENGINE_BPLUSTREE);
+  }
+
+  public void create(String tableName, Column[] columns, int fanout, boolean mapped, String engine) {
+    try {
+      this.lock.writeLock().lock();
+      if (this.tableMap.containsKey(tableName))
+        throw new DuplicateTableException(tableName);
+      Table table = new Table(this.databaseName, tableName, columns, fanout, mapped, engine);
+      // 检查点覆盖到当前日志末尾，日志里更早的同名表的记录不属于这张表
+      table.attach(this.redoLog);
+      table.created();
+      table.load();
+      table.persist();
+      this.tableMap.put(tableName, table);
+      this.persist();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  public Table get(String tableName) {
+    Table table = this.tableMap.get(tableName);
+    if (table == null)
+      throw new TableNotExistException(tableName);
+    return table;
+  }
+
+  public void drop(String tableName) {
+    try {
+      this.lock.writeLock().lock();
+      if (!this.tableMap.containsKey(tableName))
+        throw new TableNotExistException(tableName);
+      // 语句先取得表上的X锁（见ImpVisitor），读写这张表的事务都已结束
+      Table table = this.tableMap.get(tableName);
+      String filename = table.getTableMetaPath();
+      File file = new File(filename);
+      if (file.isFile() && !file.delete())
+        throw new FileIOException(tableName + " _meta  when drop a table in database");
+      table.dropTable();
+      this.tableMap.remove(tableName);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  public void dropDatabase() {
+    this.checkpointer.close();
+    try {
+      this.lock.writeLock().lock();
+      for (Table table : this.tableMap.values()) {
+        File file = new File(table.getTableMetaPath());
+        if (file.isFile()&&!file.delete())
+          throw new FileIOException(this.databaseName + " _meta when drop the database");
+        table.dropTable();
+      }
+      this.tableMap.clear();
+      this.closed = true;
+      this.redoLog.getLog().close();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private void recover() {
+    System.out.println("! try to recover database " + this.databaseName);
+    File tableFolder = new File(this.getDatabaseTableFolderPath());
+    File[] files = tableFolder.listFiles();
+//        for(File f: files) System.out.println("...." + f.getName());
+    if (files == null) return;
+
+    for (File file : files) {
+      if (!file.isFile() || !file.getName().endsWith(Global.META_SUFFIX)) continue;
+      try {
+        String fileName = file.getName();
+        String tableName = fileName.substring(0,fileName.length()-Global.META_SUFFIX.length());
+        if (this.tableMap.containsKey(tableName))
+          throw new DuplicateTableException(tableName);
+
+        ArrayList<Column> columnList = new ArrayList<>();
+        int fanout = Global.fanout; // 旧的元数据没有选项行
+        boolean mapped = false;
+        String engine = Global.ENGINE_BPLUSTREE;
+        InputStreamReader reader = new InputStreamReader(new FileInputStream(file));
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String readLine;
+        while ((readLine = bufferedReader.readLine()) != null) {
+          if (readLine.startsWith(Global.FANOUT_OPTION + "="))
+            fanout = Integer.parseInt(readLine.substring(Global.FANOUT_OPTION.length() + 1));
+          else if (readLine.startsWith(Global.MMAP_OPTION + "="))
+            mapped = Integer.parseInt(readLine.substring(Global.MMAP_OPTION.length() + 1)) != 0;
+          else if (readLine.startsWith(Global.ENGINE_OPTION + "="))
+            engine = readLine.substring(Global.ENGINE_OPTION.length() + 1);
+          else
+            columnList.add(Column.parseColumn(readLine));
+        }
+        bufferedReader.close();
+        reader.close();
+        // 只读元数据，表的数据在第一次访问时才打开
+        Table table = new Table(this.databaseName, tableName, columnList.toArray(new Column[0]), fanout, mapped, engine);
+        table.attach(this.redoLog);
+        this.tableMap.put(tableName, table);
+      } catch (Exception ignored) {
+      }
+    }
+    // 重放各表检查点之后已提交的修改，只打开日志里有记录要重放的表
+    long lastTransaction = this.redoLog.replay(this.tableMap);
+    TransactionManager.getInstance().reserve(lastTransaction);
+    if (this.redoLog.getChanges() > 0) {
+      // 数据库在第一次使用时才打开，此前可能已分配过日志里的事务号：重放后马上写检查点，不再需要旧日志
+      this.checkpoint();
+    } else {
+      // 上次检查点写完后、删掉不再需要的日志段前崩溃
+      this.redoLog.getLog().truncate(this.redoLog.getCheckpoint());
+    }
+  }
+
+  /**
+   * Log the commit of a transaction that changed tables of this database, it is durable when this returns.
+   * A database dropped or closed meanwhile has nothing left to commit.
+   */
+  @Override
+  public void commit(long transaction) {
+    if (this.closed)
+      return;
+    this.redoLog.commit(transaction);
+    this.checkpointer.logged();
+  }
+
+  /**
+   * Log the end of a transaction whose writes in this database have been rolled back. A database dropped or closed
+   * meanwhile has nothing to log.
+   */
+  @Override
+  public void abort(long transaction) {
+    if (!this.closed)
+      this.redoLog.abort(transaction);
+  }
+
+  /**
+   * A fuzzy checkpoint, normally run by the background checkpointer: seal the current log segment, whose end is
+   * where the checkpoint begins, write a checkpoint of every table while writers go on, log the end of the checkpoint
+   * and delete the log segments before its beginning. The checkpoint of a table covers all the log up to a point
+   * after the beginning, so recovery needs no record before it to redo; segments holding records of a transaction
+   * still running are kept, recovery undoes it from there if it never ends. Tables not opened since they were last closed
+   * have nothing to write. Afterwards the tables idle for {@code Global.TABLE_IDLE_TIME} are closed.
+   */
+  public synchronized void checkpoint() {
+    WriteAheadLog log = this.redoLog.getLog();
+    long begin = log.roll();
+    ArrayList<Table> tables = new ArrayList<>(this.tableMap.values());
+    persist(tables);
+    try {
+      this.lock.readLock().lock();
+      this.persist();
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    log.truncate(this.redoLog.checkpoint(begin));
+    if (Global.TABLE_IDLE_TIME > 0) {
+      long idleSince = System.currentTimeMillis() - Global.TABLE_IDLE_TIME;
+      for (Table table : tables)
+        if (table.getLastAccess() < idleSince)
+          table.unload(idleSince); // 换出前在表的锁下再检查一次
+    }
+  }
+
+  // 只写上次检查点以来有写入的表，多张时并行写
+  private void persist(List<Table> tables) {
+    ArrayList<Callable<Void>> tasks = new ArrayList<>();
+    for (Table table : tables)
+      if (table.isDirty())
+        tasks.add(() -> {
+          table.persist();
+          return null;
+        });
+    if (tasks.isEmpty())
+      return;
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(Global.CHECKPOINT_THREADS, tasks.size())));
+    try {
+      for (Future<Void> future : pool.invokeAll(tasks))
+        future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new FileIOException(this.databaseName + " when checkpoint");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new FileIOException(this.databaseName + " when checkpoint");
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void quit() {
+    this.checkpoint();
+  }
+
+  public void close() {
+    this.checkpointer.close();
+    try {
+      this.lock.writeLock().lock();
+      for (Table table : this.tableMap.values())
+        table.close();
+      this.closed = true;
+      this.redoLog.getLog().close();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+
+  // TODO Query: please also add other functions needed at Database level.
+  public String select(QueryTable[] queryTables) {
+    // TODO: support select operations
+    QueryResult queryResult = new QueryResult(queryTables);
+    return null;
+  }
+
+
+
+
+  // Find position
+  public String getDatabasePath(){
+    return Global.DBMS_DIR + File.separator + "data" + File.separator + this.databaseName;
+  }
+  public String getDatabaseTableFolderPath(){
+    return this.getDatabasePath() + File.separator + "tables";
+  }
+  public String getDatabaseLogFilePath(){
+    return this.getDatabasePath() + File.separator + "log";
+  }
+  public static String getDatabaseLogFilePath(String databaseName){
+    return Global.DBMS_DIR + File.separator + "data" + File.separator + databaseName + File.separator + "log";
+  }
+
+  // Other utils.
+  public String getDatabaseName() { return this.databaseName; }
+  public WriteAheadLog getLog() { return this.redoLog.getLog(); }
+  public String getTableInfo(String tableName) { return get(tableName).toString(); }
+  public String toString() {
+    if (this.tableMap.isEmpty()) return "{\n[DatabaseName: " + databaseName + "]\n" + Global.DATABASE_EMPTY + "}\n";
+    StringBuilder result = new StringBuilder("{\n[DatabaseName: " + databaseName + "]\n");
+    for (Table table : this.tableMap.values())
+      if (table != null)
+        result.append(table.toString());
+    return result.toString() + "}\n";
+  }
+}
@@ -0,0 +1,43 @@
+package cn.edu.thssdb.schema;
+
+/**
+ * Key of a secondary index: the indexed value followed by the primary key, so equal values stay distinct.
+ * Bounds sort before or after every entry with the same value and are only used to search.
+ */
+class IndexKey implements Comparable<IndexKey> {
+  final Cell value;
+  final Cell primary;
+  private final int bound;
+
+  IndexKey(Cell value, Cell primary) {
+    this(value, primary, 0);
+  }
+
+  private IndexKey(Cell value, Cell primary, int bound) {
+    this.value = value;
+    this.primary = primary;
+    this.bound = bound;
+  }
+
+  static IndexKey lowerBound(Cell value) {
+    return new IndexKey(value, null, -1);
+  }
+
+  static IndexKey upperBound(Cell value) {
+    return new IndexKey(value, null, 1);
+  }
+
+  @Override
+  public int compareTo(IndexKey e) {
+    int cmp = value.compareTo(e.value);
+    if (cmp != 0)
+      return cmp;
+    if (bound != 0 || e.bound != 0)
+      return Integer.compare(bound, e.bound);
+    return primary.compareTo(e.primary);
+  }
+
+  public String toString() {
+    return value + "->" + primary;
+  }
+}
@@ -0,0 +1,226 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.DatabaseNotExistException;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.exception.SessionNotExistException;
+import cn.edu.thssdb.parser.SQLHandler;
+import cn.edu.thssdb.query.QueryResult;
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.transaction.Session;
+import cn.edu.thssdb.transaction.SessionManager;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// TODO: complete readLog() function according to writeLog() for recovering transaction
+
+public class Manager {
+  // 目录：建库删库拿写锁串行执行，查找数据库不加锁
+  private final Set<String> databaseNames; // 所有数据库
+  private final ConcurrentHashMap<String, Database> databases; // 已打开的数据库，第一次使用时才打开
+  private volatile String defaultDatabase; // 还没切换过数据库的会话用第一个数据库
+  private static ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  public static SQLHandler sqlHandler;
+
+  public static Manager getInstance() {
+    return Manager.ManagerHolder.INSTANCE;
+  }
+
+  public Manager() {
+    // TODO: init possible additional variables
+    databaseNames = ConcurrentHashMap.newKeySet();
+    databases = new ConcurrentHashMap<>();
+    defaultDatabase = null;
+    sqlHandler = new SQLHandler(this);
+    File managerFolder = new File(Global.DBMS_DIR + File.separator + "data");
+    if(!managerFolder.exists())
+      managerFolder.mkdirs();
+    this.recover();
+  }
+
+  public void deleteDatabase(String databaseName) {
+    try {
+      lock.writeLock().lock();
+      Database database;
+      // 和打开数据库互斥，删掉后不会再被打开
+      synchronized (this) {
+        database = load(databaseName);
+        databaseNames.remove(databaseName);
+        databases.remove(databaseName);
+      }
+      database.dropDatabase();
+      for (Session session : SessionManager.getInstance().getSessions())
+        if (databaseName.equals(session.getDatabase()))
+          session.setDatabase(null);
+      if (databaseName.equals(defaultDatabase))
+        defaultDatabase = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void switchDatabase(long session, String databaseName) {
+    Session state = SessionManager.getInstance().get(session);
+    if (state == null)
+      throw new SessionNotExistException(session);
+    get(databaseName);
+    state.setDatabase(databaseName);
+  }
+
+  // 打开数据库：重放它的日志，只读各表的元数据
+  private synchronized Database load(String databaseName) {
+    Database database = databases.get(databaseName);
+    if (database == null) {
+      if (!databaseNames.contains(databaseName))
+        throw new DatabaseNotExistException(databaseName);
+      database = new Database(databaseName);
+      databases.put(databaseName, database);
+      readLog(databaseName);
+    }
+    return database;
+  }
+
+  private static class ManagerHolder {
+    private static final Manager INSTANCE = new Manager();
+    private ManagerHolder() {
+
+    }
+  }
+
+  public Database getCurrentDatabase(long session) {
+    Session state = SessionManager.getInstance().get(session);
+    String databaseName = state == null || state.getDatabase() == null ? defaultDatabase : state.getDatabase();
+    return databaseName == null ? null : get(databaseName);
+  }
+
+  // utils:
+
+  // Lock example: quit current manager
+  public void quit() {
+    try {
+      lock.writeLock().lock();
+      for (Database database : databases.values()) {
+        database.quit();
+        database.close();
+      }
+      persist();
+      databases.clear();
+      databaseNames.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public Database get(String databaseName) {
+    Database database = databases.get(databaseName);
+    if (database != null)
+      return database;
+    if (!databaseNames.contains(databaseName))
+      throw new DatabaseNotExistException(databaseName);
+    return load(databaseName);
+  }
+
+  public void createDatabaseIfNotExists(String databaseName) {
+    try {
+      lock.writeLock().lock();
+      // 先放进已打开的数据库再登记，别的会话不会再打开一次
+      if (!databaseNames.contains(databaseName)) {
+        databases.put(databaseName, new Database(databaseName));
+        databaseNames.add(databaseName);
+      }
+      if (defaultDatabase == null)
+        defaultDatabase = databaseName;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public synchronized void persist() {
+    try {
+      FileOutputStream fos = new FileOutputStream(Manager.getManagerDataFilePath());
+      OutputStreamWriter writer = new OutputStreamWriter(fos);
+      for (String databaseName : databaseNames)
+        writer.write(databaseName + "\n");
+      writer.close();
+      fos.close();
+    } catch (Exception e) {
+      throw new FileIOException(Manager.getManagerDataFilePath());
+    }
+  }
+
+  public void persistDatabase(String databaseName) {
+    Database database = load(databaseName);
+    database.quit();
+    persist();
+  }
+
+
+  // Log control and recover from logs.
+  // 旧版本以SQL文本记录的日志：重新执行一遍（修改会写进新日志），写检查点后删除
+  // 日志里的会话号取负，不会和正在连接的会话混在一起
+  public void readLog(String databaseName) {
+    File logFile = new File(Manager.getTableDataFilePath(databaseName) + Global.LEGACY_LOG_SUFFIX);
+    if (!logFile.isFile()) return;
+    Set<Long> sessions = new HashSet<>();
+    try {
+      InputStreamReader reader = new InputStreamReader(new FileInputStream(logFile));
+      BufferedReader bufferedReader = new BufferedReader(reader);
+      String line;
+      while ((line = bufferedReader.readLine()) != null) {
+        System.out.println("??!!" + line);
+        long session = -1 - Long.parseLong(line.split("#")[0]);
+        String statement = line.split("#")[1];
+        if (sessions.add(session))
+          SessionManager.getInstance().open(session).setDatabase(databaseName);
+        sqlHandler.evaluate(statement, session);
+      }
+      bufferedReader.close();
+      reader.close();
+    } catch (Exception e) {
+      throw new FileIOException(databaseName);
+    } finally {
+      // 没有提交的事务就此中止
+      for (long session : sessions)
+        SessionManager.getInstance().disconnect(session);
+    }
+    persistDatabase(databaseName);
+    if (!logFile.delete())
+      throw new FileIOException(logFile.getPath());
+  }
+
+  public void recover() {
+    File managerDataFile = new File(Manager.getManagerDataFilePath());
+    if (!managerDataFile.isFile()) return;
+    try {
+      System.out.println("??!! try to recover manager");
+      InputStreamReader reader = new InputStreamReader(new FileInputStream(managerDataFile));
+      BufferedReader bufferedReader = new BufferedReader(reader);
+      String line;
+      while ((line = bufferedReader.readLine()) != null) {
+        System.out.println("??!!" + line);
+        // 启动时只登记数据库名，第一个作为当前数据库打开
+        databaseNames.add(line);
+        if (defaultDatabase == null) {
+          defaultDatabase = line;
+          load(line);
+        }
+      }
+      bufferedReader.close();
+      reader.close();
+    } catch (Exception e) {
+      throw new FileIOException(managerDataFile.getName());
+    }
+  }
+
+  // Get positions
+  public static String getManagerDataFilePath(){
+    return Global.DBMS_DIR + File.separator + "data" + File.separator + "manager";
+  }
+
+  public static String getTableDataFilePath(String databaseName){
+    return Global.DBMS_DIR + File.separator + "data" + File.separator + databaseName + File.separator + "log";
+  }
+}
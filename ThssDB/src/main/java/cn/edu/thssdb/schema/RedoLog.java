@@ -0,0 +1,316 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.exception.ValueFormatInvalidException;
+import cn.edu.thssdb.storage.WriteAheadLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Physical redo records of one database in its write-ahead log.
+ * A change record is its type, the transaction, the table name, then the primary key and (unless it is a delete)
+ * the row image, both in the table's {@link RowCodec} encoding, and last the before-image: a flag byte, then the row
+ * the key held before the change if there was one. A transaction ends with a commit record, or with an abort record
+ * after its rollback has logged the rows it put back as changes of their own; changes made outside of any transaction
+ * (transaction 0) count as committed on their own.
+ * Replaying a record puts the row image under its key or removes the key, so replaying it twice does no harm,
+ * and tables skip the records up to the log sequence number their last checkpoint covers.
+ * A checkpoint writes the tables as they are, with the uncommitted rows of running transactions, so a checkpoint
+ * record holds where the log is needed from: the beginning of the checkpoint, or the first record of a transaction
+ * running then if that is older. The segments before it are no longer needed.
+ * Tables are independent of each other, so replay sorts the committed changes by table and replays the tables
+ * in parallel, each in commit order, on a pool of {@code Global.RECOVERY_THREADS} threads; afterwards each table
+ * undoes the changes of the transactions that never ended, newest first, from their before-images.
+ */
+final class RedoLog {
+  static final byte INSERT = 1;
+  static final byte UPDATE = 2;
+  static final byte DELETE = 3;
+  static final byte COMMIT = 4;
+  static final byte CHECKPOINT = 5;
+  static final byte ABORT = 6;
+
+  private final WriteAheadLog log;
+  private final ConcurrentHashMap<Long, Long> running; // transactions with records in the log, to where they begin
+  private long checkpoint; // the offset the last checkpoint record holds
+  private long changes;    // change records found by replay()
+
+  RedoLog(WriteAheadLog log) {
+    this.log = log;
+    this.running = new ConcurrentHashMap<>();
+  }
+
+  WriteAheadLog getLog() {
+    return log;
+  }
+
+  /**
+   * Log a change before it is applied to the table. {@code before} is the row under the key before the change,
+   * null if there was none. A change outside of any transaction is committed by its record, so it is made durable
+   * before returning, as far as the commit policy says.
+   * @return its log sequence number
+   */
+  long write(byte type, Table table, Cell key, Row row, Row before, long transaction) {
+    long lsn = append(type, table, key, row, before, transaction);
+    if (transaction == 0)
+      log.commit(lsn);
+    return lsn;
+  }
+
+  /**
+   * Log a change like {@link #write} without waiting for it to be durable: for the records of a rollback, which
+   * recovery does again from the before-images, and for the records of a statement before its last one.
+   * @return its log sequence number
+   */
+  long append(byte type, Table table, Cell key, Row row, Row before, long transaction) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(type);
+      out.writeLong(transaction);
+      out.writeUTF(table.tableName);
+      RowCodec codec = table.getRowCodec();
+      codec.writeKey(out, key);
+      if (row != null)
+        codec.writeValue(out, row);
+      out.writeBoolean(before != null);
+      if (before != null)
+        codec.writeValue(out, before);
+      out.flush();
+      long lsn = log.append(bytes.toByteArray());
+      // a log sequence number is the end of its record, the one before it lies inside the record
+      if (transaction != 0)
+        running.putIfAbsent(transaction, lsn - 1);
+      return lsn;
+    } catch (IOException e) {
+      throw new FileIOException(log.getPath() + " when encode redo record");
+    }
+  }
+
+  /**
+   * Log the end of a transaction and wait until it is durable, as far as the commit policy says.
+   */
+  void commit(long transaction) {
+    long lsn = log.append(encode(COMMIT, transaction));
+    running.remove(transaction);
+    log.commit(lsn);
+  }
+
+  /**
+   * Log the end of a transaction whose rollback has been logged. Nothing waits for it: until it is durable, recovery
+   * undoes the transaction once more, from the same before-images.
+   */
+  void abort(long transaction) {
+    if (running.remove(transaction) != null)
+      log.append(encode(ABORT, transaction));
+  }
+
+  /**
+   * Log the end of a checkpoint that began at {@code begin}: every table covers the log up to there, apart from
+   * the transactions still running, which may need undoing from their first record on.
+   * @return where the log is needed from
+   */
+  long checkpoint(long begin) {
+    long needed = begin;
+    for (long first : running.values())
+      needed = Math.min(needed, first);
+    this.checkpoint = needed;
+    log.commit(log.append(encode(CHECKPOINT, needed)));
+    return needed;
+  }
+
+  /**
+   * The offset the last checkpoint record written or replayed holds, 0 if none.
+   */
+  long getCheckpoint() {
+    return checkpoint;
+  }
+
+  /**
+   * The number of change records replay() found in the log, whether they needed replaying or not.
+   */
+  long getChanges() {
+    return changes;
+  }
+
+  private byte[] encode(byte type, long value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeByte(type);
+      out.writeLong(value);
+      out.flush();
+    } catch (IOException e) {
+      throw new FileIOException(log.getPath() + " when encode redo record");
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Apply the committed changes in the log to the tables, in commit order within every table, then undo the changes
+   * of transactions that have neither a commit nor an abort record. Changes of aborted transactions are dropped,
+   * the records of their rollback put back what they replaced.
+   * @return the largest transaction id found in the log
+   */
+  long replay(Map<String, Table> tables) {
+    HashMap<Long, ArrayList<Pair<Long, byte[]>>> pending = new HashMap<>();
+    LinkedHashMap<String, ArrayList<Pair<Long, byte[]>>> committed = new LinkedHashMap<>();
+    LinkedHashMap<String, ArrayList<Pair<Long, byte[]>>> unfinished = new LinkedHashMap<>();
+    long lastTransaction = 0;
+    Iterator<Pair<Long, byte[]>> records = log.iterator();
+    try {
+      while (records.hasNext()) {
+        Pair<Long, byte[]> record = records.next();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.right));
+        byte type = in.readByte();
+        if (type == CHECKPOINT) {
+          checkpoint = in.readLong();
+          continue;
+        }
+        long transaction = in.readLong();
+        lastTransaction = Math.max(lastTransaction, transaction);
+        if (type != COMMIT && type != ABORT)
+          changes++;
+        if (type == COMMIT) {
+          ArrayList<Pair<Long, byte[]>> changes = pending.remove(transaction);
+          if (changes != null)
+            for (Pair<Long, byte[]> change : changes)
+              committed.computeIfAbsent(tableName(change.right), key -> new ArrayList<>()).add(change);
+        } else if (type == ABORT)
+          pending.remove(transaction);
+        else if (transaction == 0)
+          committed.computeIfAbsent(in.readUTF(), key -> new ArrayList<>()).add(record);
+        else
+          pending.computeIfAbsent(transaction, key -> new ArrayList<>()).add(record);
+      }
+      // the rest never ended, their changes are undone newest first
+      ArrayList<Pair<Long, byte[]>> losers = new ArrayList<>();
+      for (ArrayList<Pair<Long, byte[]>> changes : pending.values())
+        losers.addAll(changes);
+      losers.sort((a, b) -> Long.compare(b.left, a.left));
+      for (Pair<Long, byte[]> change : losers)
+        unfinished.computeIfAbsent(tableName(change.right), key -> new ArrayList<>()).add(change);
+    } catch (IOException e) {
+      throw new FileIOException(log.getPath() + " when replay redo record");
+    }
+    replay(tables, committed, unfinished);
+    return lastTransaction;
+  }
+
+  private static String tableName(byte[] record) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    in.readByte();
+    in.readLong();
+    return in.readUTF();
+  }
+
+  private void replay(Map<String, Table> tables, Map<String, ArrayList<Pair<Long, byte[]>>> committed,
+                      Map<String, ArrayList<Pair<Long, byte[]>>> unfinished) {
+    ArrayList<Callable<Void>> tasks = new ArrayList<>();
+    AtomicInteger done = new AtomicInteger();
+    LinkedHashSet<String> tableNames = new LinkedHashSet<>(committed.keySet());
+    tableNames.addAll(unfinished.keySet());
+    for (String tableName : tableNames) {
+      Table table = tables.get(tableName);
+      if (table == null)
+        continue; // 表已删除
+      List<Pair<Long, byte[]>> redo = committed.getOrDefault(tableName, new ArrayList<>());
+      List<Pair<Long, byte[]>> undo = unfinished.getOrDefault(tableName, new ArrayList<>());
+      tasks.add(() -> {
+        long start = System.nanoTime();
+        int applied = 0;
+        for (Pair<Long, byte[]> change : redo)
+          if (apply(table, change.left, change.right))
+            applied++;
+        for (Pair<Long, byte[]> change : undo)
+          undo(table, change.right);
+        System.out.println(String.format("! replayed table %s: %d of %d records, undid %d, in %.1f ms (%d/%d tables)",
+                table.tableName, applied, redo.size(), undo.size(), (System.nanoTime() - start) / 1e6,
+                done.incrementAndGet(), tasks.size()));
+        return null;
+      });
+    }
+    if (tasks.isEmpty())
+      return;
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(Global.RECOVERY_THREADS, tasks.size())));
+    try {
+      for (Future<Void> future : pool.invokeAll(tasks))
+        future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new FileIOException(log.getPath() + " when replay redo record");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new FileIOException(log.getPath() + " when replay redo record");
+    } finally {
+      pool.shutdown();
+    }
+    System.out.println(String.format("! replayed %d tables in %.1f ms", tasks.size(), (System.nanoTime() - start) / 1e6));
+  }
+
+  /**
+   * Apply one change record to its table, opening the table on first use.
+   * @return false if the checkpoints of the table and its indexes already hold it
+   */
+  private boolean apply(Table table, long lsn, byte[] record) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    byte type = in.readByte();
+    in.readLong();
+    in.readUTF();
+    if (!table.needsRedo(lsn))
+      return false;
+    RowCodec codec = table.getRowCodec();
+    Cell key = codec.readKey(in);
+    switch (type) {
+      case INSERT:
+      case UPDATE:
+        table.redo(key, codec.readValue(in), lsn);
+        break;
+      case DELETE:
+        table.redo(key, null, lsn);
+        break;
+      default:
+        throw new ValueFormatInvalidException("(when replay redo record of type " + type + ")");
+    }
+    return true;
+  }
+
+  /**
+   * Undo one change record of a transaction that never ended: whether or not a checkpoint holds the change, the key
+   * gets its before-image back. Records written before there were before-images cannot be undone.
+   */
+  private void undo(Table table, byte[] record) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    byte type = in.readByte();
+    in.readLong();
+    in.readUTF();
+    RowCodec codec = table.getRowCodec();
+    Cell key = codec.readKey(in);
+    Row row = type == DELETE ? null : codec.readValue(in);
+    if (in.available() == 0)
+      return;
+    Row before = in.readBoolean() ? codec.readValue(in) : null;
+    table.undo(key, row, before);
+  }
+}
@@ -0,0 +1,450 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.SchemaLengthMismatchException;
+import cn.edu.thssdb.exception.ValueExceedException;
+import cn.edu.thssdb.exception.ValueFormatInvalidException;
+import cn.edu.thssdb.index.ColumnarCodec;
+import cn.edu.thssdb.type.ColumnType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Encodes primary keys and rows of a table into B+ tree pages using the table schema, so no cell carries a type tag.
+ * A row is a null bitmap (one bit per column, lowest bit first) followed by its non-null cells in column order:
+ * INT and FLOAT take 4 bytes, LONG and DOUBLE 8, a STRING of at most {@code Column.getMaxLength()} characters
+ * is a varint byte length and its UTF-8 bytes. A key is its primary columns encoded the same way, none of them is null.
+ * Page files written with this codec have payload format {@link #FORMAT}, those with format 0 use {@link TablePageCodec}.
+ * <p>
+ * The runs of an LSM table hold the rows of a block column by column instead. A column starts with its nulls
+ * (none, all, or a bitmap) and then has its non-null values: INT and LONG as a sequence of integers,
+ * a STRING column through a dictionary of its distinct values in order of appearance if that is at most half
+ * as many as there are values, so that the integer sequence of dictionary codes compresses repeated strings,
+ * FLOAT, DOUBLE and other STRING columns as in a row. An integer sequence is run-length encoded if it has at most
+ * half as many runs as values, otherwise delta encoded; both write zigzag varints.
+ * The statistics of a block are the minimum and maximum of each column without nulls.
+ */
+public class RowCodec implements ColumnarCodec<Cell, Row> {
+  public static final int FORMAT = 1;
+
+  // how a column of a block starts
+  private static final int NO_NULLS = 0;
+  private static final int ALL_NULLS = 1;
+  private static final int SOME_NULLS = 2;
+  // how its values are encoded
+  private static final int PLAIN = 0;
+  private static final int DICTIONARY = 1;
+  private static final int RUN_LENGTH = 2;
+  private static final int DELTA = 3;
+
+  private final ColumnType[] types;
+  private final int[] maxLengths;
+  private final String[] names;
+  private final int[] primaryIndexes;
+
+  public RowCodec(List<Column> columns, int[] primaryIndexes) {
+    int size = columns.size();
+    this.types = new ColumnType[size];
+    this.maxLengths = new int[size];
+    this.names = new String[size];
+    for (int i = 0; i < size; i++) {
+      Column column = columns.get(i);
+      this.types[i] = column.getColumnType();
+      this.maxLengths[i] = column.getMaxLength();
+      this.names[i] = column.getColumnName();
+    }
+    this.primaryIndexes = primaryIndexes.clone();
+  }
+
+  @Override
+  public void writeKey(DataOutput out, Cell key) throws IOException {
+    if (primaryIndexes.length == 1) {
+      writeField(out, primaryIndexes[0], key.value);
+      return;
+    }
+    CompoundKey compoundKey = (CompoundKey) key.value;
+    if (compoundKey.size() != primaryIndexes.length)
+      throw new ValueFormatInvalidException("(when encode a partial primary key)");
+    for (int i = 0; i < primaryIndexes.length; i++)
+      writeField(out, primaryIndexes[i], compoundKey.get(i));
+  }
+
+  @Override
+  public Cell readKey(DataInput in) throws IOException {
+    if (primaryIndexes.length == 1)
+      return new Cell(readField(in, primaryIndexes[0]));
+    Comparable[] values = new Comparable[primaryIndexes.length];
+    for (int i = 0; i < values.length; i++)
+      values[i] = readField(in, primaryIndexes[i]);
+    return new Cell(new CompoundKey(values));
+  }
+
+  @Override
+  public void writeValue(DataOutput out, Row row) throws IOException {
+    ArrayList<Cell> entries = row.getEntries();
+    if (entries.size() != types.length)
+      throw new SchemaLengthMismatchException(types.length, entries.size(), "when encode row");
+    for (int i = 0; i < types.length; i += 8) {
+      int bits = 0;
+      for (int j = i; j < Math.min(i + 8, types.length); j++)
+        if (entries.get(j).value == null)
+          bits |= 1 << (j - i);
+      out.writeByte(bits);
+    }
+    for (int i = 0; i < types.length; i++) {
+      Comparable value = entries.get(i).value;
+      if (value != null)
+        writeField(out, i, value);
+    }
+  }
+
+  @Override
+  public Row readValue(DataInput in) throws IOException {
+    byte[] nulls = new byte[(types.length + 7) >>> 3];
+    in.readFully(nulls);
+    ArrayList<Cell> entries = new ArrayList<>(types.length);
+    for (int i = 0; i < types.length; i++)
+      entries.add(new Cell((nulls[i >>> 3] & (1 << (i & 7))) != 0 ? null : readField(in, i)));
+    return new Row(entries);
+  }
+
+  @Override
+  public void writeColumns(DataOutput out, List<Row> rows) throws IOException {
+    int count = rows.size();
+    for (Row row : rows)
+      if (row.getEntries().size() != types.length)
+        throw new SchemaLengthMismatchException(types.length, row.getEntries().size(), "when encode row");
+    ArrayList<Comparable> values = new ArrayList<>(count);
+    for (int column = 0; column < types.length; column++) {
+      values.clear();
+      byte[] nulls = new byte[(count + 7) >>> 3];
+      for (int i = 0; i < count; i++) {
+        Comparable value = rows.get(i).getEntries().get(column).value;
+        if (value == null)
+          nulls[i >>> 3] |= 1 << (i & 7);
+        else
+          values.add(value);
+      }
+      if (values.size() == count)
+        out.writeByte(NO_NULLS);
+      else if (values.isEmpty()) {
+        out.writeByte(ALL_NULLS);
+        continue;
+      } else {
+        out.writeByte(SOME_NULLS);
+        out.write(nulls);
+      }
+      writeColumn(out, column, values);
+    }
+  }
+
+  private void writeColumn(DataOutput out, int column, List<Comparable> values) throws IOException {
+    switch (types[column]) {
+      case INT:
+      case LONG:
+        long[] integers = new long[values.size()];
+        for (int i = 0; i < integers.length; i++)
+          integers[i] = ((Number) values.get(i)).longValue();
+        writeIntegers(out, integers);
+        return;
+      case STRING:
+        HashMap<Comparable, Integer> codes = new HashMap<>();
+        ArrayList<Comparable> dictionary = new ArrayList<>();
+        long[] sequence = new long[values.size()];
+        for (int i = 0; i < sequence.length; i++) {
+          Integer code = codes.get(values.get(i));
+          if (code == null) {
+            code = dictionary.size();
+            codes.put(values.get(i), code);
+            dictionary.add(values.get(i));
+          }
+          sequence[i] = code;
+        }
+        if (2 * dictionary.size() <= values.size()) {
+          out.writeByte(DICTIONARY);
+          writeLength(out, dictionary.size());
+          for (Comparable value : dictionary)
+            writeField(out, column, value);
+          writeIntegers(out, sequence);
+          return;
+        }
+        break;
+      default:
+        break;
+    }
+    out.writeByte(PLAIN);
+    for (Comparable value : values)
+      writeField(out, column, value);
+  }
+
+  @Override
+  public List<Row> readColumns(DataInput in, int count) throws IOException {
+    Cell[][] cells = new Cell[count][types.length];
+    for (int column = 0; column < types.length; column++) {
+      int nullMode = in.readUnsignedByte();
+      byte[] nulls = null;
+      int size = count;
+      if (nullMode == ALL_NULLS)
+        size = 0;
+      else if (nullMode == SOME_NULLS) {
+        nulls = new byte[(count + 7) >>> 3];
+        in.readFully(nulls);
+        for (int i = 0; i < count; i++)
+          if ((nulls[i >>> 3] & (1 << (i & 7))) != 0)
+            size--;
+      } else if (nullMode != NO_NULLS)
+        throw new ValueFormatInvalidException("(when decode column " + names[column] + ")");
+      Comparable[] values = size == 0 ? new Comparable[0] : readColumn(in, column, size);
+      for (int i = 0, next = 0; i < count; i++) {
+        boolean isNull = nullMode == ALL_NULLS || nulls != null && (nulls[i >>> 3] & (1 << (i & 7))) != 0;
+        cells[i][column] = new Cell(isNull ? null : values[next++]);
+      }
+    }
+    ArrayList<Row> rows = new ArrayList<>(count);
+    for (Cell[] row : cells)
+      rows.add(new Row(row));
+    return rows;
+  }
+
+  private Comparable[] readColumn(DataInput in, int column, int size) throws IOException {
+    Comparable[] values = new Comparable[size];
+    int encoding = in.readUnsignedByte();
+    if (encoding == RUN_LENGTH || encoding == DELTA) {
+      long[] integers = readIntegers(in, encoding, size);
+      for (int i = 0; i < size; i++) {
+        if (types[column] == ColumnType.INT)
+          values[i] = (int) integers[i];
+        else
+          values[i] = integers[i];
+      }
+    } else if (encoding == DICTIONARY) {
+      // rows of a block share the strings of the dictionary
+      Comparable[] dictionary = new Comparable[readLength(in)];
+      for (int i = 0; i < dictionary.length; i++)
+        dictionary[i] = readField(in, column);
+      long[] codes = readIntegers(in, in.readUnsignedByte(), size);
+      for (int i = 0; i < size; i++) {
+        if (codes[i] < 0 || codes[i] >= dictionary.length)
+          throw new ValueFormatInvalidException("(when decode column " + names[column] + ")");
+        values[i] = dictionary[(int) codes[i]];
+      }
+    } else if (encoding == PLAIN) {
+      for (int i = 0; i < size; i++)
+        values[i] = readField(in, column);
+    } else
+      throw new ValueFormatInvalidException("(when decode column " + names[column] + ")");
+    return values;
+  }
+
+  private static void writeIntegers(DataOutput out, long[] values) throws IOException {
+    int runs = 0;
+    for (int i = 0; i < values.length; i++)
+      if (i == 0 || values[i] != values[i - 1])
+        runs++;
+    if (2 * runs <= values.length) {
+      out.writeByte(RUN_LENGTH);
+      for (int i = 0; i < values.length; ) {
+        int j = i;
+        while (j < values.length && values[j] == values[i])
+          j++;
+        writeVarLong(out, zigzag(values[i]));
+        writeLength(out, j - i);
+        i = j;
+      }
+    } else {
+      out.writeByte(DELTA);
+      long previous = 0;
+      for (long value : values) {
+        writeVarLong(out, zigzag(value - previous));
+        previous = value;
+      }
+    }
+  }
+
+  private static long[] readIntegers(DataInput in, int encoding, int size) throws IOException {
+    long[] values = new long[size];
+    if (encoding == RUN_LENGTH) {
+      for (int i = 0; i < size; ) {
+        long value = unzigzag(readVarLong(in));
+        int length = readLength(in);
+        if (length <= 0 || length > size - i)
+          throw new ValueFormatInvalidException("(when decode a run length)");
+        for (int j = 0; j < length; j++)
+          values[i++] = value;
+      }
+    } else if (encoding == DELTA) {
+      long previous = 0;
+      for (int i = 0; i < size; i++)
+        previous = values[i] = previous + unzigzag(readVarLong(in));
+    } else
+      throw new ValueFormatInvalidException("(when decode an integer sequence)");
+    return values;
+  }
+
+  // small negative numbers as small varints as well
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  @Override
+  public void writeStatistics(DataOutput out, List<Row> rows) throws IOException {
+    for (int column = 0; column < types.length; column++) {
+      Comparable min = null;
+      Comparable max = null;
+      boolean hasNull = rows.isEmpty();
+      for (Row row : rows) {
+        Comparable value = row.getEntries().get(column).value;
+        if (value == null) {
+          hasNull = true;
+          break;
+        }
+        if (min == null || value.compareTo(min) < 0)
+          min = value;
+        if (max == null || value.compareTo(max) > 0)
+          max = value;
+      }
+      // no bounds for a column with nulls, scans never skip a block for it
+      out.writeBoolean(!hasNull);
+      if (!hasNull) {
+        writeField(out, column, min);
+        writeField(out, column, max);
+      }
+    }
+  }
+
+  /**
+   * The minimum and the maximum of each column, both null for a column that has a null.
+   */
+  @Override
+  public Object readStatistics(DataInput in) throws IOException {
+    Comparable[][] statistics = new Comparable[2][types.length];
+    for (int column = 0; column < types.length; column++) {
+      if (in.readBoolean()) {
+        statistics[0][column] = readField(in, column);
+        statistics[1][column] = readField(in, column);
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * A filter of row groups for {@code SortedIndex.range}: those that may have a value of the column
+   * between {@code from} and {@code to} (null for an open side), compared as {@link Cell#compareTo} does.
+   */
+  public static Predicate<Object> overlaps(int column, Cell from, boolean fromInclusive, Cell to, boolean toInclusive) {
+    return statistics -> {
+      Comparable min = ((Comparable[][]) statistics)[0][column];
+      Comparable max = ((Comparable[][]) statistics)[1][column];
+      if (min == null)
+        return true;
+      if (from != null && from.value != null) {
+        int compare = max.compareTo(from.value);
+        if (compare < 0 || compare == 0 && !fromInclusive)
+          return false;
+      }
+      if (to != null && to.value != null) {
+        int compare = min.compareTo(to.value);
+        if (compare > 0 || compare == 0 && !toInclusive)
+          return false;
+      }
+      return true;
+    };
+  }
+
+  private void writeField(DataOutput out, int column, Comparable value) throws IOException {
+    if (value == null)
+      throw new ValueFormatInvalidException("(when encode a null primary key of column " + names[column] + ")");
+    switch (types[column]) {
+      case INT:
+        out.writeInt((Integer) value);
+        break;
+      case LONG:
+        out.writeLong((Long) value);
+        break;
+      case FLOAT:
+        out.writeFloat((Float) value);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case STRING:
+        String string = (String) value;
+        if (string.length() > maxLengths[column])
+          throw new ValueExceedException(names[column], string.length(), maxLengths[column], "(when encode row)");
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeLength(out, bytes.length);
+        out.write(bytes);
+        break;
+    }
+  }
+
+  private Comparable readField(DataInput in, int column) throws IOException {
+    switch (types[column]) {
+      case INT:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case STRING:
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      default:
+        throw new ValueFormatInvalidException("(when decode column " + names[column] + ")");
+    }
+  }
+
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+      if (shift >= 63)
+        throw new ValueFormatInvalidException("(when decode an integer)");
+    }
+  }
+
+  // 7 bits per byte, low groups first, the high bit tells whether another byte follows
+  private static void writeLength(DataOutput out, int length) throws IOException {
+    while ((length & ~0x7F) != 0) {
+      out.writeByte((length & 0x7F) | 0x80);
+      length >>>= 7;
+    }
+    out.writeByte(length);
+  }
+
+  private static int readLength(DataInput in) throws IOException {
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return length;
+      if (shift > 28)
+        throw new ValueFormatInvalidException("(when decode a string length)");
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.transaction.Snapshot;
+import cn.edu.thssdb.transaction.TransactionManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The row versions of one table that some snapshot may still need. The primary index always holds the newest version;
+ * a key written inside a transaction gets a chain here, newest first and linked through {@code Row.older},
+ * until every snapshot sees its newest version again. Writers of the table (one at a time, under its X lock)
+ * and the collector change chains under the monitor, readers walk them without locking.
+ * Writers record a change here before applying it to the tree and readers read the tree before looking here,
+ * so a reader that sees an uncommitted row in the tree also finds its chain.
+ */
+final class RowVersions implements TransactionManager.Collectable {
+  private final ConcurrentSkipListMap<Cell, Row> chains = new ConcurrentSkipListMap<>();
+
+  /**
+   * Record a write before it reaches the tree. {@code current} is the row in the tree (null if there is none),
+   * {@code newest} the row replacing it (null for a delete).
+   */
+  synchronized void write(Cell key, Row current, Row newest, long transaction) {
+    if (transaction == 0) {
+      // visible to everyone at once, older versions are of no use
+      chains.remove(key);
+      return;
+    }
+    Row head = chains.get(key);
+    if (head == null)
+      head = current;
+    if (head != null && head.deletedBy == 0)
+      head.deletedBy = transaction;
+    if (newest == null) {
+      if (head != null)
+        chains.put(key, head);
+      return;
+    }
+    newest.createdBy = transaction;
+    newest.deletedBy = 0;
+    newest.older = head;
+    chains.put(key, newest);
+  }
+
+  /**
+   * Take the writes of an aborting transaction (still running, under its locks) out of the chains: the version
+   * it replaced is the newest again. A key it created keeps one version, created and deleted by the transaction,
+   * that no snapshot sees and the collector drops.
+   * @return every key the transaction wrote, with the row the tree should hold again (null for none)
+   */
+  synchronized LinkedHashMap<Cell, Row> rollback(long transaction) {
+    LinkedHashMap<Cell, Row> restored = new LinkedHashMap<>();
+    for (Map.Entry<Cell, Row> entry : chains.entrySet()) {
+      Row head = entry.getValue();
+      if (head.createdBy != transaction && head.deletedBy != transaction)
+        continue;
+      Row before = head;
+      while (before != null && before.createdBy == transaction)
+        before = before.older;
+      if (before == null) {
+        head.deletedBy = transaction;
+        head.older = null;
+        restored.put(entry.getKey(), null);
+        continue;
+      }
+      if (before.deletedBy == transaction)
+        before.deletedBy = 0;
+      chains.put(entry.getKey(), before);
+      restored.put(entry.getKey(), before.deletedBy == 0 ? before : null);
+    }
+    return restored;
+  }
+
+  /**
+   * The version under the key the snapshot sees, given the row read from the tree just before.
+   */
+  Row visible(Cell key, Row latest, Snapshot snapshot) {
+    Row version = chains.get(key);
+    if (version == null)
+      return latest;
+    for (; version != null; version = version.older) {
+      if (snapshot.sees(version.createdBy)) {
+        long deletedBy = version.deletedBy;
+        return deletedBy != 0 && snapshot.sees(deletedBy) ? null : version;
+      }
+    }
+    return null;
+  }
+
+  // keys with a chain inside the range, null bounds are open
+  NavigableMap<Cell, Row> range(Cell from, boolean fromInclusive, Cell to, boolean toInclusive) {
+    if (from == null && to == null)
+      return chains;
+    if (from == null)
+      return chains.headMap(to, toInclusive);
+    if (to == null)
+      return chains.tailMap(from, fromInclusive);
+    return chains.subMap(from, fromInclusive, to, toInclusive);
+  }
+
+  int size() {
+    return chains.size();
+  }
+
+  @Override
+  public synchronized void vacuum(long horizon) {
+    for (Map.Entry<Cell, Row> entry : chains.entrySet()) {
+      Row head = entry.getValue();
+      Row version = head;
+      while (version != null && version.createdBy >= horizon)
+        version = version.older;
+      if (version == null)
+        continue;
+      // every snapshot stops at this version, the ones behind it are unreachable
+      version.older = null;
+      long deletedBy = head.deletedBy;
+      if (version == head && (deletedBy == 0 || deletedBy < horizon))
+        chains.remove(entry.getKey(), head);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.BPlusTreeCodec;
+import cn.edu.thssdb.index.BPlusTreeCursor;
+import cn.edu.thssdb.storage.PageFile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * A non-unique index on one column of a table, kept as a B+ tree from (value, primary key) to nothing.
+ * NULL values are not indexed, no comparison predicate can match them.
+ */
+class SecondaryIndex {
+  private static final BPlusTreeCodec<IndexKey, Void> CODEC = new BPlusTreeCodec<IndexKey, Void>() {
+    @Override
+    public void writeKey(DataOutput out, IndexKey key) throws IOException {
+      TablePageCodec.writeCell(out, key.value);
+      TablePageCodec.writeCell(out, key.primary);
+    }
+
+    @Override
+    public IndexKey readKey(DataInput in) throws IOException {
+      Cell value = TablePageCodec.readCell(in);
+      return new IndexKey(value, TablePageCodec.readCell(in));
+    }
+
+    @Override
+    public void writeValue(DataOutput out, Void value) {
+    }
+
+    @Override
+    public Void readValue(DataInput in) {
+      return null;
+    }
+  };
+
+  final String name;
+  final int columnIndex;
+  private final Function<Row, Cell> primaryKey;
+  private final String path;
+  private final PageFile file;
+  private final BPlusTree<IndexKey, Void> tree;
+
+  SecondaryIndex(String name, int columnIndex, Function<Row, Cell> primaryKey, String path) {
+    this.name = name;
+    this.columnIndex = columnIndex;
+    this.primaryKey = primaryKey;
+    this.path = path;
+    this.file = new PageFile(path);
+    this.tree = new BPlusTree<>(file, CODEC);
+  }
+
+  private IndexKey keyOf(Row row) {
+    Cell value = row.getEntries().get(columnIndex);
+    if (value == null || value.value == null)
+      return null;
+    return new IndexKey(value, primaryKey.apply(row));
+  }
+
+  // 建索引时按(值, 主键)排序后自底向上建树
+  void build(Iterator<Row> rows) {
+    ArrayList<IndexKey> keys = new ArrayList<>();
+    while (rows.hasNext()) {
+      IndexKey key = keyOf(rows.next());
+      if (key != null)
+        keys.add(key);
+    }
+    Collections.sort(keys);
+    Iterator<IndexKey> iterator = keys.iterator();
+    tree.bulkLoad(new Iterator<Pair<IndexKey, Void>>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Pair<IndexKey, Void> next() {
+        return new Pair<>(iterator.next(), null);
+      }
+    }, Global.BULK_LOAD_FILL_FACTOR);
+  }
+
+  void insert(Row row) {
+    IndexKey key = keyOf(row);
+    if (key != null)
+      tree.put(key, null);
+  }
+
+  void delete(Row row) {
+    IndexKey key = keyOf(row);
+    if (key != null)
+      tree.remove(key);
+  }
+
+  /**
+   * Replace the entry of {@code oldRow} by that of {@code newRow} (either may be null) while replaying the log,
+   * skipping what the index already reflects.
+   */
+  void redo(Row oldRow, Row newRow) {
+    IndexKey oldKey = oldRow == null ? null : keyOf(oldRow);
+    IndexKey newKey = newRow == null ? null : keyOf(newRow);
+    if (oldKey != null && (newKey == null || oldKey.compareTo(newKey) != 0) && tree.contains(oldKey))
+      tree.remove(oldKey);
+    if (newKey != null && !tree.contains(newKey))
+      tree.put(newKey, null);
+  }
+
+  /**
+   * Primary keys of the rows whose value lies between from and to, ordered by value. A null bound is open.
+   */
+  Iterator<Cell> primaryKeys(Cell from, boolean fromInclusive, Cell to, boolean toInclusive) {
+    IndexKey lower = from == null ? null : fromInclusive ? IndexKey.lowerBound(from) : IndexKey.upperBound(from);
+    IndexKey upper = to == null ? null : toInclusive ? IndexKey.upperBound(to) : IndexKey.lowerBound(to);
+    BPlusTreeCursor<IndexKey, Void> cursor = tree.range(lower, true, upper, true);
+    return new Iterator<Cell>() {
+      private boolean hasNext = cursor.next();
+
+      @Override
+      public boolean hasNext() {
+        return hasNext;
+      }
+
+      @Override
+      public Cell next() {
+        if (!hasNext)
+          throw new NoSuchElementException();
+        Cell primary = cursor.key().primary;
+        hasNext = cursor.next();
+        return primary;
+      }
+    };
+  }
+
+  /**
+   * The log sequence number the last checkpoint of the index covers, records after it are replayed into the index.
+   */
+  long getLsn() {
+    return file.getLsn();
+  }
+
+  /**
+   * Checkpoint the index as covering the log up to {@code lsn}: every change logged before it is in the tree already.
+   */
+  void persist(long lsn) {
+    tree.flushLeaves();
+    file.setLsn(lsn);
+    tree.checkpoint();
+  }
+
+  void close() {
+    tree.close();
+  }
+
+  void drop() {
+    tree.close();
+    File file = new File(path);
+    if (file.exists() && !file.delete())
+      throw new FileIOException(path + " when drop index");
+  }
+}
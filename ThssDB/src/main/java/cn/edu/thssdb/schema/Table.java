@@ -0,0 +1,1103 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.*;
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.KeyLayout;
+import cn.edu.thssdb.index.LSMTree;
+import cn.edu.thssdb.index.SortedCursor;
+import cn.edu.thssdb.index.SortedIndex;
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.storage.PageFile;
+import cn.edu.thssdb.transaction.LockManager;
+import cn.edu.thssdb.transaction.Snapshot;
+import cn.edu.thssdb.transaction.TransactionManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import cn.edu.thssdb.type.ColumnType;
+
+import static cn.edu.thssdb.type.ColumnType.STRING;
+
+
+public class Table implements Iterable<Row>, TransactionManager.Participant {
+  ReentrantReadWriteLock lock;
+  private String databaseName;
+  public String tableName;
+  public ArrayList<Column> columns;
+  public SortedIndex<Cell, Row> index;
+  private int primaryIndex;
+  private int[] primaryIndexes; // 主键各列按主键内次序排列，primaryIndex为第一列
+  private int fanout; // 主键索引的扇出，建表时指定，写在元数据里
+  private boolean mapped; // 数据文件用内存映射读，适合读多写少的表，同样写在元数据里
+  private String engine; // 存储引擎：默认B+树，写多的表可以用LSM树
+  private LinkedHashMap<String, SecondaryIndex> secondaryIndexes;
+  RowVersions versions; // 快照读所需的旧版本
+  private RowCodec rowCodec;
+  private RedoLog redoLog; // 所在数据库的日志，单独使用的表没有
+  private volatile boolean loaded; // 数据在第一次访问时才打开，冷表可以再关掉
+  private volatile long lastAccess;
+  private final AtomicInteger readers = new AtomicInteger(); // 正在进行的读和没读完的迭代器，换出时须为0
+  private volatile long lsn; // 已写入树的最后一条日志记录
+  private final AtomicLong changes = new AtomicLong(); // 写入（含重放、建索引）的次数，检查点只写有变化的表
+  private volatile long persistedChanges; // 上次检查点时的changes
+  private volatile boolean metaDirty; // 列和表选项还没写进_meta，只在建表时
+  // 写者在写日志和改树期间持读锁，检查点取覆盖的日志位置时短暂持写锁
+  private final ReentrantReadWriteLock checkpointLatch = new ReentrantReadWriteLock();
+
+  // 表锁和行锁由LockManager管理：原子地授予，等锁的会话按先来后到排队，放锁时唤醒，不再轮询。事务结束时一并释放
+  // 返回false表示会话之前已持有这个表的锁
+  public boolean takeSLock(Long sessionId) {
+    return LockManager.getInstance().lock(sessionId, this, LockManager.LockMode.S);
+  }
+  public boolean takeXLock(Long sessionId){
+    return LockManager.getInstance().lock(sessionId, this, LockManager.LockMode.X);
+  }
+  // 行锁以主键区分，先在表上加意向锁（IS、IX）；一个事务在表上的行锁过多时升级为表锁
+  public void takeRowSLock(Long sessionId, Cell primaryKey) {
+    LockManager.getInstance().lockRow(sessionId, this, primaryKey, LockManager.LockMode.S);
+  }
+  public void takeRowXLock(Long sessionId, Cell primaryKey) {
+    LockManager.getInstance().lockRow(sessionId, this, primaryKey, LockManager.LockMode.X);
+  }
+  public void releaseLock(Long sessionId){
+    LockManager.getInstance().unlock(sessionId, this);
+  }
+  public boolean isLocked(){
+    return LockManager.getInstance().isLocked(this);
+  }
+
+
+  // Initiate: Table, recover
+  public Table(String databaseName, String tableName, Column[] columns) {
+    this(databaseName, tableName, columns, Global.fanout);
+  }
+
+  public Table(String databaseName, String tableName, Column[] columns, int fanout) {
+    this(databaseName, tableName, columns, fanout, false);
+  }
+
+  public Table(String databaseName, String tableName, Column[] columns, int fanout, boolean mapped) {
+    this(databaseName, tableName, columns, fanout, mapped, Global.ENGINE_BPLUSTREE);
+  }
+
+  public Table(String databaseName, String tableName, Column[] columns, int fanout, boolean mapped, String engine) {
+    this.lock = new ReentrantReadWriteLock();
+    this.databaseName = databaseName;
+    this.tableName = tableName;
+    this.columns = new ArrayList<>(Arrays.asList(columns));
+    this.primaryIndex = -1;
+    if (fanout < Global.MIN_FANOUT)
+      throw new TableOptionInvalidException("fanout", String.valueOf(fanout));
+    this.fanout = fanout;
+    this.mapped = mapped;
+    if (!Global.ENGINE_BPLUSTREE.equals(engine) && !Global.ENGINE_LSM.equals(engine))
+      throw new TableOptionInvalidException(Global.ENGINE_OPTION, engine);
+    if (mapped && Global.ENGINE_LSM.equals(engine)) // LSM树没有页文件可以映射
+      throw new TableOptionInvalidException(Global.MMAP_OPTION, "1");
+    this.engine = engine;
+
+    int primaryCount = 0;
+    for (Column column : this.columns)
+      if (column.isPrimary())
+        primaryCount++;
+    if (primaryCount == 0)
+      throw new MultiPrimaryKeyException(this.tableName);
+    this.primaryIndexes = new int[primaryCount];
+    Arrays.fill(this.primaryIndexes, -1);
+    for (int i=0;i<this.columns.size();i++)
+    {
+      int primary = this.columns.get(i).getPrimary();
+      if (primary <= 0)
+        continue;
+      // 单列主键或旧的元数据里次序都是1
+      int position = primaryCount == 1 ? 0 : primary - 1;
+      if (position >= primaryCount || this.primaryIndexes[position] >= 0)
+        throw new MultiPrimaryKeyException(this.tableName);
+      this.primaryIndexes[position] = i;
+    }
+    this.primaryIndex = this.primaryIndexes[0];
+    this.rowCodec = new RowCodec(this.columns, this.primaryIndexes);
+  }
+
+  // 第一次访问（或换出后再访问）时打开数据文件和索引
+  void load() {
+    this.lastAccess = System.currentTimeMillis();
+    if (this.loaded)
+      return;
+    synchronized (this) {
+      if (!this.loaded)
+        recover();
+    }
+  }
+
+  long getLastAccess(){return lastAccess;}
+  boolean isLoaded(){return loaded;}
+  int getReaders(){return readers.get();}
+
+  // 上次检查点以来有没有写入
+  boolean isDirty(){return changes.get() != persistedChanges;}
+  // 新建的表：数据和元数据都要写
+  void created(){
+    changes.incrementAndGet();
+    metaDirty = true;
+  }
+  boolean isMetaDirty(){return metaDirty;}
+  void metaPersisted(){metaDirty = false;}
+
+  /*
+   读者不加锁，靠登记挡住换出：先登记再看loaded，换出先把loaded置为false再看登记数，两边总有一方看到对方。
+   换出后才登记的读者在load()里等换出结束，重新打开表
+   */
+  private void pin() {
+    this.readers.incrementAndGet();
+    try {
+      this.load();
+    } catch (RuntimeException e) {
+      this.readers.decrementAndGet();
+      throw e;
+    }
+  }
+
+  private void unpin() {
+    this.readers.decrementAndGet();
+  }
+
+  // 登记后打开迭代器，遍历到底（或出错）时解除登记；没读完就丢下的迭代器让表一直不被换出
+  private Iterator<Row> pinned(Supplier<Iterator<Row>> open) {
+    this.pin();
+    Iterator<Row> iterator;
+    try {
+      iterator = open.get();
+    } catch (RuntimeException e) {
+      this.unpin();
+      throw e;
+    }
+    return new Iterator<Row>() {
+      private boolean pinned = true;
+
+      private void finish() {
+        if (pinned) {
+          pinned = false;
+          unpin();
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        try {
+          boolean hasNext = iterator.hasNext();
+          if (!hasNext)
+            finish();
+          return hasNext;
+        } catch (RuntimeException e) {
+          finish();
+          throw e;
+        }
+      }
+
+      @Override
+      public Row next() {
+        try {
+          return iterator.next();
+        } catch (RuntimeException e) {
+          finish();
+          throw e;
+        }
+      }
+    };
+  }
+
+  /*
+   换出空闲的表：写检查点后关闭，下次访问时再打开。挡住写者，有会话持锁、有读者登记、快照还要读旧版本，
+   或者在idleSince之后访问过时不换出；这些都在checkpointLatch的写锁和this下重新检查
+   */
+  boolean unload(long idleSince) {
+    // 与写者同样先取checkpointLatch再取this（见load）
+    this.checkpointLatch.writeLock().lock();
+    try {
+      synchronized (this) {
+        if (!this.loaded || this.lastAccess >= idleSince || this.readers.get() != 0 || this.isLocked()
+                || this.versions.size() != 0)
+          return false;
+        this.persist();
+        this.loaded = false;
+        if (this.readers.get() != 0) {
+          this.loaded = true;
+          return false;
+        }
+        this.release();
+        return true;
+      }
+    } finally {
+      this.checkpointLatch.writeLock().unlock();
+    }
+  }
+
+  private void recover() {
+    // read from disk for recovering
+    File tableFolder = new File(this.getTableFolderPath());
+    if (!tableFolder.exists() ? !tableFolder.mkdirs() : !tableFolder.isDirectory())
+      throw new FileIOException(this.getTableFolderPath() + " when recover");
+    if (Global.ENGINE_LSM.equals(this.engine)) {
+      // 数据目录下是各个有序段和MANIFEST
+      this.index = new LSMTree<>(this.getTablePath(), this.rowCodec);
+    } else {
+      this.index = recoverTree();
+    }
+    this.lsn = this.index.getLsn();
+    recoverIndexes();
+    this.versions = new RowVersions();
+    TransactionManager.getInstance().register(this.versions);
+    this.loaded = true;
+  }
+
+  // B+树引擎的页文件，旧格式的数据先迁移
+  private BPlusTree<Cell, Row> recoverTree() {
+    File tableFile = new File(this.getTablePath());
+    if (tableFile.exists() && !PageFile.isPageFile(tableFile)) {
+      ArrayList<Row> rowsOnDisk = deserialize();
+      rowsOnDisk.sort(Comparator.comparing(this::getPrimaryKey)); // serialize()按主键顺序写出，这里只是保险
+      migrate(sortedEntries(rowsOnDisk));
+    }
+    PageFile file = new PageFile(this.getTablePath(), RowCodec.FORMAT, this.mapped);
+    if (file.getFormat() != RowCodec.FORMAT) {
+      // 带类型标记的旧页格式，按主键顺序读出后重写
+      BPlusTree<Cell, Row> old = new BPlusTree<>(file, new TablePageCodec(), keyLayout(), this.fanout);
+      try {
+        migrate(old.iterator());
+      } finally {
+        old.close();
+      }
+      file = new PageFile(this.getTablePath(), RowCodec.FORMAT, this.mapped);
+    }
+    return new BPlusTree<>(file, this.rowCodec, keyLayout(), this.fanout);
+  }
+
+  private void recoverIndexes() {
+    this.secondaryIndexes = new LinkedHashMap<>();
+    File file = new File(this.getTableIndexMetaPath());
+    if (!file.exists())
+      return;
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)))) {
+      String readLine;
+      while ((readLine = reader.readLine()) != null) {
+        String[] sArray = readLine.split(",");
+        int columnIndex = this.searchColumn(sArray[1]);
+        if (columnIndex < 0)
+          throw new KeyNotExistException();
+        SecondaryIndex secondaryIndex = new SecondaryIndex(sArray[0], columnIndex, this::getPrimaryKey, this.getIndexPath(sArray[0]));
+        // 表的检查点写完、索引的还没写完时崩溃：索引落后于表，从表重建
+        if (secondaryIndex.getLsn() < this.lsn) {
+          secondaryIndex.drop();
+          secondaryIndex = new SecondaryIndex(sArray[0], columnIndex, this::getPrimaryKey, this.getIndexPath(sArray[0]));
+          secondaryIndex.build(new TableIterator(this.index.cursor()));
+          secondaryIndex.persist(this.lsn);
+        }
+        this.secondaryIndexes.put(sArray[0], secondaryIndex);
+      }
+    } catch (IOException e) {
+      throw new FileIOException(this.getTableIndexMetaPath() + " when recover");
+    }
+  }
+
+  // 索引定义写在_meta旁边的.indexes文件里，每行"索引名,列名"
+  private void persistIndexMeta() {
+    String filename = this.getTableIndexMetaPath();
+    try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(filename))) {
+      for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+        writer.write(secondaryIndex.name + "," + this.columns.get(secondaryIndex.columnIndex).getColumnName() + "\n");
+    } catch (IOException e) {
+      throw new FileIOException(filename);
+    }
+  }
+
+  public void createIndex(String indexName, String columnName) {
+    this.load();
+    if (this.secondaryIndexes.containsKey(indexName))
+      throw new DuplicateIndexException(indexName);
+    int columnIndex = this.searchColumn(columnName);
+    if (columnIndex < 0)
+      throw new KeyNotExistException();
+    File file = new File(this.getIndexPath(indexName));
+    if (file.exists() && !file.delete())
+      throw new FileIOException(this.getIndexPath(indexName) + " when create index");
+    SecondaryIndex secondaryIndex = new SecondaryIndex(indexName, columnIndex, this::getPrimaryKey, this.getIndexPath(indexName));
+    secondaryIndex.build(this.iterator());
+    this.secondaryIndexes.put(indexName, secondaryIndex);
+    // 表和索引一起写检查点，保证两者在磁盘上一致
+    this.changes.incrementAndGet();
+    this.persist();
+    this.persistIndexMeta();
+  }
+
+  public void dropIndex(String indexName) {
+    this.load();
+    SecondaryIndex secondaryIndex = this.secondaryIndexes.remove(indexName);
+    if (secondaryIndex == null)
+      throw new IndexNotExistException(indexName);
+    this.persistIndexMeta();
+    secondaryIndex.drop();
+  }
+
+  public boolean hasIndex(int columnIndex) {
+    if (columnIndex == this.primaryIndex)
+      return true;
+    this.load();
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+      if (secondaryIndex.columnIndex == columnIndex)
+        return true;
+    return false;
+  }
+
+  // INT/LONG主键在节点中以int[]/long[]存放，不装箱成Cell
+  private KeyLayout<Cell> keyLayout() {
+    if (this.primaryIndexes.length > 1) {
+      // (INT, INT)复合主键压成一个long：高32位为第一列，低32位为第二列加偏移，保持原有顺序
+      if (this.primaryIndexes.length == 2 && this.columns.get(this.primaryIndexes[0]).getColumnType() == ColumnType.INT
+              && this.columns.get(this.primaryIndexes[1]).getColumnType() == ColumnType.INT)
+        return KeyLayout.longs(Table::packIntPair, Table::unpackIntPair);
+      return KeyLayout.objects();
+    }
+    switch (this.columns.get(this.primaryIndex).getColumnType()) {
+      case INT:
+        return KeyLayout.ints(cell -> ((Number) cell.value).intValue(), value -> new Cell(value));
+      case LONG:
+        return KeyLayout.longs(cell -> ((Number) cell.value).longValue(), value -> new Cell(value));
+      default:
+        return KeyLayout.objects();
+    }
+  }
+
+  static long packIntPair(Cell cell) {
+    CompoundKey key = (CompoundKey) cell.value;
+    long high = (Integer) key.get(0);
+    long low;
+    if (key.size() == 2)
+      low = (Integer) key.get(1);
+    else
+      low = key.getBound() < 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    return (high << 32) | ((low - Integer.MIN_VALUE) & 0xFFFFFFFFL);
+  }
+
+  static Cell unpackIntPair(long value) {
+    int high = (int) (value >> 32);
+    int low = (int) ((value & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+    return new Cell(new CompoundKey(new Comparable[]{high, low}));
+  }
+
+  // 旧格式（整表Java序列化或带类型标记的页）的数据，按主键顺序写成新页文件后替换
+  private void migrate(Iterator<Pair<Cell, Row>> sorted) {
+    String tmpPath = this.getTablePath() + ".tmp";
+    File tmpFile = new File(tmpPath);
+    if (tmpFile.exists() && !tmpFile.delete())
+      throw new FileIOException(tmpPath + " when migrate");
+    BPlusTree<Cell, Row> tree = new BPlusTree<>(new PageFile(tmpPath, RowCodec.FORMAT), this.rowCodec, keyLayout(), this.fanout);
+    tree.bulkLoad(sorted, Global.BULK_LOAD_FILL_FACTOR);
+    tree.checkpoint();
+    tree.close();
+    try {
+      Files.move(tmpFile.toPath(), new File(this.getTablePath()).toPath(),
+              StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new FileIOException(this.getTablePath() + " when migrate");
+    }
+  }
+
+  public int getPrimaryIndex(){return primaryIndex;}
+  public int[] getPrimaryIndexes(){return primaryIndexes;}
+  public int getFanout(){return fanout;}
+  public boolean isMapped(){return mapped;}
+  public String getEngine(){return engine;}
+  RowCodec getRowCodec(){return rowCodec;}
+  long getLsn(){this.load(); return lsn;}
+  void attach(RedoLog redoLog){this.redoLog = redoLog;}
+
+  // 行的主键：单列主键即该列的Cell，复合主键为包着CompoundKey的Cell
+  public Cell getPrimaryKey(Row row) {
+    if (this.primaryIndexes.length == 1)
+      return row.getEntries().get(this.primaryIndex);
+    Comparable[] values = new Comparable[this.primaryIndexes.length];
+    for (int i = 0; i < values.length; i++)
+      values[i] = row.getEntries().get(this.primaryIndexes[i]).value;
+    return new Cell(new CompoundKey(values));
+  }
+
+
+  // Operations: get, insert, delete, update, dropTable, you can add other operations.
+
+  public Row get(Cell primaryCell){
+    this.pin();
+    try {
+      return this.index.get(primaryCell);
+    }finally {
+      this.unpin();
+    }
+  }
+
+  // 快照可见的版本，不存在时返回null；先读树再读版本链，不加锁
+  public Row get(Cell primaryCell, Snapshot snapshot) {
+    this.pin();
+    try {
+      Row latest;
+      try {
+        latest = this.index.get(primaryCell);
+      } catch (KeyNotExistException e) {
+        latest = null;
+      }
+      return this.versions.visible(primaryCell, latest, snapshot);
+    } finally {
+      this.unpin();
+    }
+  }
+
+  // 不带事务号的写入（如日志重放）立即对所有快照可见
+  public void insert(Row row) {
+    insert(row, 0);
+  }
+
+  public void insert(Row row, long transaction) {
+    this.checkpointLatch.readLock().lock();
+    try {
+      this.load();
+      this.checkRowValidInTable(row);
+      if(this.containsRow(row))
+        throw new DuplicateKeyException();
+      long lsn = this.log(RedoLog.INSERT, getPrimaryKey(row), row, null, transaction);
+      this.versions.write(getPrimaryKey(row), null, row, transaction);
+      this.index.put(getPrimaryKey(row), row);
+      for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+        secondaryIndex.insert(row);
+      this.applied(lsn);
+    }finally {
+      this.checkpointLatch.readLock().unlock();
+    }
+  }
+
+  // 多行插入：按主键排序、整体检查后再写入；空表直接自底向上建树
+  public void insert(List<Row> rows) {
+    insert(rows, 0);
+  }
+
+  public void insert(List<Row> rows, long transaction) {
+    this.checkpointLatch.readLock().lock();
+    try {
+      this.load();
+      for (Row row : rows)
+        this.checkRowValidInTable(row);
+      ArrayList<Row> sorted = new ArrayList<>(rows);
+      sorted.sort(Comparator.comparing(this::getPrimaryKey));
+      for (int i = 0; i < sorted.size(); i++) {
+        if (i > 0 && getPrimaryKey(sorted.get(i - 1)).compareTo(getPrimaryKey(sorted.get(i))) == 0)
+          throw new DuplicateKeyException();
+        if (this.index.size() > 0 && this.containsRow(sorted.get(i)))
+          throw new DuplicateKeyException();
+      }
+      long lsn = 0;
+      for (int i = 0; i < sorted.size(); i++)
+        lsn = this.log(RedoLog.INSERT, getPrimaryKey(sorted.get(i)), sorted.get(i), null, transaction, i == sorted.size() - 1);
+      for (Row row : sorted)
+        this.versions.write(getPrimaryKey(row), null, row, transaction);
+      boolean bulkLoaded = false;
+      if (this.index.size() == 0) {
+        try {
+          this.index.bulkLoad(sortedEntries(sorted), Global.BULK_LOAD_FILL_FACTOR);
+          bulkLoaded = true;
+        } catch (IllegalStateException e) {
+          // 持行锁的其他会话刚插入了别的行，表不再为空，逐行插入
+        }
+      }
+      if (!bulkLoaded)
+        for (Row row : sorted)
+          this.index.put(getPrimaryKey(row), row);
+      for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+        for (Row row : sorted)
+          secondaryIndex.insert(row);
+      this.applied(lsn);
+    } finally {
+      this.checkpointLatch.readLock().unlock();
+    }
+  }
+
+  private Iterator<Pair<Cell, Row>> sortedEntries(List<Row> rows) {
+    Iterator<Row> iterator = rows.iterator();
+    return new Iterator<Pair<Cell, Row>>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Pair<Cell, Row> next() {
+        Row row = iterator.next();
+        return new Pair<>(getPrimaryKey(row), row);
+      }
+    };
+  }
+
+  public void delete(Row row) {
+    delete(row, 0);
+  }
+
+  public void delete(Row row, long transaction) {
+    this.checkpointLatch.readLock().lock();
+    try {
+      this.load();
+      this.checkRowValidInTable(row);
+      if(!this.containsRow(row))
+        throw new KeyNotExistException();
+      Row oldRow = this.get(getPrimaryKey(row));
+      long lsn = this.log(RedoLog.DELETE, getPrimaryKey(row), null, oldRow, transaction);
+      this.versions.write(getPrimaryKey(row), oldRow, null, transaction);
+      for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+        secondaryIndex.delete(oldRow);
+      this.index.remove(getPrimaryKey(row));
+      this.applied(lsn);
+    }finally {
+      this.checkpointLatch.readLock().unlock();
+    }
+  }
+
+  public void update(Cell primaryCell, Row newRow) {
+    update(primaryCell, newRow, 0);
+  }
+
+  public void update(Cell primaryCell, Row newRow, long transaction) {
+    this.checkpointLatch.readLock().lock();
+    try {
+      this.load();
+      this.checkRowValidInTable(newRow);
+      Row oldRow = this.get(primaryCell);
+      Cell newPrimaryCell = getPrimaryKey(newRow);
+
+      if(newPrimaryCell.compareTo(primaryCell)!=0&&this.containsRow(newRow))
+        throw new DuplicateKeyException();   // 要么删并插入，要么抛出异常
+      long lsn;
+      if (newPrimaryCell.compareTo(primaryCell) == 0) {
+        lsn = this.log(RedoLog.UPDATE, primaryCell, newRow, oldRow, transaction);
+        this.versions.write(primaryCell, oldRow, newRow, transaction);
+        this.index.update(primaryCell, newRow);
+      } else {
+        // 改了主键：旧主键上是一次删除，新主键上是一次插入
+        this.log(RedoLog.DELETE, primaryCell, null, oldRow, transaction, false);
+        lsn = this.log(RedoLog.INSERT, newPrimaryCell, newRow, null, transaction);
+        this.versions.write(primaryCell, oldRow, null, transaction);
+        this.versions.write(newPrimaryCell, null, newRow, transaction);
+        this.index.remove(primaryCell);
+        this.index.put(newPrimaryCell, newRow);
+      }
+      for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values()) {
+        secondaryIndex.delete(oldRow);
+        secondaryIndex.insert(newRow);
+      }
+      this.applied(lsn);
+    }finally {
+      this.checkpointLatch.readLock().unlock();
+    }
+  }
+
+  /*
+   中止事务：版本链先退回到事务之前的版本，再把这些版本放回树和二级索引（事务新插入的主键删掉）。
+   事务此时还持有行锁，没有别的写者；读者先读树再读版本链，看到的总是退回后的版本。已删除的表没有可退回的。
+   放回的行作为事务外的修改写日志：检查点可能已写下事务的修改，重放时由这些记录改回来
+   */
+  @Override
+  public void rollback(long transaction) {
+    this.checkpointLatch.readLock().lock();
+    try {
+      if (!this.loaded)
+        return;
+      for (Map.Entry<Cell, Row> entry : this.versions.rollback(transaction).entrySet()) {
+        Cell key = entry.getKey();
+        Row row = entry.getValue();
+        Row current = this.index.contains(key) ? this.index.get(key) : null;
+        long lsn = this.log(row == null ? RedoLog.DELETE : RedoLog.UPDATE, key, row, current, 0, false);
+        if (row == null) {
+          if (current != null)
+            this.index.remove(key);
+        } else if (current != null)
+          this.index.update(key, row);
+        else
+          this.index.put(key, row);
+        for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values()) {
+          if (current != null)
+            secondaryIndex.delete(current);
+          if (row != null)
+            secondaryIndex.insert(row);
+        }
+        this.applied(lsn);
+      }
+    } finally {
+      this.checkpointLatch.readLock().unlock();
+    }
+  }
+
+  // 先写日志再改树，没有日志时返回0。先计数再写日志，检查点切分日志后看到的计数包含切分前的所有记录。
+  // before为修改前主键下的行，恢复时据此撤销未结束的事务
+  private long log(byte type, Cell key, Row row, Row before, long transaction) {
+    return log(type, key, row, before, transaction, true);
+  }
+
+  // 事务外的修改写完日志即提交，durable时等日志落盘；回滚的补偿记录和一条语句除最后一条外的记录不等
+  private long log(byte type, Cell key, Row row, Row before, long transaction, boolean durable) {
+    this.changes.incrementAndGet();
+    if (this.redoLog == null)
+      return 0;
+    if (durable)
+      return this.redoLog.write(type, this, key, row, before, transaction);
+    return this.redoLog.append(type, this, key, row, before, transaction);
+  }
+
+  private void applied(long lsn) {
+    if (lsn > this.lsn)
+      this.lsn = lsn;
+  }
+
+  // 表或某个索引的检查点不包含这条日志记录时需要重放
+  boolean needsRedo(long lsn) {
+    this.load();
+    if (lsn > this.lsn)
+      return true;
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+      if (lsn > secondaryIndex.getLsn())
+        return true;
+    return false;
+  }
+
+  /*
+   重放一条日志记录：把行镜像放到主键下，row为null时删除该主键；重放两次结果不变。
+   事务按提交顺序重放，记录不按位置先后到来，所以只和检查点的位置比较。
+   */
+  void redo(Cell key, Row row, long lsn) {
+    this.changes.incrementAndGet();
+    Row oldRow = this.index.contains(key) ? this.index.get(key) : null;
+    if (lsn > this.lsn) {
+      if (row == null) {
+        if (oldRow != null)
+          this.index.remove(key);
+      } else if (oldRow != null)
+        this.index.update(key, row);
+      else
+        this.index.put(key, row);
+    }
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+      if (lsn > secondaryIndex.getLsn())
+        secondaryIndex.redo(oldRow, row);
+  }
+
+  /*
+   撤销崩溃时没有结束的事务的一条修改（日志重放之后，从新到旧）：不管检查点里有没有这次修改，主键下都放回修改前的行，
+   before为null时删除该主键。二级索引的检查点可能比表新，修改后的行row和树里的行的索引项都要去掉
+   */
+  void undo(Cell key, Row row, Row before) {
+    this.load();
+    this.changes.incrementAndGet();
+    Row current = this.index.contains(key) ? this.index.get(key) : null;
+    if (before == null) {
+      if (current != null)
+        this.index.remove(key);
+    } else if (current != null)
+      this.index.update(key, before);
+    else
+      this.index.put(key, before);
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values()) {
+      if (row != null)
+        secondaryIndex.redo(row, before);
+      secondaryIndex.redo(current, before);
+    }
+  }
+
+  private ArrayList<Row> deserialize() {
+    try {
+      File tableFolder = new File(this.getTableFolderPath());
+      if (!tableFolder.exists() ? !tableFolder.mkdirs() : !tableFolder.isDirectory())
+        throw new FileIOException(this.getTableFolderPath() + " when deserialize");
+      File tableFile = new File(this.getTablePath());
+      if(!tableFile.exists())
+        return new ArrayList<>();
+      FileInputStream fileInputStream = new FileInputStream(this.getTablePath());
+      ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
+      ArrayList<Row> rowsOnDisk = new ArrayList<>();
+      Object tmpObj;
+      while(fileInputStream.available() > 0){
+        tmpObj = objectInputStream.readObject();
+        rowsOnDisk.add((Row) tmpObj);
+      }
+      objectInputStream.close();
+      fileInputStream.close();
+      return rowsOnDisk;
+    }catch (IOException e){
+      throw new FileIOException(this.getTablePath() + " when deserialize");
+    }catch (ClassNotFoundException e){
+      throw new FileIOException(this.getTablePath() + " when deserialize(serialized object cannot be found)");
+    }
+  }
+
+  /*
+   模糊检查点，写页时不挡写者：先逐个写脏叶子，再取覆盖的日志位置，最后锁住根写剩下的脏页（只写检查点之后修改过的页）。
+   索引在表之后取位置、写页，包含表的检查点里的所有修改；重放时先只重放表，过了索引的位置再一起重放，
+   这样重放索引时表里的旧行正是这条记录之前的行
+   */
+  public void persist(){
+    if (!this.loaded)
+      return; // 换出前已写过检查点
+    long changes = this.changes.get();
+    if (changes == this.persistedChanges)
+      return; // 没有写入，检查点的位置不变，日志里也没有这张表更新的记录
+    this.index.flush();
+    this.lsn = this.coveredLsn();
+    this.index.checkpoint(this.lsn);
+    if (!this.secondaryIndexes.isEmpty()) {
+      long lsn = this.coveredLsn();
+      for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+        secondaryIndex.persist(lsn);
+    }
+    this.persistedChanges = changes;
+  }
+
+  // 短暂挡住写者，此时日志里这张表的记录都已写进树
+  private long coveredLsn() {
+    this.checkpointLatch.writeLock().lock();
+    try {
+      return this.redoLog == null ? this.lsn : Math.max(this.lsn, this.redoLog.getLog().getLsn());
+    } finally {
+      this.checkpointLatch.writeLock().unlock();
+    }
+  }
+
+  public synchronized void close(){
+    if (!this.loaded)
+      return;
+    this.loaded = false;
+    this.release();
+  }
+
+  private void release() {
+    TransactionManager.getInstance().unregister(this.versions);
+    this.index.close();
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+      secondaryIndex.close();
+  }
+
+  public void dropTable(){ // remove table data file
+    this.load();
+    this.loaded = false;
+    TransactionManager.getInstance().unregister(this.versions);
+    this.index.drop();
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values())
+      secondaryIndex.drop();
+    this.secondaryIndexes.clear();
+    File indexMetaFile = new File(this.getTableIndexMetaPath());
+    if (indexMetaFile.exists() && !indexMetaFile.delete())
+      throw new FileIOException(this.getTableIndexMetaPath() + " when dropTable");
+    File tableFolder = new File(this.getTableFolderPath());
+    if (!tableFolder.exists() ? !tableFolder.mkdirs() : !tableFolder.isDirectory())
+      throw new FileIOException(this.getTableFolderPath() + " when dropTable");
+  }
+
+
+  // Operations involving logic expressions.
+
+
+
+
+  // Operations
+
+  private class TableIterator implements Iterator<Row> {
+    private SortedCursor<Cell, Row> cursor;
+    private boolean hasNext;
+
+    TableIterator(SortedCursor<Cell, Row> cursor) {
+      this.cursor = cursor;
+      this.hasNext = cursor.next();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    public Row next() {
+      if (!hasNext)
+        throw new NoSuchElementException();
+      Row row = cursor.value();
+      hasNext = cursor.next();
+      return row;
+    }
+  }
+
+  // 快照读：树上的最新版本与版本链按主键归并，每个主键取快照可见的版本
+  private class SnapshotIterator implements Iterator<Row> {
+    private SortedCursor<Cell, Row> cursor;
+    private NavigableMap<Cell, Row> chains;
+    private Snapshot snapshot;
+    private Cell treeKey; // 游标预读的一项
+    private Row treeRow;
+    private Cell last;
+    private Row next;
+
+    SnapshotIterator(Snapshot snapshot, Cell from, boolean fromInclusive, Cell to, boolean toInclusive) {
+      this(snapshot, index.range(from, fromInclusive, to, toInclusive), versions.range(from, fromInclusive, to, toInclusive));
+    }
+
+    // 树上跳过的行若有版本链，可见的版本由版本链给出，与树上的最新版本无关（见RowVersions.visible）
+    SnapshotIterator(Snapshot snapshot, SortedCursor<Cell, Row> cursor, NavigableMap<Cell, Row> chains) {
+      this.cursor = cursor;
+      this.chains = chains;
+      this.snapshot = snapshot;
+      advanceTree();
+      advance();
+    }
+
+    private void advanceTree() {
+      if (cursor.next()) {
+        treeKey = cursor.key();
+        treeRow = cursor.value();
+      } else {
+        treeKey = null;
+        treeRow = null;
+      }
+    }
+
+    private void advance() {
+      next = null;
+      while (next == null) {
+        // 版本链每次重新定位，写者先登记版本链再改树
+        Map.Entry<Cell, Row> chain = last == null ? chains.firstEntry() : chains.higherEntry(last);
+        Cell chainKey = chain == null ? null : chain.getKey();
+        Row latest = null;
+        if (treeKey != null && (chainKey == null || treeKey.compareTo(chainKey) <= 0)) {
+          last = treeKey;
+          latest = treeRow;
+          advanceTree();
+        } else if (chainKey != null)
+          last = chainKey;
+        else
+          return;
+        next = versions.visible(last, latest, snapshot);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Row next() {
+      if (next == null)
+        throw new NoSuchElementException();
+      Row row = next;
+      advance();
+      return row;
+    }
+  }
+
+  @Override
+  public Iterator<Row> iterator() {
+    return pinned(() -> new TableIterator(this.index.cursor()));
+  }
+
+  // snapshot为null时读最新版本（持有X锁的写者），否则读快照可见的版本，不加锁
+  public Iterator<Row> iterator(Snapshot snapshot) {
+    return range(null, false, null, false, snapshot);
+  }
+
+  // 主键在[from, to]区间内的行，按主键升序；from/to为null表示该侧不设界
+  public Iterator<Row> range(Cell from, boolean fromInclusive, Cell to, boolean toInclusive) {
+    return pinned(() -> new TableIterator(this.index.range(from, fromInclusive, to, toInclusive)));
+  }
+
+  public Iterator<Row> range(Cell from, boolean fromInclusive, Cell to, boolean toInclusive, Snapshot snapshot) {
+    if (snapshot == null)
+      return range(from, fromInclusive, to, toInclusive);
+    return pinned(() -> new SnapshotIterator(snapshot, from, fromInclusive, to, toInclusive));
+  }
+
+  /*
+   第columnIndex列的值可能在[from, to]区间内的行，不需要索引：按主键顺序扫描全表，
+   LSM表的行组按最小最大值跳过不可能有这种值的，返回的行仍由调用处按条件过滤
+   */
+  public Iterator<Row> scan(int columnIndex, Cell from, boolean fromInclusive, Cell to, boolean toInclusive, Snapshot snapshot) {
+    return pinned(() -> {
+      SortedCursor<Cell, Row> cursor = this.index.range(null, false, null, false,
+              RowCodec.overlaps(columnIndex, from, fromInclusive, to, toInclusive));
+      if (snapshot == null)
+        return new TableIterator(cursor);
+      return new SnapshotIterator(snapshot, cursor, this.versions.range(null, false, null, false));
+    });
+  }
+
+  // 第columnIndex列的值在[from, to]区间内的行，该列须为主键或建有索引（见hasIndex）
+  public Iterator<Row> range(int columnIndex, Cell from, boolean fromInclusive, Cell to, boolean toInclusive) {
+    return range(columnIndex, from, fromInclusive, to, toInclusive, null);
+  }
+
+  public Iterator<Row> range(int columnIndex, Cell from, boolean fromInclusive, Cell to, boolean toInclusive, Snapshot snapshot) {
+    if (columnIndex == this.primaryIndex) {
+      if (this.primaryIndexes.length == 1)
+        return range(from, fromInclusive, to, toInclusive, snapshot);
+      // 复合主键按第一列做前缀扫描，开闭沿用原条件（压成long后哨兵可能与真实主键重合）
+      Cell lower = from == null ? null
+              : new Cell(fromInclusive ? CompoundKey.lowerBound(from.value) : CompoundKey.upperBound(from.value));
+      Cell upper = to == null ? null
+              : new Cell(toInclusive ? CompoundKey.upperBound(to.value) : CompoundKey.lowerBound(to.value));
+      return range(lower, fromInclusive, upper, toInclusive, snapshot);
+    }
+    return pinned(() -> secondaryRange(columnIndex, from, fromInclusive, to, toInclusive, snapshot));
+  }
+
+  private Iterator<Row> secondaryRange(int columnIndex, Cell from, boolean fromInclusive, Cell to, boolean toInclusive,
+                                       Snapshot snapshot) {
+    for (SecondaryIndex secondaryIndex : this.secondaryIndexes.values()) {
+      if (secondaryIndex.columnIndex != columnIndex)
+        continue;
+      Iterator<Cell> primaryKeys = secondaryIndex.primaryKeys(from, fromInclusive, to, toInclusive);
+      if (snapshot != null)
+        return snapshotRange(primaryKeys, snapshot);
+      // 读到索引里的主键后、按主键取行前，别的会话可能已删掉这一行（只持有IX锁和行锁），跳过这种主键
+      return new Iterator<Row>() {
+        private Row next;
+
+        @Override
+        public boolean hasNext() {
+          while (next == null && primaryKeys.hasNext()) {
+            try {
+              next = index.get(primaryKeys.next());
+            } catch (KeyNotExistException e) {
+              // 已被删除
+            }
+          }
+          return next != null;
+        }
+
+        @Override
+        public Row next() {
+          if (!hasNext())
+            throw new NoSuchElementException();
+          Row row = next;
+          next = null;
+          return row;
+        }
+      };
+    }
+    throw new IndexNotExistException(this.columns.get(columnIndex).getColumnName());
+  }
+
+  /**
+   二级索引只指向最新版本，快照可见的旧版本可能已不在区间内：
+   先取索引给出的主键，再补上所有带版本链的主键，由调用处按条件过滤
+   */
+  private Iterator<Row> snapshotRange(Iterator<Cell> primaryKeys, Snapshot snapshot) {
+    HashSet<Cell> returned = new HashSet<>();
+    Iterator<Cell> chainKeys = this.versions.range(null, false, null, false).keySet().iterator();
+    return new Iterator<Row>() {
+      private Row next = advance();
+
+      private Row advance() {
+        while (primaryKeys.hasNext()) {
+          Cell key = primaryKeys.next();
+          returned.add(key);
+          Row row = get(key, snapshot);
+          if (row != null)
+            return row;
+        }
+        while (chainKeys.hasNext()) {
+          Cell key = chainKeys.next();
+          if (!returned.add(key))
+            continue;
+          Row row = get(key, snapshot);
+          if (row != null)
+            return row;
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Row next() {
+        if (next == null)
+          throw new NoSuchElementException();
+        Row row = next;
+        next = advance();
+        return row;
+      }
+    };
+  }
+
+  private void checkRowValidInTable(Row row){
+    if(row.getEntries().size()!=this.columns.size())
+      throw new SchemaLengthMismatchException(this.columns.size(), row.getEntries().size(), "when check Row Valid In table");
+    for(int i=0;i<row.getEntries().size();i++) {
+      String entryValueType = row.getEntries().get(i).getValueType();
+      Column column = this.columns.get(i);
+      if(entryValueType.equals(Global.ENTRY_NULL)){
+        if(column.cantBeNull()) throw new NullValueException(column.getColumnName());
+      }
+      else{
+        if (!entryValueType.equals(column.getColumnType().name()))
+          throw new ValueFormatInvalidException("(when check row valid in table)");
+        Comparable entryValue = row.getEntries().get(i).value;
+        if(entryValueType.equals(STRING.name()) && ((String) entryValue).length()>column.getMaxLength())
+          throw new ValueExceedException(column.getColumnName(), ((String) entryValue).length(), column.getMaxLength(), "(when check row valid in table)");
+      }
+    }
+  }
+
+  private Boolean containsRow(Row row){
+    return this.index.contains(getPrimaryKey(row));
+  }
+
+  public String getTableFolderPath(){
+    return Global.DBMS_DIR + File.separator + "data" + File.separator + databaseName + File.separator + "tables";
+  }
+  public String getTablePath(){
+    return this.getTableFolderPath() + File.separator + this.tableName;
+  }
+  public String getTableMetaPath(){
+    return this.getTablePath() + Global.META_SUFFIX;
+  }
+  public String getTableIndexMetaPath(){
+    return this.getTablePath() + Global.INDEX_META_SUFFIX;
+  }
+  public String getIndexPath(String indexName){
+    return this.getTablePath() + ".index." + indexName;
+  }
+
+  public String toString(){
+    StringBuilder s = new StringBuilder("Table " + this.tableName + ": ");
+    for (Column column : this.columns) s.append("\t(").append(column.toString()).append(')');
+    return s.toString() + "\n";
+  }
+
+  public int searchColumn(String columnName) {
+    for (int i = 0; i < columns.size(); i++) {
+      Column x = columns.get(i);
+      if(x.getColumnName().equals(columnName)){
+        return i;
+      }
+    }
+    return -1;
+  }
+}
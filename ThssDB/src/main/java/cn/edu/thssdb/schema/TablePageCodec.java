@@ -0,0 +1,113 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.ValueFormatInvalidException;
+import cn.edu.thssdb.index.BPlusTreeCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Encodes primary key cells and rows of a table into B+ tree pages.
+ * Every cell is written as a type tag followed by its value.
+ * Tables now use the schema-driven {@link RowCodec}, this format remains for secondary index keys
+ * and for reading table files written before it (payload format 0).
+ */
+public class TablePageCodec implements BPlusTreeCodec<Cell, Row> {
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte FLOAT = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte STRING = 5;
+  private static final byte COMPOUND = 6;
+
+  @Override
+  public void writeKey(DataOutput out, Cell key) throws IOException {
+    writeCell(out, key);
+  }
+
+  @Override
+  public Cell readKey(DataInput in) throws IOException {
+    return readCell(in);
+  }
+
+  @Override
+  public void writeValue(DataOutput out, Row row) throws IOException {
+    ArrayList<Cell> entries = row.getEntries();
+    out.writeShort(entries.size());
+    for (Cell cell : entries)
+      writeCell(out, cell);
+  }
+
+  @Override
+  public Row readValue(DataInput in) throws IOException {
+    int size = in.readShort();
+    ArrayList<Cell> entries = new ArrayList<>(size);
+    for (int i = 0; i < size; i++)
+      entries.add(readCell(in));
+    return new Row(entries);
+  }
+
+  static void writeCell(DataOutput out, Cell cell) throws IOException {
+    writeComparable(out, cell.value);
+  }
+
+  static Cell readCell(DataInput in) throws IOException {
+    return new Cell(readComparable(in));
+  }
+
+  private static void writeComparable(DataOutput out, Comparable value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Integer) {
+      out.writeByte(INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      out.writeUTF((String) value);
+    } else if (value instanceof CompoundKey) {
+      CompoundKey key = (CompoundKey) value;
+      out.writeByte(COMPOUND);
+      out.writeByte(key.size());
+      for (int i = 0; i < key.size(); i++)
+        writeComparable(out, key.get(i));
+    } else
+      throw new ValueFormatInvalidException("(when encode cell of type " + value.getClass().getSimpleName() + ")");
+  }
+
+  private static Comparable readComparable(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case INT:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case STRING:
+        return in.readUTF();
+      case COMPOUND:
+        Comparable[] values = new Comparable[in.readByte()];
+        for (int i = 0; i < values.length; i++)
+          values[i] = readComparable(in);
+        return new CompoundKey(values);
+      default:
+        throw new ValueFormatInvalidException("(when decode cell with tag " + type + ")");
+    }
+  }
+}
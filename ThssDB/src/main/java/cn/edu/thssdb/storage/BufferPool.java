@@ -0,0 +1,102 @@
+package cn.edu.thssdb.storage;
+
+import cn.edu.thssdb.common.Global;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the pages held in memory by all paged trees, and pages them out (second chance order)
+ * once the total exceeds {@code Global.BUFFER_POOL_SIZE}.
+ */
+public class BufferPool {
+
+  /**
+   * Something that occupies pages in memory and can be written back and dropped.
+   */
+  public interface Frame {
+    int pageWeight();
+
+    /** Clear and return the referenced bit, set on every access since the last call. */
+    boolean testAndClearReferenced();
+
+    /** Write back if dirty and drop the in-memory copy, without calling back into the pool. Returns false if the frame is busy. */
+    boolean tryEvict();
+  }
+
+  private final LinkedHashMap<Frame, Integer> frames;
+  // read without the monitor by the fast path of evictIfNeeded
+  private volatile long usedPages;
+
+  public static BufferPool getInstance() {
+    return BufferPoolHolder.INSTANCE;
+  }
+
+  public BufferPool() {
+    this.frames = new LinkedHashMap<>();
+    this.usedPages = 0;
+  }
+
+  public synchronized void register(Frame frame) {
+    int weight = frame.pageWeight();
+    Integer old = frames.put(frame, weight);
+    usedPages += weight - (old == null ? 0 : old);
+  }
+
+  public synchronized void unregister(Frame frame) {
+    Integer weight = frames.remove(frame);
+    if (weight != null)
+      usedPages -= weight;
+  }
+
+  public long getUsedPages() {
+    return usedPages;
+  }
+
+  public long getCapacity() {
+    return Math.max(1, Global.BUFFER_POOL_SIZE / Global.PAGE_SIZE);
+  }
+
+  /**
+   * Called at operation boundaries. Frames latched by some thread are skipped.
+   */
+  public void evictIfNeeded() {
+    if (usedPages > getCapacity())
+      evict();
+  }
+
+  private synchronized void evict() {
+    long capacity = getCapacity();
+    if (usedPages <= capacity) return;
+    // two passes: the first one only clears referenced bits of recently used frames
+    int budget = 2 * frames.size();
+    Iterator<Map.Entry<Frame, Integer>> iterator = frames.entrySet().iterator();
+    LinkedHashMap<Frame, Integer> referenced = new LinkedHashMap<>();
+    while (usedPages > capacity && budget-- > 0) {
+      if (!iterator.hasNext()) {
+        frames.putAll(referenced);
+        referenced.clear();
+        iterator = frames.entrySet().iterator();
+        if (!iterator.hasNext()) break;
+      }
+      Map.Entry<Frame, Integer> entry = iterator.next();
+      Frame frame = entry.getKey();
+      if (frame.testAndClearReferenced()) {
+        iterator.remove();
+        referenced.put(frame, entry.getValue());
+      } else if (frame.tryEvict()) {
+        iterator.remove();
+        usedPages -= entry.getValue();
+      }
+    }
+    frames.putAll(referenced);
+  }
+
+  private static class BufferPoolHolder {
+    private static final BufferPool INSTANCE = new BufferPool();
+    private BufferPoolHolder() {
+
+    }
+  }
+}
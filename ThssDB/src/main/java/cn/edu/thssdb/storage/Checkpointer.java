@@ -0,0 +1,79 @@
+package cn.edu.thssdb.storage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the checkpoints of one {@link WriteAheadLog} on a background thread, so that no committer waits for one:
+ * every {@code interval} milliseconds, and as soon as {@code logBytes} bytes have been logged since the last one began.
+ * Either trigger is off when its setting is 0. A checkpoint that fails is tried again at the next occasion.
+ */
+public class Checkpointer {
+  private final WriteAheadLog log;
+  private final Runnable checkpoint;
+  private final long logBytes;
+  private final ScheduledExecutorService executor;
+  private final AtomicBoolean pending = new AtomicBoolean(); // a checkpoint asked for by logged() is queued
+  private volatile long begin;  // the log offset when the last checkpoint began
+  private volatile long count;
+
+  public Checkpointer(String name, WriteAheadLog log, Runnable checkpoint, long interval, long logBytes) {
+    this.log = log;
+    this.checkpoint = checkpoint;
+    this.logBytes = logBytes;
+    this.begin = log.getLsn();
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "checkpoint " + name);
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (interval > 0)
+      this.executor.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Called after a commit. Only queues a checkpoint once enough log has piled up, the commit does not wait for it.
+   */
+  public void logged() {
+    if (logBytes <= 0 || log.getLsn() - begin < logBytes || !pending.compareAndSet(false, true))
+      return;
+    try {
+      executor.execute(this::run);
+    } catch (RejectedExecutionException e) {
+      // closed
+    }
+  }
+
+  /**
+   * The number of checkpoints completed so far.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Stop the thread, after the checkpoint it is running if any.
+   */
+  public void close() {
+    executor.shutdown(); // not interrupting it: an interrupt closes the file channels it is writing
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    pending.set(false);
+    begin = log.getLsn();
+    try {
+      checkpoint.run();
+      count++;
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,427 @@
+package cn.edu.thssdb.storage;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.FileIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * A file of fixed-size pages.
+ * Pages 0 and 1 hold two alternating headers, a commit writes the header slot of the next epoch,
+ * so the file always has one complete checkpoint to fall back on.
+ * Payloads longer than one page are stored as a chain, each page starts with the id of the next one.
+ * Pages referenced by the last checkpoint are never overwritten: rewriting them allocates a new chain,
+ * and the old pages only become reusable after the next commit.
+ * Reads, writes and commits are synchronized, leaves of one tree are loaded and evicted from several threads.
+ * The header also records the format of the payloads, chosen by the owner when the file is created,
+ * so an owner that changes its encoding can tell the files it has to convert, and the log sequence number
+ * the owner had applied when the checkpoint started, so that recovery replays only the log after it.
+ * A mapped file serves its reads from read-only memory mappings of the file, in regions of {@code Global.MAP_REGION_SIZE}
+ * bytes mapped on first use, instead of a read system call per page; writes still go through the channel,
+ * and a page beyond the mapped part of a region remaps it. The mappings are released by the garbage collector.
+ */
+public class PageFile {
+  private static final int MAGIC = 0x54484442; // "THDB"
+  private static final int VERSION = 3;
+  private static final int HEADER_SLOTS = 2;
+  private static final int HEADER_LENGTH = 4 + 4 + 8 + 4 + 4 + 8 + 4 + 4 + 8;
+  private static final int HEADER_LENGTH_V2 = 4 + 4 + 8 + 4 + 4 + 8 + 4 + 4; // no log sequence number, it is 0
+  private static final int HEADER_LENGTH_V1 = 4 + 4 + 8 + 4 + 4 + 8 + 4; // no payload format either
+  private static final int NO_PAGE = -1;
+
+  private final String path;
+  private final int pageSize;
+  private RandomAccessFile file;
+  private FileChannel channel;
+  private final boolean mapped;
+  private final int regionPages;
+  private final ArrayList<MappedByteBuffer> regions; // regions of the file mapped so far, null if not mapped yet
+
+  private long epoch;
+  private int pageCount;
+  private int rootPage;
+  private long entryCount;
+  private int format;
+  private long lsn;
+  private long nextLsn;
+  private int[] freeListChain;
+
+  private final BitSet committed;   // pages reachable from the last durable header
+  private final BitSet free;        // pages that can be handed out right now
+  private final BitSet pendingFree; // committed pages released in this epoch
+
+  public PageFile(String path) {
+    this(path, 0);
+  }
+
+  /**
+   * @param format the payload format written into the header if the file is new, an existing file keeps its own
+   */
+  public PageFile(String path, int format) {
+    this(path, format, false);
+  }
+
+  /**
+   * @param mapped whether reads are served from memory mappings of the file
+   */
+  public PageFile(String path, int format, boolean mapped) {
+    this.path = path;
+    this.pageSize = Global.PAGE_SIZE;
+    this.mapped = mapped;
+    this.regionPages = Math.max(1, Global.MAP_REGION_SIZE / pageSize);
+    this.regions = new ArrayList<>();
+    this.committed = new BitSet();
+    this.free = new BitSet();
+    this.pendingFree = new BitSet();
+    try {
+      this.file = new RandomAccessFile(path, "rw");
+      this.channel = file.getChannel();
+      if (channel.size() == 0) {
+        epoch = -1;
+        pageCount = HEADER_SLOTS;
+        this.format = format;
+        commit(NO_PAGE, 0);
+      } else
+        open();
+    } catch (IOException e) {
+      throw new FileIOException(path + " when open page file");
+    }
+  }
+
+  public static boolean isPageFile(File file) {
+    if (!file.isFile()) return false;
+    if (file.length() == 0) return true;
+    try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+      for (int slot = 0; slot < HEADER_SLOTS; slot++) {
+        if (f.length() < (long) slot * Global.PAGE_SIZE + 4) break;
+        f.seek((long) slot * Global.PAGE_SIZE);
+        if (f.readInt() == MAGIC) return true;
+      }
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  public int getRootPage() {
+    return rootPage;
+  }
+
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  public int getFormat() {
+    return format;
+  }
+
+  /**
+   * The log sequence number recorded by the last commit.
+   */
+  public synchronized long getLsn() {
+    return lsn;
+  }
+
+  /**
+   * Set the log sequence number the next commit records.
+   */
+  public synchronized void setLsn(long lsn) {
+    this.nextLsn = lsn;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public boolean isMapped() {
+    return mapped;
+  }
+
+  /**
+   * Read a payload chain.
+   * @return the pages of the chain and the payload
+   */
+  public synchronized Pair<int[], byte[]> read(int firstPage) {
+    try {
+      ArrayList<Integer> pages = new ArrayList<>();
+      ByteBuffer page = ByteBuffer.allocate(pageSize);
+      readPage(firstPage, page);
+      pages.add(firstPage);
+      int next = page.getInt();
+      int length = page.getInt();
+      byte[] data = new byte[length];
+      int offset = Math.min(length, page.remaining());
+      page.get(data, 0, offset);
+      while (offset < length) {
+        if (next == NO_PAGE)
+          throw new FileIOException(path + " (broken page chain at " + firstPage + ")");
+        readPage(next, page);
+        pages.add(next);
+        next = page.getInt();
+        int chunk = Math.min(length - offset, page.remaining());
+        page.get(data, offset, chunk);
+        offset += chunk;
+      }
+      int[] chain = new int[pages.size()];
+      for (int i = 0; i < chain.length; i++)
+        chain[i] = pages.get(i);
+      return new Pair<>(chain, data);
+    } catch (IOException e) {
+      throw new FileIOException(path + " when read page " + firstPage);
+    }
+  }
+
+  /**
+   * Write a payload, reusing the old chain in place when none of its pages belong to the last checkpoint.
+   * @return the pages now holding the payload, the first one may differ from {@code oldChain[0]}
+   */
+  public synchronized int[] write(int[] oldChain, byte[] data) {
+    int needed = pagesFor(data.length);
+    int[] chain = new int[needed];
+    boolean inPlace = oldChain != null && !isCommitted(oldChain);
+    if (inPlace) {
+      for (int i = 0; i < needed; i++)
+        chain[i] = i < oldChain.length ? oldChain[i] : allocate();
+      for (int i = needed; i < oldChain.length; i++)
+        release(oldChain[i]);
+    } else {
+      for (int i = 0; i < needed; i++)
+        chain[i] = allocate();
+      if (oldChain != null)
+        release(oldChain);
+    }
+    writeChain(chain, data);
+    return chain;
+  }
+
+  public synchronized void release(int[] chain) {
+    if (chain == null) return;
+    for (int page : chain)
+      release(page);
+  }
+
+  /**
+   * Make everything written so far durable and switch to it.
+   */
+  public synchronized void commit(int rootPage, long entryCount) {
+    try {
+      // after this commit the old free list chain and the pages released in this epoch are free as well
+      BitSet nextFree = (BitSet) free.clone();
+      nextFree.or(pendingFree);
+      if (freeListChain != null)
+        for (int page : freeListChain)
+          nextFree.set(page);
+      int[] nextFreeListChain = null;
+      if (!nextFree.isEmpty()) {
+        // the list itself goes to pages that are already free under the old header, or to new ones
+        nextFreeListChain = new int[pagesFor(4 + 4 * nextFree.cardinality())];
+        int candidate = free.nextSetBit(0);
+        for (int i = 0; i < nextFreeListChain.length; i++) {
+          if (candidate >= 0) {
+            nextFreeListChain[i] = candidate;
+            nextFree.clear(candidate);
+            candidate = free.nextSetBit(candidate + 1);
+          } else
+            nextFreeListChain[i] = pageCount++;
+        }
+        writeChain(nextFreeListChain, encodeFreeList(nextFree));
+      }
+      channel.force(false);
+
+      long nextEpoch = epoch + 1;
+      ByteBuffer header = ByteBuffer.allocate(pageSize);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putLong(nextEpoch);
+      header.putInt(pageCount);
+      header.putInt(rootPage);
+      header.putLong(entryCount);
+      header.putInt(nextFreeListChain == null ? NO_PAGE : nextFreeListChain[0]);
+      header.putInt(format);
+      header.putLong(nextLsn);
+      CRC32 crc = new CRC32();
+      crc.update(header.array(), 0, HEADER_LENGTH);
+      header.putInt((int) crc.getValue());
+      writePage((int) (nextEpoch % HEADER_SLOTS), header);
+      channel.force(false);
+
+      this.epoch = nextEpoch;
+      this.rootPage = rootPage;
+      this.entryCount = entryCount;
+      this.lsn = nextLsn;
+      this.freeListChain = nextFreeListChain;
+      free.clear();
+      free.or(nextFree);
+      pendingFree.clear();
+      committed.clear();
+      committed.set(HEADER_SLOTS, pageCount);
+      committed.andNot(free);
+    } catch (IOException e) {
+      throw new FileIOException(path + " when commit page file");
+    }
+  }
+
+  public synchronized void close() {
+    regions.clear();
+    try {
+      channel.close();
+      file.close();
+    } catch (IOException e) {
+      throw new FileIOException(path + " when close page file");
+    }
+  }
+
+  private void open() throws IOException {
+    ByteBuffer best = null;
+    long bestEpoch = -1;
+    for (int slot = 0; slot < HEADER_SLOTS; slot++) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + 4);
+      if (channel.read(header, (long) slot * pageSize) < HEADER_LENGTH + 4) continue;
+      header.flip();
+      int length = headerLength(header.getInt(4));
+      CRC32 crc = new CRC32();
+      crc.update(header.array(), 0, length);
+      if (header.getInt(0) != MAGIC || header.getInt(length) != (int) crc.getValue()) continue;
+      long slotEpoch = header.getLong(8);
+      if (slotEpoch > bestEpoch) {
+        bestEpoch = slotEpoch;
+        best = header;
+      }
+    }
+    if (best == null)
+      throw new FileIOException(path + " (no valid page file header)");
+    best.position(8);
+    epoch = best.getLong();
+    pageCount = best.getInt();
+    rootPage = best.getInt();
+    entryCount = best.getLong();
+    int freeListPage = best.getInt();
+    int version = best.getInt(4);
+    format = version >= 2 ? best.getInt() : 0;
+    lsn = version >= 3 ? best.getLong() : 0;
+    nextLsn = lsn;
+    if (freeListPage != NO_PAGE) {
+      Pair<int[], byte[]> chain = read(freeListPage);
+      freeListChain = chain.left;
+      ByteBuffer buffer = ByteBuffer.wrap(chain.right);
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++)
+        free.set(buffer.getInt());
+    }
+    committed.set(HEADER_SLOTS, pageCount);
+    committed.andNot(free);
+  }
+
+  private static int headerLength(int version) {
+    return version == 1 ? HEADER_LENGTH_V1 : version == 2 ? HEADER_LENGTH_V2 : HEADER_LENGTH;
+  }
+
+  private boolean isCommitted(int[] chain) {
+    for (int page : chain)
+      if (committed.get(page)) return true;
+    return false;
+  }
+
+  private int allocate() {
+    int page = free.nextSetBit(0);
+    if (page < 0)
+      return pageCount++;
+    free.clear(page);
+    return page;
+  }
+
+  private void release(int page) {
+    if (committed.get(page))
+      pendingFree.set(page);
+    else
+      free.set(page);
+  }
+
+  private int pagesFor(int length) {
+    int capacity = pageSize - 4;
+    return Math.max(1, (length + 4 + capacity - 1) / capacity);
+  }
+
+  private void writeChain(int[] chain, byte[] data) {
+    try {
+      ByteBuffer page = ByteBuffer.allocate(pageSize);
+      int offset = 0;
+      for (int i = 0; i < chain.length; i++) {
+        page.clear();
+        page.putInt(i + 1 < chain.length ? chain[i + 1] : NO_PAGE);
+        if (i == 0)
+          page.putInt(data.length);
+        int chunk = Math.min(data.length - offset, page.remaining());
+        page.put(data, offset, chunk);
+        offset += chunk;
+        writePage(chain[i], page);
+      }
+    } catch (IOException e) {
+      throw new FileIOException(path + " when write page " + chain[0]);
+    }
+  }
+
+  private void writePage(int pageId, ByteBuffer page) throws IOException {
+    page.clear();
+    while (page.hasRemaining())
+      channel.write(page, (long) pageId * pageSize + page.position());
+  }
+
+  private void readPage(int pageId, ByteBuffer page) throws IOException {
+    page.clear();
+    if (mapped) {
+      int offset = pageId % regionPages * pageSize;
+      ByteBuffer region = mapRegion(pageId / regionPages, offset + pageSize);
+      if (region != null) {
+        ByteBuffer source = region.duplicate();
+        source.limit(offset + pageSize).position(offset);
+        page.put(source);
+        page.flip();
+        return;
+      }
+    }
+    while (page.hasRemaining())
+      if (channel.read(page, (long) pageId * pageSize + page.position()) < 0)
+        throw new FileIOException(path + " (page " + pageId + " out of range)");
+    page.flip();
+  }
+
+  // the mapping of a region that covers its first {@code length} bytes, null if the file is shorter
+  private MappedByteBuffer mapRegion(int index, int length) throws IOException {
+    while (regions.size() <= index)
+      regions.add(null);
+    MappedByteBuffer region = regions.get(index);
+    if (region != null && region.capacity() >= length)
+      return region;
+    long regionBytes = (long) regionPages * pageSize;
+    long start = index * regionBytes;
+    // only what the file already holds: mapping more would grow the file
+    long size = Math.min(regionBytes, channel.size() - start);
+    if (size < length)
+      return null;
+    region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    regions.set(index, region);
+    return region;
+  }
+
+  private byte[] encodeFreeList(BitSet pages) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * pages.cardinality());
+    buffer.putInt(pages.cardinality());
+    for (int page = pages.nextSetBit(0); page >= 0; page = pages.nextSetBit(page + 1))
+      buffer.putInt(page);
+    return buffer.array();
+  }
+}
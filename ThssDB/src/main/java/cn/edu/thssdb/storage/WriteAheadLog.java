@@ -0,0 +1,545 @@
+package cn.edu.thssdb.storage;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.FileIOException;
+
+import cn.edu.thssdb.common.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log file kept open for the life of a database.
+ * Records are appended to an in-memory buffer and reach the file when a commit asks for them. Offsets, the log
+ * sequence numbers, count every byte ever appended: the file header holds the offset of its first record,
+ * so truncating the file does not reset them, not even across restarts. An offset (the end of a record)
+ * is durable once a {@code force()} covering it has returned.
+ * Every record is framed by its length, a CRC and its own end offset; reading stops at the first record that
+ * does not check out, which is how a write torn by a crash, or a record left over from before a truncation, ends the log.
+ * The log is a chain of segments: {@link #roll()} seals the file at {@code path} as {@code path.<offset of its first record>}
+ * and goes on in a new one, and {@link #truncate(long)} deletes the sealed segments a checkpoint no longer needs.
+ * How a commit waits depends on the {@link CommitPolicy}: under {@code GROUP} a background thread writes
+ * and forces everything appended so far on behalf of all committers waiting at that moment, so concurrent
+ * commits share one {@code force()}; appending goes on while the thread is forcing.
+ */
+public class WriteAheadLog {
+
+  public enum CommitPolicy {
+    /** Every commit writes and forces the log itself. */
+    SYNC,
+    /** Commits wait for the group commit thread, which waits the group window and forces once for all of them. */
+    GROUP,
+    /** Commits return at once, the group commit thread forces every group window; a crash can lose the last commits. */
+    ASYNC
+  }
+
+  private static final int MAGIC = 0x544C4F47; // "TLOG"
+  private static final int VERSION = 1;
+  private static final int HEADER_LENGTH = 4 + 4 + 8;
+  private static final int FRAME_LENGTH = 4 + 4 + 8; // length, CRC of the rest, end offset
+
+  private final String path;
+  private FileChannel channel;
+  private final CommitPolicy policy;
+  private final long groupWindow; // microseconds
+  private final Object flushLock = new Object(); // one writer of the channel at a time
+
+  private ByteBuffer buffer;   // appended but not written yet
+  private ByteBuffer spare;
+  private long base;           // offset of the first record in the file at path
+  private final TreeMap<Long, File> sealed = new TreeMap<>(); // older segments by the offset of their first record
+  private long appended;       // end offset of the last record appended
+  private long durable;        // everything before it has been forced
+  private long requested;      // the largest offset a committer waits for
+  private long syncCount;
+  private boolean closed;
+  private RuntimeException failure; // of the group commit thread, handed to the committers
+  private final Thread flusher;
+
+  public WriteAheadLog(String path) {
+    this(path, CommitPolicy.valueOf(Global.WAL_COMMIT_POLICY.toUpperCase()), Global.WAL_GROUP_WINDOW);
+  }
+
+  public WriteAheadLog(String path, CommitPolicy policy, long groupWindow) {
+    this.path = path;
+    this.policy = policy;
+    this.groupWindow = groupWindow;
+    this.buffer = ByteBuffer.allocate(Global.PAGE_SIZE);
+    this.spare = ByteBuffer.allocate(Global.PAGE_SIZE);
+    try {
+      File file = new File(path);
+      File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+      String prefix = file.getName() + ".";
+      if (files != null)
+        for (File segment : files)
+          if (segment.getName().startsWith(prefix) && segment.getName().substring(prefix.length()).matches("\\d+"))
+            sealed.put(Long.parseLong(segment.getName().substring(prefix.length())), segment);
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      if (channel.size() < HEADER_LENGTH) {
+        // a new log, or a crash right after sealing the last segment
+        writeHeader(sealed.isEmpty() ? 0 : end(sealed.lastEntry().getValue()));
+        channel.truncate(HEADER_LENGTH);
+        channel.force(true);
+      }
+      this.base = readBase(channel, path);
+      // drop whatever follows the last complete record
+      RecordIterator records = new RecordIterator(channel, base, path);
+      while (records.hasNext())
+        records.next();
+      if (records.position < channel.size()) {
+        channel.truncate(records.position);
+        channel.force(true);
+      }
+      this.appended = base + records.position - HEADER_LENGTH;
+      channel.position(records.position);
+    } catch (IOException e) {
+      throw new FileIOException(path + " when open log");
+    }
+    this.durable = appended;
+    this.requested = appended;
+    if (policy == CommitPolicy.SYNC) {
+      this.flusher = null;
+    } else {
+      this.flusher = new Thread(this::groupCommit, "group-commit " + path);
+      this.flusher.setDaemon(true);
+      this.flusher.start();
+    }
+  }
+
+  public CommitPolicy getPolicy() {
+    return policy;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public static boolean isLog(File file) {
+    if (!file.isFile()) return false;
+    if (file.length() == 0) return true;
+    try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+      return f.length() >= 4 && f.readInt() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Append a record. Once {@code Global.WAL_BUFFER_SIZE} bytes wait for the file, the appender writes them itself.
+   * @return the offset right after it, its log sequence number, to be passed to {@link #commit(long)}
+   */
+  public long append(byte[] record) {
+    long offset;
+    boolean full;
+    int length = FRAME_LENGTH + record.length;
+    synchronized (this) {
+      if (closed)
+        throw new FileIOException(path + " (log closed)");
+      if (buffer.remaining() < length) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+      }
+      appended += length;
+      offset = appended;
+      CRC32 crc = new CRC32();
+      crc.update(longBytes(offset));
+      crc.update(record);
+      buffer.putInt(record.length);
+      buffer.putInt((int) crc.getValue());
+      buffer.putLong(offset);
+      buffer.put(record);
+      full = buffer.position() >= Global.WAL_BUFFER_SIZE;
+    }
+    if (full)
+      flush(false);
+    return offset;
+  }
+
+  /**
+   * Return once the log up to {@code offset} is durable, or at once under {@code ASYNC}.
+   */
+  public void commit(long offset) {
+    switch (policy) {
+      case SYNC:
+        flush(true);
+        break;
+      case GROUP:
+        synchronized (this) {
+          if (offset > requested) {
+            requested = offset;
+            notifyAll();
+          }
+          boolean interrupted = false;
+          while (durable < offset && !closed && failure == null) {
+            try {
+              wait();
+            } catch (InterruptedException e) {
+              interrupted = true;
+            }
+          }
+          if (interrupted)
+            Thread.currentThread().interrupt();
+          if (durable < offset && failure != null)
+            throw failure;
+          if (durable < offset)
+            throw new FileIOException(path + " (log closed before commit)");
+        }
+        break;
+      case ASYNC:
+        break;
+    }
+  }
+
+  /**
+   * Bytes of records in all segments, including those not written yet.
+   */
+  public synchronized long size() {
+    return appended - (sealed.isEmpty() ? base : sealed.firstKey());
+  }
+
+  /**
+   * The log sequence number of the last record appended.
+   */
+  public synchronized long getLsn() {
+    return appended;
+  }
+
+  public synchronized long getDurableOffset() {
+    return durable;
+  }
+
+  /**
+   * The number of {@code force()} calls so far.
+   */
+  public synchronized long getSyncCount() {
+    return syncCount;
+  }
+
+  /**
+   * Seal the current segment and go on in a new one, without holding up appends: records appended meanwhile
+   * stay in the buffer and start the new segment. Does nothing if the current segment is empty.
+   * @return the offset the new segment starts at, every record before it is in a sealed segment
+   */
+  public long roll() {
+    synchronized (flushLock) {
+      flush(false);
+      long end;
+      synchronized (this) {
+        end = durable;
+        if (end == base)
+          return end;
+      }
+      File segment = new File(path + "." + base);
+      try {
+        channel.close();
+        Files.move(Paths.get(path), segment.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        FileChannel next = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel = next;
+        writeHeader(end);
+        channel.position(HEADER_LENGTH);
+        channel.force(true);
+      } catch (IOException e) {
+        throw new FileIOException(path + " when roll log");
+      }
+      synchronized (this) {
+        sealed.put(base, segment);
+        base = end;
+      }
+      return end;
+    }
+  }
+
+  /**
+   * Delete the sealed segments whose records all lie before {@code offset}, once they are no longer needed for recovery.
+   */
+  public void truncate(long offset) {
+    ArrayList<File> unneeded = new ArrayList<>();
+    synchronized (this) {
+      Iterator<Map.Entry<Long, File>> segments = sealed.entrySet().iterator();
+      while (segments.hasNext()) {
+        Map.Entry<Long, File> segment = segments.next();
+        Long next = sealed.higherKey(segment.getKey());
+        if ((next == null ? base : next) > offset)
+          break;
+        unneeded.add(segment.getValue());
+        segments.remove();
+      }
+    }
+    for (File segment : unneeded)
+      if (!segment.delete())
+        throw new FileIOException(segment.getPath() + " when truncate log");
+  }
+
+  /**
+   * Empty the log once none of its records are needed for recovery.
+   * Records appended while truncating stay in the buffer and start the new file.
+   */
+  public void truncate() {
+    synchronized (flushLock) {
+      flush(false);
+      truncate(getDurableOffset());
+      synchronized (this) {
+        try {
+          // the records left behind by a crash in between no longer match their offsets
+          writeHeader(durable);
+          channel.force(true);
+          channel.truncate(HEADER_LENGTH);
+          channel.position(HEADER_LENGTH);
+          channel.force(true);
+        } catch (IOException e) {
+          throw new FileIOException(path + " when truncate log");
+        }
+        base = durable;
+      }
+    }
+  }
+
+  public void close() {
+    flush(false);
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    try {
+      if (flusher != null)
+        flusher.join();
+      channel.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new FileIOException(path + " when close log");
+    }
+  }
+
+  /**
+   * The records written to the segments so far, with their log sequence numbers, oldest first.
+   */
+  public Iterator<Pair<Long, byte[]>> iterator() {
+    ArrayList<File> segments;
+    FileChannel current;
+    long currentBase;
+    synchronized (this) {
+      segments = new ArrayList<>(sealed.values());
+      current = channel;
+      currentBase = base;
+    }
+    return new Iterator<Pair<Long, byte[]>>() {
+      private final Iterator<File> files = segments.iterator();
+      private FileChannel segment;
+      private RecordIterator records = nextSegment();
+
+      // the sealed segments in order, then the current one
+      private RecordIterator nextSegment() {
+        try {
+          if (segment != null)
+            segment.close();
+          segment = null;
+          if (!files.hasNext())
+            return new RecordIterator(current, currentBase, path);
+          File file = files.next();
+          segment = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+          return new RecordIterator(segment, readBase(segment, file.getPath()), file.getPath());
+        } catch (IOException e) {
+          throw new FileIOException(path + " when read log");
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        while (!records.hasNext() && segment != null)
+          records = nextSegment();
+        return records.hasNext();
+      }
+
+      @Override
+      public Pair<Long, byte[]> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        return records.next();
+      }
+    };
+  }
+
+  private static long readBase(FileChannel channel, String path) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    while (header.hasRemaining())
+      if (channel.read(header, header.position()) < 0)
+        throw new FileIOException(path + " (not a log file)");
+    if (header.getInt(0) != MAGIC)
+      throw new FileIOException(path + " (not a log file)");
+    return header.getLong(8);
+  }
+
+  // the offset after the last record of a sealed segment
+  private static long end(File segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+      RecordIterator records = new RecordIterator(channel, readBase(channel, segment.getPath()), segment.getPath());
+      long end = records.base;
+      while (records.hasNext())
+        end = records.next().left;
+      return end;
+    }
+  }
+
+  private void writeHeader(long base) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+    header.putLong(base);
+    header.flip();
+    while (header.hasRemaining())
+      channel.write(header, header.position());
+  }
+
+  private static byte[] longBytes(long value) {
+    return ByteBuffer.allocate(8).putLong(value).array();
+  }
+
+  private static class RecordIterator implements Iterator<Pair<Long, byte[]>> {
+    private final FileChannel channel;
+    private final long base;
+    private final String path;
+    private final long limit;
+    private long position = HEADER_LENGTH;
+    private Pair<Long, byte[]> next;
+
+    RecordIterator(FileChannel channel, long base, String path) {
+      this.channel = channel;
+      this.base = base;
+      this.path = path;
+      try {
+        this.limit = channel.size();
+      } catch (IOException e) {
+        throw new FileIOException(path + " when read log");
+      }
+      advance();
+    }
+
+    private void advance() {
+      next = null;
+      try {
+        if (limit - position < FRAME_LENGTH)
+          return;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_LENGTH);
+        readFully(frame, position);
+        int length = frame.getInt(0);
+        long offset = frame.getLong(8);
+        if (length < 0 || limit - position - FRAME_LENGTH < length)
+          return;
+        if (offset != base + position + FRAME_LENGTH + length - HEADER_LENGTH)
+          return;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, position + FRAME_LENGTH);
+        CRC32 crc = new CRC32();
+        crc.update(longBytes(offset));
+        crc.update(record.array());
+        if (frame.getInt(4) != (int) crc.getValue())
+          return;
+        position += FRAME_LENGTH + length;
+        next = new Pair<>(offset, record.array());
+      } catch (IOException e) {
+        throw new FileIOException(path + " when read log");
+      }
+    }
+
+    private void readFully(ByteBuffer buffer, long at) throws IOException {
+      while (buffer.hasRemaining())
+        if (channel.read(buffer, at + buffer.position()) < 0)
+          throw new FileIOException(path + " (log ends inside a record)");
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Pair<Long, byte[]> next() {
+      if (next == null)
+        throw new NoSuchElementException();
+      Pair<Long, byte[]> record = next;
+      advance();
+      return record;
+    }
+  }
+
+  // write out the buffer and force it, without holding the monitor so that appends go on meanwhile
+  private void flush(boolean always) {
+    synchronized (flushLock) {
+      ByteBuffer pending;
+      long end;
+      synchronized (this) {
+        if (!always && durable == appended)
+          return;
+        pending = buffer;
+        buffer = spare;
+        buffer.clear();
+        end = appended;
+      }
+      try {
+        pending.flip();
+        while (pending.hasRemaining())
+          channel.write(pending);
+        channel.force(false);
+      } catch (IOException e) {
+        throw new FileIOException(path + " when force log");
+      }
+      synchronized (this) {
+        spare = pending;
+        durable = end;
+        syncCount++;
+        notifyAll();
+      }
+    }
+  }
+
+  private void groupCommit() {
+    while (true) {
+      synchronized (this) {
+        try {
+          if (policy == CommitPolicy.GROUP) {
+            while (requested <= durable && !closed)
+              wait();
+          } else if (!closed)
+            wait(Math.max(1, TimeUnit.MICROSECONDS.toMillis(groupWindow)));
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (closed)
+          return;
+      }
+      try {
+        // commits arriving within the window join this group
+        if (policy == CommitPolicy.GROUP && groupWindow > 0)
+          TimeUnit.MICROSECONDS.sleep(groupWindow);
+        flush(false);
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          failure = e;
+          notifyAll();
+        }
+        return;
+      }
+    }
+  }
+}
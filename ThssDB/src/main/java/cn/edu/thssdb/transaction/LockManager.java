@@ -0,0 +1,429 @@
+package cn.edu.thssdb.transaction;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.LockAbortedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The locks sessions hold on tables and rows until their transaction ends.
+ * Every locked resource has a queue: a request is granted right away if it is compatible with the locks granted
+ * and nobody waits before it, otherwise its thread parks until the requests before it are granted and the locks
+ * in its way released. A session that asks for a stronger mode than it holds (S to X, say) waits at the head
+ * of the queue for the other holders to leave. Locks are re-entrant: asking again for a lock the session holds
+ * returns at once.
+ * A row is locked with {@link #lockRow}, under an intention lock (IS, IX) on its table, so that a table lock
+ * (S, X) waits for the row locks of other sessions and the other way round.
+ * A request that has to wait is checked for a deadlock right away: a session waits for the holders of locks in
+ * its way and for the requests ahead of it in the queue. If that closes a cycle, the youngest session in it
+ * (the one that took its first lock last) is aborted: its request fails, and the session keeps its locks until it
+ * has taken its writes back and calls {@link #unlockAll}.
+ */
+public class LockManager {
+
+  public enum LockMode {
+    IS, IX, S, SIX, X;
+
+    private static final boolean[][] COMPATIBLE = {
+            //          IS     IX     S      SIX    X
+            /* IS  */ {true, true, true, true, false},
+            /* IX  */ {true, true, false, false, false},
+            /* S   */ {true, false, true, false, false},
+            /* SIX */ {true, false, false, false, false},
+            /* X   */ {false, false, false, false, false}};
+
+    boolean compatible(LockMode other) {
+      return COMPATIBLE[ordinal()][other.ordinal()];
+    }
+
+    // holding this mode, a request for other has nothing to wait for
+    boolean covers(LockMode other) {
+      switch (this) {
+        case X:
+          return true;
+        case SIX:
+          return other != X;
+        case S:
+          return other == S || other == IS;
+        case IX:
+          return other == IX || other == IS;
+        default:
+          return other == IS;
+      }
+    }
+
+    // the weakest mode that covers both
+    LockMode join(LockMode other) {
+      if (covers(other))
+        return this;
+      if (other.covers(this))
+        return other;
+      return SIX; // S and IX
+    }
+  }
+
+  // a row of a table, as a lockable resource
+  private static final class RowLock {
+    final Object table;
+    final Object row;
+
+    RowLock(Object table, Object row) {
+      this.table = table;
+      this.row = row;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof RowLock))
+        return false;
+      RowLock other = (RowLock) obj;
+      return table.equals(other.table) && row.equals(other.row);
+    }
+
+    @Override
+    public int hashCode() {
+      return table.hashCode() * 31 + row.hashCode();
+    }
+  }
+
+  private static class Request {
+    final long session;
+    LockMode mode;
+    boolean granted;
+    boolean aborted;
+    Object resource;
+    Condition wakeup;
+
+    Request(long session, LockMode mode) {
+      this.session = session;
+      this.mode = mode;
+    }
+  }
+
+  private static class LockQueue {
+    final ArrayList<Request> granted = new ArrayList<>();
+    final LinkedList<Request> waiting = new LinkedList<>();
+
+    Request find(long session) {
+      for (Request request : granted)
+        if (request.session == session)
+          return request;
+      return null;
+    }
+
+    // compatible with every lock granted to other sessions
+    boolean grantable(Request request) {
+      for (Request other : granted)
+        if (other.session != request.session && !other.mode.compatible(request.mode))
+          return false;
+      return true;
+    }
+  }
+
+  private final ReentrantLock latch;
+  private final HashMap<Object, LockQueue> queues;
+  private final HashMap<Long, LinkedHashSet<Object>> held; // session -> resources it holds a lock on
+  private final HashMap<Long, HashMap<Object, Integer>> rows; // session -> table -> row locks it holds in the table
+  private final HashMap<Long, Request> waiting; // session -> the request it waits on
+  private final HashMap<Long, Long> ages; // session -> when it asked for its first lock, larger is younger
+  private long clock;
+  private long deadlocks;
+
+  public static LockManager getInstance() {
+    return LockManagerHolder.INSTANCE;
+  }
+
+  public LockManager() {
+    this.latch = new ReentrantLock();
+    this.queues = new HashMap<>();
+    this.held = new HashMap<>();
+    this.rows = new HashMap<>();
+    this.waiting = new HashMap<>();
+    this.ages = new HashMap<>();
+  }
+
+  /**
+   * Lock a resource for a session, waiting in line as long as it takes.
+   * @return true if the session held no lock on the resource before
+   * @throws LockAbortedException if the thread is interrupted while waiting, or the session is aborted to break
+   * a deadlock; the session still holds its locks then, it releases them with {@link #unlockAll} after its rollback
+   */
+  public boolean lock(long session, Object resource, LockMode mode) {
+    latch.lock();
+    try {
+      ages.computeIfAbsent(session, key -> ++clock);
+      LockQueue queue = queues.computeIfAbsent(resource, key -> new LockQueue());
+      Request current = queue.find(session);
+      if (current != null && current.mode.covers(mode))
+        return false;
+      Request request = new Request(session, current == null ? mode : current.mode.join(mode));
+      if (current != null) {
+        if (queue.grantable(request)) {
+          current.mode = request.mode;
+          return false;
+        }
+        queue.waiting.addFirst(request);
+      } else if (queue.waiting.isEmpty() && queue.grantable(request)) {
+        grant(queue, resource, request);
+        return true;
+      } else
+        queue.waiting.addLast(request);
+      request.resource = resource;
+      request.wakeup = latch.newCondition();
+      waiting.put(session, request);
+      try {
+        breakDeadlocks(session);
+        while (!request.granted) {
+          if (request.aborted)
+            throw new LockAbortedException("deadlock, the transaction is aborted");
+          request.wakeup.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (!request.granted && !request.aborted) {
+          waiting.remove(session);
+          queue.waiting.remove(request);
+          grantWaiting(queue, resource);
+          forget(session);
+          throw new LockAbortedException("interrupted");
+        }
+        if (request.aborted)
+          throw new LockAbortedException("deadlock, the transaction is aborted");
+      }
+      return current == null;
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  /**
+   * Lock a row of a table in S or X mode: the table in IS or IX mode first, then the row.
+   * Nothing to do if the session's lock on the table covers the row already. Once the session holds more than
+   * {@code Global.LOCK_ESCALATION_THRESHOLD} row locks in the table, it takes the table lock instead
+   * (X if it has written to the table, S otherwise) and gives its row locks in the table back.
+   * @throws LockAbortedException if the thread is interrupted while waiting
+   */
+  public void lockRow(long session, Object table, Object row, LockMode mode) {
+    latch.lock();
+    try {
+      LockMode tableMode = heldMode(session, table);
+      if (tableMode != null && tableMode.covers(mode))
+        return;
+      lock(session, table, mode == LockMode.X ? LockMode.IX : LockMode.IS);
+      if (!lock(session, new RowLock(table, row), mode))
+        return;
+      HashMap<Object, Integer> counts = rows.computeIfAbsent(session, key -> new HashMap<>());
+      int count = counts.merge(table, 1, Integer::sum);
+      if (count > Global.LOCK_ESCALATION_THRESHOLD)
+        escalate(session, table);
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  private void escalate(long session, Object table) {
+    lock(session, table, heldMode(session, table) == LockMode.IS ? LockMode.S : LockMode.X);
+    Iterator<Object> iterator = held.get(session).iterator();
+    while (iterator.hasNext()) {
+      Object resource = iterator.next();
+      if (resource instanceof RowLock && ((RowLock) resource).table.equals(table)) {
+        iterator.remove();
+        release(session, resource);
+      }
+    }
+  }
+
+  public void unlock(long session, Object resource) {
+    latch.lock();
+    try {
+      LinkedHashSet<Object> resources = held.get(session);
+      if (resources == null || !resources.remove(resource))
+        return;
+      if (resources.isEmpty()) {
+        held.remove(session);
+        forget(session);
+      }
+      release(session, resource);
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  /**
+   * Release every lock of a session, when its transaction ends.
+   */
+  public void unlockAll(long session) {
+    latch.lock();
+    try {
+      releaseAll(session);
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  public long getDeadlocks() {
+    latch.lock();
+    try {
+      return deadlocks;
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  public boolean isLocked(Object resource) {
+    latch.lock();
+    try {
+      LockQueue queue = queues.get(resource);
+      return queue != null && !queue.granted.isEmpty();
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  public LockMode heldMode(long session, Object resource) {
+    latch.lock();
+    try {
+      LockQueue queue = queues.get(resource);
+      Request request = queue == null ? null : queue.find(session);
+      return request == null ? null : request.mode;
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  int rowLocks(long session, Object table) {
+    latch.lock();
+    try {
+      HashMap<Object, Integer> counts = rows.get(session);
+      return counts == null ? 0 : counts.getOrDefault(table, 0);
+    } finally {
+      latch.unlock();
+    }
+  }
+
+  private void releaseAll(long session) {
+    LinkedHashSet<Object> resources = held.remove(session);
+    if (resources != null)
+      for (Object resource : resources)
+        release(session, resource);
+    forget(session);
+  }
+
+  // a session without locks or a request starts afresh, its next lock makes it the youngest
+  private void forget(long session) {
+    if (!held.containsKey(session) && !waiting.containsKey(session))
+      ages.remove(session);
+  }
+
+  // abort the youngest session of each cycle through this one, which has just started to wait
+  private void breakDeadlocks(long session) {
+    ArrayList<Long> cycle;
+    while ((cycle = cycle(session)) != null) {
+      long victim = cycle.get(0);
+      for (long other : cycle)
+        if (ages.get(other) > ages.get(victim))
+          victim = other;
+      deadlocks++;
+      System.out.println(String.format("! deadlock among sessions %s, aborted session %d (%d deadlocks so far)",
+              cycle, victim, deadlocks));
+      abort(victim);
+      if (victim == session)
+        return;
+    }
+  }
+
+  // fail the request a session waits on, its locks stay until its rollback is done
+  private void abort(long session) {
+    Request request = waiting.remove(session);
+    LockQueue queue = queues.get(request.resource);
+    queue.waiting.remove(request);
+    request.aborted = true;
+    request.wakeup.signal();
+    grantWaiting(queue, request.resource);
+  }
+
+  // the sessions a waiting request waits for: holders of locks in its way, and the requests ahead of it
+  private ArrayList<Long> blockers(Request request) {
+    LockQueue queue = queues.get(request.resource);
+    ArrayList<Long> blockers = new ArrayList<>();
+    for (Request other : queue.granted)
+      if (other.session != request.session && !other.mode.compatible(request.mode))
+        blockers.add(other.session);
+    for (Request other : queue.waiting) {
+      if (other == request)
+        break;
+      if (other.session != request.session)
+        blockers.add(other.session);
+    }
+    return blockers;
+  }
+
+  // the sessions of a cycle of waits through the given one, null if there is none
+  private ArrayList<Long> cycle(long session) {
+    ArrayList<Long> path = new ArrayList<>();
+    return find(session, session, path, new HashSet<>()) ? path : null;
+  }
+
+  private boolean find(long start, long session, ArrayList<Long> path, HashSet<Long> visited) {
+    Request request = waiting.get(session);
+    if (request == null)
+      return false;
+    path.add(session);
+    for (long blocker : blockers(request))
+      if (blocker == start || visited.add(blocker) && find(start, blocker, path, visited))
+        return true;
+    path.remove(path.size() - 1);
+    return false;
+  }
+
+  private void release(long session, Object resource) {
+    if (resource instanceof RowLock) {
+      HashMap<Object, Integer> counts = rows.get(session);
+      Object table = ((RowLock) resource).table;
+      if (counts.merge(table, -1, Integer::sum) == 0)
+        counts.remove(table);
+      if (counts.isEmpty())
+        rows.remove(session);
+    }
+    LockQueue queue = queues.get(resource);
+    queue.granted.remove(queue.find(session));
+    grantWaiting(queue, resource);
+  }
+
+  private void grant(LockQueue queue, Object resource, Request request) {
+    request.granted = true;
+    queue.granted.add(request);
+    held.computeIfAbsent(request.session, key -> new LinkedHashSet<>()).add(resource);
+  }
+
+  // grant the waiting requests in order, up to the first that has to wait on
+  private void grantWaiting(LockQueue queue, Object resource) {
+    while (!queue.waiting.isEmpty() && queue.grantable(queue.waiting.getFirst())) {
+      Request request = queue.waiting.removeFirst();
+      waiting.remove(request.session);
+      Request current = queue.find(request.session);
+      if (current != null) {
+        current.mode = request.mode;
+        request.granted = true;
+      } else
+        grant(queue, resource, request);
+      request.wakeup.signal();
+    }
+    if (queue.granted.isEmpty() && queue.waiting.isEmpty())
+      queues.remove(resource);
+  }
+
+  private static class LockManagerHolder {
+    private static final LockManager INSTANCE = new LockManager();
+    private LockManagerHolder() {
+
+    }
+  }
+}
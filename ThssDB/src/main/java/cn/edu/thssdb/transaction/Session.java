@@ -0,0 +1,164 @@
+package cn.edu.thssdb.transaction;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the server keeps for one session: its open transaction and the tables and databases the transaction wrote,
+ * the database it switched to with USE, and a few counters. A session runs one statement at a time,
+ * its locks are kept by the {@link LockManager} under its id.
+ */
+public class Session {
+  private final long id;
+  private final long connectedAt;
+  private volatile String database; // null until the session switches to a database
+  private volatile Snapshot snapshot; // null outside a transaction
+  private final LinkedHashSet<TransactionManager.Participant> written; // tables the transaction wrote
+  private final LinkedHashSet<TransactionManager.Journal> journals; // the databases of those tables, by their logs
+  private final AtomicLong statements;
+  private final AtomicLong commits;
+  private final AtomicLong aborts;
+  private volatile long lastActive;
+
+  Session(long id) {
+    this.id = id;
+    this.connectedAt = System.currentTimeMillis();
+    this.lastActive = this.connectedAt;
+    this.written = new LinkedHashSet<>();
+    this.journals = new LinkedHashSet<>();
+    this.statements = new AtomicLong();
+    this.commits = new AtomicLong();
+    this.aborts = new AtomicLong();
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getDatabase() {
+    return database;
+  }
+
+  public void setDatabase(String database) {
+    this.database = database;
+  }
+
+  /**
+   * Count a statement the session sent.
+   */
+  public void executed() {
+    statements.incrementAndGet();
+    lastActive = System.currentTimeMillis();
+  }
+
+  public boolean inTransaction() {
+    return snapshot != null;
+  }
+
+  /**
+   * The snapshot of the open transaction, null outside a transaction.
+   */
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Start a transaction, false if one is open already.
+   */
+  public synchronized boolean begin() {
+    if (snapshot != null)
+      return false;
+    written.clear();
+    journals.clear();
+    snapshot = TransactionManager.getInstance().begin();
+    return true;
+  }
+
+  /**
+   * Note a table the open transaction writes, and the log of its database (null for a table without one).
+   */
+  public synchronized void wrote(TransactionManager.Journal journal, TransactionManager.Participant table) {
+    if (snapshot == null)
+      return;
+    written.add(table);
+    if (journal != null)
+      journals.add(journal);
+  }
+
+  /**
+   * Whether the open transaction wrote a table, so that it needs a commit record.
+   */
+  public synchronized boolean hasWritten() {
+    return !written.isEmpty();
+  }
+
+  /**
+   * Commit the open transaction: every database it wrote logs a commit record, and once they are all durable
+   * (as far as the commit policy says) the transaction ends and its locks are released. If a commit record
+   * cannot be written, the transaction is aborted instead; either way it ends and releases its locks.
+   */
+  public synchronized void commit() {
+    try {
+      if (snapshot != null)
+        for (TransactionManager.Journal journal : journals)
+          journal.commit(snapshot.getTransaction());
+    } catch (RuntimeException e) {
+      abort();
+      throw e;
+    }
+    commits.incrementAndGet();
+    end();
+  }
+
+  /**
+   * End the open transaction without a commit record: the tables it wrote take its writes back (and log what they
+   * put back), its databases log an abort record, and no snapshot sees its writes. Its locks are released last,
+   * so nobody writes over a row before it is put back.
+   */
+  public synchronized void abort() {
+    try {
+      if (snapshot != null) {
+        aborts.incrementAndGet();
+        for (TransactionManager.Participant table : written)
+          table.rollback(snapshot.getTransaction());
+        for (TransactionManager.Journal journal : journals)
+          journal.abort(snapshot.getTransaction());
+        TransactionManager.getInstance().abort(snapshot);
+      }
+    } finally {
+      snapshot = null;
+      written.clear();
+      journals.clear();
+      LockManager.getInstance().unlockAll(id);
+    }
+  }
+
+  private void end() {
+    if (snapshot != null)
+      TransactionManager.getInstance().end(snapshot);
+    snapshot = null;
+    written.clear();
+    journals.clear();
+    LockManager.getInstance().unlockAll(id);
+  }
+
+  public long getConnectedAt() {
+    return connectedAt;
+  }
+
+  public long getLastActive() {
+    return lastActive;
+  }
+
+  public long getStatements() {
+    return statements.get();
+  }
+
+  public long getCommits() {
+    return commits.get();
+  }
+
+  public long getAborts() {
+    return aborts.get();
+  }
+}
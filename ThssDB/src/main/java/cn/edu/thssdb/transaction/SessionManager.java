@@ -0,0 +1,68 @@
+package cn.edu.thssdb.transaction;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The sessions of the server by id. Clients get a new id when they connect, and statements only run in a session
+ * that exists: an id that was disconnected or never handed out is refused, not given a new session. Replaying an old
+ * log opens the sessions it names. Disconnecting aborts the open transaction of the session, which rolls back its
+ * writes, and releases its locks.
+ */
+public class SessionManager {
+  private final AtomicLong nextId;
+  private final ConcurrentHashMap<Long, Session> sessions;
+
+  public static SessionManager getInstance() {
+    return SessionManagerHolder.INSTANCE;
+  }
+
+  public SessionManager() {
+    this.nextId = new AtomicLong();
+    this.sessions = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * A new session, with an id no other session has.
+   */
+  public Session connect() {
+    while (true) {
+      Session session = new Session(nextId.getAndIncrement());
+      if (sessions.putIfAbsent(session.getId(), session) == null)
+        return session;
+    }
+  }
+
+  /**
+   * The session with the given id, null if there is none.
+   */
+  public Session get(long id) {
+    return sessions.get(id);
+  }
+
+  /**
+   * The session with the given id, started if there is none. Only for replaying a log, clients connect.
+   */
+  public Session open(long id) {
+    return sessions.computeIfAbsent(id, Session::new);
+  }
+
+  public void disconnect(long id) {
+    Session session = sessions.remove(id);
+    if (session != null)
+      session.abort();
+  }
+
+  public Collection<Session> getSessions() {
+    return sessions.values();
+  }
+
+  private static class SessionManagerHolder {
+    private static final SessionManager INSTANCE = new SessionManager();
+
+    private SessionManagerHolder() {
+
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package cn.edu.thssdb.transaction;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * What one transaction reads: the writes of every transaction that had committed when it began, plus its own.
+ * Transaction ids are handed out in increasing order, id 0 stands for writes made outside any transaction
+ * (e.g. while replaying the log) and is seen by every snapshot. Aborted transactions are seen by none.
+ */
+public final class Snapshot {
+  private final long transaction;
+  // every id below low had committed when the snapshot was taken, ids from high on had not started
+  private final long low;
+  private final long high;
+  private final long[] active; // sorted, including the transaction itself
+  private final Set<Long> aborted; // shared with the TransactionManager
+
+  Snapshot(long transaction, long high, long[] active, Set<Long> aborted) {
+    this.transaction = transaction;
+    this.high = high;
+    this.active = active;
+    this.aborted = aborted;
+    this.low = active.length > 0 ? active[0] : high;
+  }
+
+  public long getTransaction() {
+    return transaction;
+  }
+
+  long getLow() {
+    return low;
+  }
+
+  /**
+   * Whether the writes of the given transaction are visible. A transaction that is neither running,
+   * nor newer than the snapshot, nor aborted has committed.
+   */
+  public boolean sees(long creator) {
+    if (creator == transaction)
+      return true;
+    if (!aborted.isEmpty() && aborted.contains(creator))
+      return false;
+    if (creator < low)
+      return true;
+    if (creator >= high)
+      return false;
+    return Arrays.binarySearch(active, creator) < 0;
+  }
+}
@@ -0,0 +1,144 @@
+package cn.edu.thssdb.transaction;
+
+import cn.edu.thssdb.common.Global;
+
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out transaction ids and snapshots, and tells the holders of old row versions
+ * (every {@link Collectable}) which of them no running transaction can see any more.
+ * A background thread does so every {@code Global.VACUUM_INTERVAL} milliseconds.
+ * Aborted transactions are remembered until the horizon passes them, so that no snapshot takes them for committed.
+ */
+public class TransactionManager {
+
+  /**
+   * Something that keeps row versions around for snapshots.
+   */
+  public interface Collectable {
+    /** Drop the versions superseded by one created before {@code horizon}, every snapshot sees the newer one. */
+    void vacuum(long horizon);
+  }
+
+  /**
+   * Something a transaction writes to, that takes its writes back if the transaction aborts.
+   */
+  public interface Participant {
+    /** Put back what the transaction replaced, before its locks are released. */
+    void rollback(long transaction);
+  }
+
+  /**
+   * The log the writes of a transaction go to, which also records how the transaction ends.
+   */
+  public interface Journal {
+    /** Log the commit of a transaction, it is durable when this returns. */
+    void commit(long transaction);
+
+    /** Log the end of a transaction rolled back by every {@link Participant} it wrote in this log. */
+    void abort(long transaction);
+  }
+
+  private long nextId;
+  private final TreeMap<Long, Snapshot> running;
+  private final Set<Long> aborted;
+  private final Set<Collectable> collectables;
+  private final ScheduledExecutorService collector;
+
+  public static TransactionManager getInstance() {
+    return TransactionManagerHolder.INSTANCE;
+  }
+
+  public TransactionManager() {
+    this.nextId = 1;
+    this.running = new TreeMap<>();
+    this.aborted = ConcurrentHashMap.newKeySet();
+    this.collectables = new CopyOnWriteArraySet<>();
+    this.collector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "vacuum");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.collector.scheduleWithFixedDelay(() -> {
+      try {
+        vacuum();
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }, Global.VACUUM_INTERVAL, Global.VACUUM_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Start a transaction, its snapshot is taken right away.
+   */
+  public synchronized Snapshot begin() {
+    long transaction = nextId++;
+    long[] active = new long[running.size() + 1];
+    int i = 0;
+    for (long id : running.keySet())
+      active[i++] = id;
+    active[i] = transaction;
+    Snapshot snapshot = new Snapshot(transaction, nextId, active, aborted);
+    running.put(transaction, snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Make sure ids handed out from now on are larger than one found in a log.
+   */
+  public synchronized void reserve(long transaction) {
+    if (nextId <= transaction)
+      nextId = transaction + 1;
+  }
+
+  public synchronized void end(Snapshot snapshot) {
+    running.remove(snapshot.getTransaction());
+  }
+
+  /**
+   * End a transaction whose writes have been rolled back: no snapshot sees them, not even one taken later.
+   */
+  public synchronized void abort(Snapshot snapshot) {
+    aborted.add(snapshot.getTransaction());
+    running.remove(snapshot.getTransaction());
+  }
+
+  /**
+   * Versions created before the horizon are seen by every running transaction and every one started later.
+   */
+  public synchronized long horizon() {
+    long horizon = nextId;
+    for (Snapshot snapshot : running.values())
+      horizon = Math.min(horizon, snapshot.getLow());
+    return horizon;
+  }
+
+  public void register(Collectable collectable) {
+    collectables.add(collectable);
+  }
+
+  public void unregister(Collectable collectable) {
+    collectables.remove(collectable);
+  }
+
+  public void vacuum() {
+    long horizon = horizon();
+    for (Collectable collectable : collectables)
+      collectable.vacuum(horizon);
+    // what is left of an aborted transaction below the horizon is a version it created and deleted itself
+    aborted.removeIf(transaction -> transaction < horizon);
+  }
+
+  private static class TransactionManagerHolder {
+    private static final TransactionManager INSTANCE = new TransactionManager();
+    private TransactionManagerHolder() {
+
+    }
+  }
+}
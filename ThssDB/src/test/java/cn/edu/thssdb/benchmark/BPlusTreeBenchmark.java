@@ -0,0 +1,127 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.KeyLayout;
+import cn.edu.thssdb.schema.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of an in-memory primary index with INT keys, keys boxed in {@link Cell} ({@code object})
+ * or stored unboxed in the nodes ({@code int}). Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.BPlusTreeBenchmark},
+ * the bytes per entry of both layouts are printed after the JMH results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BPlusTreeBenchmark {
+  private static final int SIZE = 100000;
+
+  @Param({"object", "int"})
+  public String layout;
+
+  private ArrayList<Cell> keys;
+  private BPlusTree<Cell, Integer> full;
+  private BPlusTree<Cell, Integer> toRemove;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = shuffledKeys(SIZE);
+    full = build(layout, keys);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpRemove() {
+    toRemove = build(layout, keys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public BPlusTree<Cell, Integer> put() {
+    return build(layout, keys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void get(Blackhole blackhole) {
+    for (Cell key : keys)
+      blackhole.consume(full.get(key));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public BPlusTree<Cell, Integer> remove() {
+    for (Cell key : keys)
+      toRemove.remove(key);
+    return toRemove;
+  }
+
+  static KeyLayout<Cell> keyLayout(String layout) {
+    if (layout.equals("int"))
+      return KeyLayout.ints(cell -> ((Number) cell.value).intValue(), value -> new Cell(value));
+    return KeyLayout.objects();
+  }
+
+  static ArrayList<Cell> shuffledKeys(int size) {
+    ArrayList<Cell> keys = new ArrayList<>(size);
+    for (int i = 0; i < size; i++)
+      keys.add(new Cell(i));
+    Collections.shuffle(keys);
+    return keys;
+  }
+
+  static BPlusTree<Cell, Integer> build(String layout, ArrayList<Cell> keys) {
+    BPlusTree<Cell, Integer> tree = new BPlusTree<>(keyLayout(layout));
+    Integer value = 0;
+    for (Cell key : keys)
+      tree.put(key, value);
+    return tree;
+  }
+
+  // heap growth per entry of a tree built from keys that are not retained elsewhere
+  static long bytesPerEntry(String layout) {
+    BPlusTree<Cell, Integer> tree = null;
+    long before = usedMemory();
+    tree = build(layout, shuffledKeys(SIZE));
+    long after = usedMemory();
+    if (tree.size() != SIZE)
+      throw new IllegalStateException();
+    return (after - before) / SIZE;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++)
+      System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(BPlusTreeBenchmark.class.getSimpleName()).build()).run();
+    for (String layout : new String[]{"object", "int"})
+      System.out.println(layout + " layout: " + bytesPerEntry(layout) + " bytes per entry");
+  }
+}
@@ -0,0 +1,167 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.index.BPlusTreeCodec;
+import cn.edu.thssdb.index.LSMTree;
+import cn.edu.thssdb.index.SortedCursor;
+import cn.edu.thssdb.schema.Cell;
+import cn.edu.thssdb.schema.Column;
+import cn.edu.thssdb.schema.Row;
+import cn.edu.thssdb.schema.RowCodec;
+import cn.edu.thssdb.type.ColumnType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Scans of the runs of an LSM table with low-cardinality STRING columns, with the rows of a block one after the other
+ * ({@code columnar=false}) or column by column ({@code columnar=true}, what tables use).
+ * {@code scan} reads every row, {@code recent} the 1% of rows whose status is "open", which are the newest ones,
+ * so that the columnar runs skip the other row groups by their statistics. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.ColumnarRunBenchmark},
+ * which prints a table of the results and the bytes of the runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ColumnarRunBenchmark {
+  private static final int SIZE = 200000;
+  private static final String[] REGIONS = {"north", "south", "east", "west"};
+  private static final String[] CATEGORIES = {"books", "music", "garden", "toys", "food", "tools"};
+
+  @Param({"false", "true"})
+  public boolean columnar;
+
+  private File directory;
+  private LSMTree<Cell, Row> tree;
+  private Predicate<Object> open;
+
+  // the same rows without the columnar layout
+  private static BPlusTreeCodec<Cell, Row> rows(RowCodec codec) {
+    return new BPlusTreeCodec<Cell, Row>() {
+      @Override
+      public void writeKey(DataOutput out, Cell key) throws IOException {
+        codec.writeKey(out, key);
+      }
+
+      @Override
+      public Cell readKey(DataInput in) throws IOException {
+        return codec.readKey(in);
+      }
+
+      @Override
+      public void writeValue(DataOutput out, Row value) throws IOException {
+        codec.writeValue(out, value);
+      }
+
+      @Override
+      public Row readValue(DataInput in) throws IOException {
+        return codec.readValue(in);
+      }
+    };
+  }
+
+  private static LSMTree<Cell, Row> open(File directory, boolean columnar) {
+    RowCodec codec = new RowCodec(new ArrayList<>(Arrays.asList(
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("status", ColumnType.STRING, 0, false, 8),
+            new Column("region", ColumnType.STRING, 0, false, 8),
+            new Column("category", ColumnType.STRING, 0, false, 8),
+            new Column("quantity", ColumnType.LONG, 0, false, 0))), new int[]{0});
+    return new LSMTree<>(directory.getPath(), columnar ? codec : rows(codec));
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = File.createTempFile("columnar", ".lsm");
+    directory.delete();
+    tree = open(directory, columnar);
+    for (int i = 0; i < SIZE; i++) {
+      String status = i >= SIZE - SIZE / 100 ? "open" : "closed";
+      tree.put(new Cell(i), new Row(new Cell[]{new Cell(i), new Cell(status), new Cell(REGIONS[i / 1000 % REGIONS.length]),
+              new Cell(CATEGORIES[i % CATEGORIES.length]), new Cell((long) (i % 7))}));
+    }
+    tree.checkpoint(1);
+    open = RowCodec.overlaps(1, new Cell("open"), true, new Cell("open"), true);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tree.drop();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void scan(Blackhole blackhole) {
+    SortedCursor<Cell, Row> cursor = tree.cursor();
+    while (cursor.next())
+      blackhole.consume(cursor.value());
+  }
+
+  @Benchmark
+  public void recent(Blackhole blackhole) {
+    SortedCursor<Cell, Row> cursor = tree.range(null, false, null, false, open);
+    while (cursor.next())
+      if (cursor.value().getEntries().get(1).value.equals("open"))
+        blackhole.consume(cursor.value());
+  }
+
+  private static long bytes(boolean columnar) throws IOException {
+    ColumnarRunBenchmark benchmark = new ColumnarRunBenchmark();
+    benchmark.columnar = columnar;
+    benchmark.setUp();
+    long bytes = 0;
+    File[] files = benchmark.directory.listFiles((dir, name) -> name.startsWith("run-"));
+    if (files != null)
+      for (File file : files)
+        bytes += file.length();
+    benchmark.tearDown();
+    return bytes;
+  }
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    Collection<RunResult> results = new Runner(new OptionsBuilder().include(ColumnarRunBenchmark.class.getSimpleName()).build()).run();
+    // columnar -> scan rows/s, recent scans/s
+    TreeMap<Boolean, double[]> scores = new TreeMap<>();
+    for (RunResult result : results) {
+      boolean columnar = Boolean.parseBoolean(result.getParams().getParam("columnar"));
+      int column = result.getParams().getBenchmark().endsWith(".scan") ? 0 : 1;
+      scores.computeIfAbsent(columnar, key -> new double[2])[column] = result.getPrimaryResult().getScore();
+    }
+    System.out.println();
+    System.out.println(String.format("%9s %12s %14s %16s", "columnar", "run bytes", "scan rows/s", "recent scans/s"));
+    for (boolean columnar : scores.keySet()) {
+      double[] score = scores.get(columnar);
+      System.out.println(String.format("%9s %12d %14.0f %16.1f", columnar, bytes(columnar), score[0], score[1]));
+    }
+  }
+}
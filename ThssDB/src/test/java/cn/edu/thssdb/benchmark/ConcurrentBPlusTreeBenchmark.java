@@ -0,0 +1,107 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.schema.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Throughput against the number of threads sharing one in-memory primary index with INT keys,
+ * either calling it directly ({@code latched}) or serialized behind one global lock as tables used to be ({@code global}).
+ * {@code get} looks up random keys, {@code write} inserts and removes keys of its own thread. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.ConcurrentBPlusTreeBenchmark},
+ * which repeats the benchmarks with 1, 2, 4 and 8 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBPlusTreeBenchmark {
+  private static final int SIZE = 100000;
+
+  @Param({"latched", "global"})
+  public String mode;
+
+  private ArrayList<Cell> keys;
+  private BPlusTree<Cell, Integer> tree;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  @State(Scope.Thread)
+  public static class Session {
+    private Random random;
+    private Cell[] ownKeys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(ThreadParams params) {
+      random = new Random(params.getThreadIndex());
+      // keys above SIZE that no other thread touches
+      ownKeys = new Cell[1024];
+      for (int i = 0; i < ownKeys.length; i++)
+        ownKeys[i] = new Cell(SIZE + params.getThreadIndex() * ownKeys.length + i);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = BPlusTreeBenchmark.shuffledKeys(SIZE);
+    tree = BPlusTreeBenchmark.build("int", keys);
+  }
+
+  @Benchmark
+  public Integer get(Session session) {
+    Cell key = keys.get(session.random.nextInt(SIZE));
+    if (mode.equals("latched"))
+      return tree.get(key);
+    lock.lock();
+    try {
+      return tree.get(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Benchmark
+  public void write(Session session) {
+    Cell key = session.ownKeys[session.next++ % session.ownKeys.length];
+    if (mode.equals("latched")) {
+      tree.put(key, 0);
+      tree.remove(key);
+      return;
+    }
+    lock.lock();
+    try {
+      tree.put(key, 0);
+      tree.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[]{1, 2, 4, 8})
+      new Runner(new OptionsBuilder().include(ConcurrentBPlusTreeBenchmark.class.getSimpleName())
+              .threads(threads).build()).run();
+  }
+}
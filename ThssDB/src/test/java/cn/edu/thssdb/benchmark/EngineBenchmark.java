@@ -0,0 +1,143 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.LSMTree;
+import cn.edu.thssdb.index.SortedIndex;
+import cn.edu.thssdb.schema.Cell;
+import cn.edu.thssdb.schema.Column;
+import cn.edu.thssdb.schema.Row;
+import cn.edu.thssdb.schema.RowCodec;
+import cn.edu.thssdb.storage.PageFile;
+import cn.edu.thssdb.type.ColumnType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts of new keys in random order and primary key lookups against a table that does not fit the buffer pool,
+ * stored in the paged B+ tree ({@code engine=bplustree}) or the LSM tree ({@code engine=lsm}, a table created
+ * {@code ENGINE = LSM}). Every batch of inserts ends with a checkpoint, as the background checkpointer would do.
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.EngineBenchmark},
+ * which prints a table of the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+  private static final int SIZE = 200000;
+  private static final int BATCH = 10000;
+  private static final int LOOKUPS = 10000;
+
+  @Param({"bplustree", "lsm"})
+  public String engine;
+
+  private File file;
+  private long bufferPoolSize;
+  private SortedIndex<Cell, Row> index;
+  private Cell[] lookups;
+  private int next;
+  private long lsn;
+
+  // distinct keys in no particular order
+  private static int key(int i) {
+    return i * 0x9E3779B1;
+  }
+
+  private static Row row(int key) {
+    return new Row(new Cell[]{new Cell(key), new Cell(String.format("customer-%022d", key)), new Cell(key * 0.5)});
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    bufferPoolSize = Global.BUFFER_POOL_SIZE;
+    // a few hundred leaves stay in memory, the table has several thousand
+    Global.BUFFER_POOL_SIZE = 256L * Global.PAGE_SIZE;
+    file = File.createTempFile("engine", ".table");
+    file.delete();
+    RowCodec codec = new RowCodec(new ArrayList<>(Arrays.asList(
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 32),
+            new Column("balance", ColumnType.DOUBLE, 0, false, 0))), new int[]{0});
+    if (engine.equals(Global.ENGINE_LSM))
+      index = new LSMTree<>(file.getPath(), codec);
+    else
+      index = new BPlusTree<>(new PageFile(file.getPath(), RowCodec.FORMAT), codec, FanoutBenchmark.keyLayout("int"), Global.fanout);
+    for (next = 0; next < SIZE; next++)
+      index.put(new Cell(key(next)), row(key(next)));
+    index.flush();
+    index.checkpoint(++lsn);
+    Random random = new Random(42);
+    lookups = new Cell[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++)
+      lookups[i] = new Cell(key(random.nextInt(SIZE)));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    index.drop();
+    Global.BUFFER_POOL_SIZE = bufferPoolSize;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void insert() {
+    for (int i = 0; i < BATCH; i++, next++)
+      index.put(new Cell(key(next)), row(key(next)));
+    index.flush();
+    index.checkpoint(++lsn);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void get(Blackhole blackhole) {
+    for (Cell key : lookups)
+      blackhole.consume(index.get(key));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Collection<RunResult> results = new Runner(new OptionsBuilder().include(EngineBenchmark.class.getSimpleName()).build()).run();
+    // engine -> insert, get
+    TreeMap<String, double[]> scores = new TreeMap<>();
+    for (RunResult result : results) {
+      String engine = result.getParams().getParam("engine");
+      int column = result.getParams().getBenchmark().endsWith(".insert") ? 0 : 1;
+      scores.computeIfAbsent(engine, key -> new double[2])[column] = result.getPrimaryResult().getScore();
+    }
+    System.out.println();
+    System.out.println(String.format("%10s %14s %14s", "engine", "insert ops/s", "get ops/s"));
+    for (String engine : scores.keySet()) {
+      double[] score = scores.get(engine);
+      System.out.println(String.format("%10s %14.0f %14.0f", engine, score[0], score[1]));
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.BPlusTreeCursor;
+import cn.edu.thssdb.index.KeyLayout;
+import cn.edu.thssdb.schema.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps the fanout of an in-memory primary index for one key schema: narrow INT keys stored unboxed ({@code int})
+ * or STRING(32) keys ({@code string}), measuring get, put and full scan throughput per entry. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.FanoutBenchmark -Dexec.args="int"},
+ * which prints a table of the results with the bytes per entry of every fanout, and the fanout with the best
+ * geometric mean of the three throughputs, to be used in {@code CREATE TABLE ... WITH (fanout = N)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FanoutBenchmark {
+  private static final int SIZE = 100000;
+  private static final String[] FANOUTS = {"8", "16", "32", "64", "129", "256", "512", "1024"};
+
+  @Param({"int", "string"})
+  public String schema;
+
+  @Param({"8", "16", "32", "64", "129", "256", "512", "1024"})
+  public int fanout;
+
+  private ArrayList<Cell> keys;
+  private BPlusTree<Cell, Integer> full;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    keys = shuffledKeys(schema, SIZE);
+    full = build(schema, fanout, keys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public BPlusTree<Cell, Integer> put() {
+    return build(schema, fanout, keys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void get(Blackhole blackhole) {
+    for (Cell key : keys)
+      blackhole.consume(full.get(key));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void scan(Blackhole blackhole) {
+    BPlusTreeCursor<Cell, Integer> cursor = full.cursor();
+    while (cursor.next())
+      blackhole.consume(cursor.value());
+  }
+
+  static KeyLayout<Cell> keyLayout(String schema) {
+    if (schema.equals("int"))
+      return KeyLayout.ints(cell -> ((Number) cell.value).intValue(), value -> new Cell(value));
+    return KeyLayout.objects();
+  }
+
+  static ArrayList<Cell> shuffledKeys(String schema, int size) {
+    ArrayList<Cell> keys = new ArrayList<>(size);
+    for (int i = 0; i < size; i++)
+      keys.add(schema.equals("int") ? new Cell(i) : new Cell(String.format("customer-%023d", i)));
+    Collections.shuffle(keys);
+    return keys;
+  }
+
+  static BPlusTree<Cell, Integer> build(String schema, int fanout, ArrayList<Cell> keys) {
+    BPlusTree<Cell, Integer> tree = new BPlusTree<>(keyLayout(schema), fanout);
+    Integer value = 0;
+    for (Cell key : keys)
+      tree.put(key, value);
+    return tree;
+  }
+
+  // heap taken by the nodes alone, the keys are retained by the caller
+  static long bytesPerEntry(String schema, int fanout) {
+    ArrayList<Cell> keys = shuffledKeys(schema, SIZE);
+    long before = usedMemory();
+    BPlusTree<Cell, Integer> tree = build(schema, fanout, keys);
+    long after = usedMemory();
+    if (tree.size() != SIZE)
+      throw new IllegalStateException();
+    return (after - before) / SIZE;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++)
+      System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Arguments are the schemas to sweep, both by default.
+   */
+  public static void main(String[] args) throws RunnerException {
+    String[] schemas = args.length > 0 ? args : new String[]{"int", "string"};
+    Collection<RunResult> results = new Runner(new OptionsBuilder().include(FanoutBenchmark.class.getSimpleName())
+            .param("schema", schemas).param("fanout", FANOUTS).build()).run();
+    for (String schema : schemas) {
+      // fanout -> get, put, scan
+      TreeMap<Integer, double[]> scores = new TreeMap<>();
+      for (RunResult result : results) {
+        if (!result.getParams().getParam("schema").equals(schema))
+          continue;
+        int fanout = Integer.parseInt(result.getParams().getParam("fanout"));
+        String benchmark = result.getParams().getBenchmark();
+        int column = benchmark.endsWith(".get") ? 0 : benchmark.endsWith(".put") ? 1 : 2;
+        scores.computeIfAbsent(fanout, key -> new double[3])[column] = result.getPrimaryResult().getScore();
+      }
+      System.out.println();
+      System.out.println(schema + " keys:");
+      System.out.println(String.format("%8s %14s %14s %14s %16s", "fanout", "get ops/s", "put ops/s", "scan rows/s", "bytes per entry"));
+      int best = -1;
+      double bestScore = 0;
+      for (int fanout : scores.keySet()) {
+        double[] score = scores.get(fanout);
+        System.out.println(String.format("%8d %14.0f %14.0f %14.0f %16d", fanout, score[0], score[1], score[2],
+                bytesPerEntry(schema, fanout)));
+        double mean = Math.cbrt(score[0] * score[1] * score[2]);
+        if (mean > bestScore) {
+          bestScore = mean;
+          best = fanout;
+        }
+      }
+      System.out.println("best fanout for " + schema + " keys: " + best);
+    }
+  }
+}
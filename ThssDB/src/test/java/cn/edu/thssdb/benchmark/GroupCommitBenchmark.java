@@ -0,0 +1,101 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.storage.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commits per second of the write-ahead log under every commit policy, each JMH thread playing a session that
+ * logs one insert and its commit. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.GroupCommitBenchmark},
+ * which runs 1, 8 and 64 sessions and prints a table of the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class GroupCommitBenchmark {
+  private static final int[] SESSIONS = {1, 8, 64};
+  private static final String[] POLICIES = {"sync", "group", "async"};
+  private static final byte[] INSERT = "7#insert into person values (42, 'Alice', 30, 'Beijing')\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] COMMIT = "7#commit\n".getBytes(StandardCharsets.UTF_8);
+
+  @Param({"sync", "group", "async"})
+  public String policy;
+
+  @Param({"0"})
+  public long window;
+
+  private File file;
+  private WriteAheadLog log;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = File.createTempFile("group_commit", ".log");
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.valueOf(policy.toUpperCase()), window);
+  }
+
+  @TearDown(Level.Iteration)
+  public void truncate() {
+    log.truncate();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    log.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public long commit() {
+    log.append(INSERT);
+    long offset = log.append(COMMIT);
+    log.commit(offset);
+    return offset;
+  }
+
+  /**
+   * Arguments are the group windows in microseconds to try, 0 by default.
+   */
+  public static void main(String[] args) throws RunnerException {
+    String[] windows = args.length > 0 ? args : new String[]{"0"};
+    // policy and window -> sessions -> commits per second
+    TreeMap<String, TreeMap<Integer, Double>> scores = new TreeMap<>();
+    for (int sessions : SESSIONS) {
+      for (RunResult result : new Runner(new OptionsBuilder().include(GroupCommitBenchmark.class.getSimpleName())
+              .param("policy", POLICIES).param("window", windows).threads(sessions).build()).run()) {
+        String name = result.getParams().getParam("policy") + " " + result.getParams().getParam("window") + "us";
+        scores.computeIfAbsent(name, key -> new TreeMap<>()).put(sessions, result.getPrimaryResult().getScore());
+      }
+    }
+    System.out.println();
+    System.out.println(String.format("%16s %14s %14s %14s", "policy window", "1 session", "8 sessions", "64 sessions"));
+    for (String name : scores.keySet()) {
+      TreeMap<Integer, Double> score = scores.get(name);
+      System.out.println(String.format("%16s %14.0f %14.0f %14.0f", name, score.get(1), score.get(8), score.get(64)));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.transaction.LockManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sessions that write to the same table: each takes the table's X lock, holds it for the length of a short
+ * statement and its commit, releases it and sends the next statement a millisecond later.
+ * {@code polling} is how statements used to wait, trying the lock every 500 ms;
+ * {@code queued} waits in the {@link LockManager}'s queue and is woken on release;
+ * {@code row} locks only the row each statement inserts (and the table in IX mode), so sessions do not wait at all.
+ * Reports the latency of a statement including the wait for the lock and the time before it is sent;
+ * with polling the session that just released the lock mostly takes it again, so the others run few,
+ * very slow statements and show in the highest percentiles and in the number of statements run. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.LockBenchmark},
+ * which prints a table of the percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(4)
+@Fork(1)
+public class LockBenchmark {
+  private static final long HOLD = 500000; // nanoseconds a statement holds the lock
+  private static final long THINK = 1000000; // nanoseconds between the statements of a session
+
+  @Param({"polling", "queued", "row"})
+  public String lock;
+
+  private final Object table = new Object();
+  private final AtomicBoolean writeLocked = new AtomicBoolean();
+  private final LockManager locks = new LockManager();
+  private final AtomicLong sessions = new AtomicLong();
+
+  @State(Scope.Thread)
+  public static class Session {
+    long id;
+    long statements;
+  }
+
+  @Benchmark
+  public void statement(Session session) throws InterruptedException {
+    if (session.id == 0)
+      session.id = sessions.incrementAndGet();
+    LockSupport.parkNanos(THINK);
+    if (lock.equals("polling")) {
+      while (!writeLocked.compareAndSet(false, true))
+        Thread.sleep(500);
+      LockSupport.parkNanos(HOLD);
+      writeLocked.set(false);
+    } else if (lock.equals("row")) {
+      locks.lockRow(session.id, table, session.id << 32 | session.statements++, LockManager.LockMode.X);
+      LockSupport.parkNanos(HOLD);
+      locks.unlockAll(session.id);
+    } else {
+      locks.lock(session.id, table, LockManager.LockMode.X);
+      LockSupport.parkNanos(HOLD);
+      locks.unlockAll(session.id);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Collection<RunResult> results = new Runner(new OptionsBuilder().include(LockBenchmark.class.getSimpleName()).build()).run();
+    TreeMap<String, Statistics> statistics = new TreeMap<>();
+    for (RunResult result : results)
+      statistics.put(result.getParams().getParam("lock"), result.getPrimaryResult().getStatistics());
+    System.out.println();
+    System.out.println(String.format("%8s %12s %10s %10s %10s %10s", "lock", "statements", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+    for (String lock : statistics.keySet()) {
+      Statistics statistic = statistics.get(lock);
+      System.out.println(String.format("%8s %12d %10.2f %10.2f %10.2f %10.2f", lock, statistic.getN(),
+              statistic.getPercentile(50), statistic.getPercentile(99), statistic.getPercentile(99.9), statistic.getMax()));
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.BPlusTreeCursor;
+import cn.edu.thssdb.schema.Cell;
+import cn.edu.thssdb.schema.Column;
+import cn.edu.thssdb.schema.Row;
+import cn.edu.thssdb.schema.RowCodec;
+import cn.edu.thssdb.storage.PageFile;
+import cn.edu.thssdb.type.ColumnType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primary key lookups and scans of a table file much larger than the buffer pool, read with a system call per page
+ * ({@code mapped=false}) or from memory mappings ({@code mapped=true}, a table created {@code WITH (mmap = 1)}).
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.MappedReadBenchmark},
+ * which prints a table of the results and the time to open the file and answer the first lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MappedReadBenchmark {
+  private static final int SIZE = 200000;
+  private static final int LOOKUPS = 10000;
+
+  @Param({"false", "true"})
+  public boolean mapped;
+
+  private File file;
+  private long bufferPoolSize;
+  private RowCodec codec;
+  private BPlusTree<Cell, Row> tree;
+  private Cell[] lookups;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    bufferPoolSize = Global.BUFFER_POOL_SIZE;
+    // a few hundred leaves stay in memory, the file has several thousand
+    Global.BUFFER_POOL_SIZE = 256L * Global.PAGE_SIZE;
+    file = File.createTempFile("mapped", ".table");
+    file.delete();
+    codec = codec();
+    write(file, codec);
+    tree = new BPlusTree<>(new PageFile(file.getPath(), RowCodec.FORMAT, mapped), codec, FanoutBenchmark.keyLayout("int"), Global.fanout);
+    Random random = new java.util.Random(42);
+    lookups = new Cell[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++)
+      lookups[i] = new Cell(random.nextInt(SIZE));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tree.close();
+    file.delete();
+    Global.BUFFER_POOL_SIZE = bufferPoolSize;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void get(Blackhole blackhole) {
+    for (Cell key : lookups)
+      blackhole.consume(tree.get(key));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void scan(Blackhole blackhole) {
+    BPlusTreeCursor<Cell, Row> cursor = tree.cursor();
+    while (cursor.next())
+      blackhole.consume(cursor.value());
+  }
+
+  private static RowCodec codec() {
+    ArrayList<Column> columns = new ArrayList<>(Arrays.asList(
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 32),
+            new Column("balance", ColumnType.DOUBLE, 0, false, 0)));
+    return new RowCodec(columns, new int[]{0});
+  }
+
+  private static void write(File file, RowCodec codec) {
+    BPlusTree<Cell, Row> tree = new BPlusTree<>(new PageFile(file.getPath(), RowCodec.FORMAT), codec, FanoutBenchmark.keyLayout("int"), Global.fanout);
+    for (int i = 0; i < SIZE; i++)
+      tree.put(new Cell(i), new Row(new Cell[]{new Cell(i), new Cell(String.format("customer-%022d", i)), new Cell(i * 0.5)}));
+    tree.checkpoint();
+    tree.close();
+  }
+
+  // open the file and answer one lookup, in milliseconds
+  private static double firstLookup(boolean mapped) throws IOException {
+    File file = File.createTempFile("mapped", ".table");
+    file.delete();
+    RowCodec codec = codec();
+    write(file, codec);
+    long start = System.nanoTime();
+    BPlusTree<Cell, Row> tree = new BPlusTree<>(new PageFile(file.getPath(), RowCodec.FORMAT, mapped), codec, FanoutBenchmark.keyLayout("int"), Global.fanout);
+    if (tree.get(new Cell(SIZE / 2)) == null)
+      throw new IllegalStateException();
+    double millis = (System.nanoTime() - start) / 1e6;
+    tree.close();
+    file.delete();
+    return millis;
+  }
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    Collection<RunResult> results = new Runner(new OptionsBuilder().include(MappedReadBenchmark.class.getSimpleName()).build()).run();
+    // mapped -> get, scan
+    TreeMap<Boolean, double[]> scores = new TreeMap<>();
+    for (RunResult result : results) {
+      boolean mapped = Boolean.parseBoolean(result.getParams().getParam("mapped"));
+      int column = result.getParams().getBenchmark().endsWith(".get") ? 0 : 1;
+      scores.computeIfAbsent(mapped, key -> new double[2])[column] = result.getPrimaryResult().getScore();
+    }
+    System.out.println();
+    System.out.println(String.format("%8s %14s %14s %18s", "mapped", "get ops/s", "scan rows/s", "first lookup ms"));
+    for (boolean mapped : scores.keySet()) {
+      double[] score = scores.get(mapped);
+      System.out.println(String.format("%8s %14.0f %14.0f %18.1f", mapped, score[0], score[1], firstLookup(mapped)));
+    }
+  }
+}
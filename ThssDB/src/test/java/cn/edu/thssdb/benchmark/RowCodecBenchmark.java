@@ -0,0 +1,197 @@
+package cn.edu.thssdb.benchmark;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.BPlusTreeCodec;
+import cn.edu.thssdb.index.BPlusTreeCursor;
+import cn.edu.thssdb.index.KeyLayout;
+import cn.edu.thssdb.schema.Cell;
+import cn.edu.thssdb.schema.Column;
+import cn.edu.thssdb.schema.Row;
+import cn.edu.thssdb.schema.RowCodec;
+import cn.edu.thssdb.schema.TablePageCodec;
+import cn.edu.thssdb.storage.PageFile;
+import cn.edu.thssdb.type.ColumnType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the on-disk formats of a table: Java serialization of every row ({@code serialized}, the format
+ * {@code Table.migrate} still reads), pages of tagged cells ({@code tagged}, {@link TablePageCodec}) and pages of
+ * schema-driven rows ({@code binary}, {@link RowCodec}). The benchmark measures the time to load every row of a
+ * table of five columns back from the file. Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=cn.edu.thssdb.benchmark.RowCodecBenchmark},
+ * which also prints the file size of every format and the bytes its rows and keys take before they are cut into pages,
+ * leaf chains are whole pages so the file size alone hides smaller rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowCodecBenchmark {
+  private static final int SIZE = 100000;
+  private static final String[] FORMATS = {"serialized", "tagged", "binary"};
+  private static final Column[] COLUMNS = {
+          new Column("id", ColumnType.INT, 1, true, 0),
+          new Column("name", ColumnType.STRING, 0, true, 32),
+          new Column("total", ColumnType.LONG, 0, false, 0),
+          new Column("score", ColumnType.DOUBLE, 0, false, 0),
+          new Column("city", ColumnType.STRING, 0, false, 16)};
+
+  @Param({"serialized", "tagged", "binary"})
+  public String format;
+
+  private File file;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = write(format);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Benchmark
+  public int load() throws IOException, ClassNotFoundException {
+    int rows = 0;
+    if (format.equals("serialized")) {
+      try (FileInputStream fileInputStream = new FileInputStream(file);
+           ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(fileInputStream))) {
+        for (int i = 0; i < SIZE; i++)
+          rows += ((Row) in.readObject()).getEntries().size() > 0 ? 1 : 0;
+      }
+      return rows;
+    }
+    BPlusTree<Cell, Row> tree = new BPlusTree<>(new PageFile(file.getPath()), codec(format), keyLayout(), Global.fanout);
+    BPlusTreeCursor<Cell, Row> cursor = tree.cursor();
+    while (cursor.next())
+      rows += cursor.value().getEntries().size() > 0 ? 1 : 0;
+    tree.close();
+    return rows;
+  }
+
+  private static BPlusTreeCodec<Cell, Row> codec(String format) {
+    return format.equals("tagged") ? new TablePageCodec() : new RowCodec(Arrays.asList(COLUMNS), new int[]{0});
+  }
+
+  private static KeyLayout<Cell> keyLayout() {
+    return KeyLayout.ints(cell -> (Integer) cell.value, value -> new Cell(value));
+  }
+
+  static ArrayList<Row> rows() {
+    String[] cities = {"Beijing", "Shanghai", "Shenzhen", null};
+    ArrayList<Row> rows = new ArrayList<>(SIZE);
+    for (int i = 0; i < SIZE; i++)
+      rows.add(new Row(new Cell[]{new Cell(i), new Cell("customer-" + i), new Cell((long) i * 1000003),
+              new Cell(i % 5 == 0 ? null : i / 7.0), new Cell(cities[i % cities.length])}));
+    return rows;
+  }
+
+  static File write(String format) throws IOException {
+    File file = File.createTempFile("codec_" + format, ".table");
+    ArrayList<Row> rows = rows();
+    if (format.equals("serialized")) {
+      try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+        for (Row row : rows)
+          out.writeObject(row);
+      }
+      return file;
+    }
+    file.delete();
+    BPlusTree<Cell, Row> tree = new BPlusTree<>(new PageFile(file.getPath()), codec(format), keyLayout(), Global.fanout);
+    Iterator<Row> iterator = rows.iterator();
+    tree.bulkLoad(new Iterator<Pair<Cell, Row>>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Pair<Cell, Row> next() {
+        Row row = iterator.next();
+        return new Pair<>(row.getEntries().get(0), row);
+      }
+    }, Global.BULK_LOAD_FILL_FACTOR);
+    tree.checkpoint();
+    tree.close();
+    return file;
+  }
+
+  static long rowBytes(String format) throws IOException {
+    if (format.equals("serialized")) {
+      File file = write(format);
+      long length = file.length();
+      file.delete();
+      return length;
+    }
+    BPlusTreeCodec<Cell, Row> codec = codec(format);
+    DataOutputStream out = new DataOutputStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+    });
+    for (Row row : rows()) {
+      codec.writeKey(out, row.getEntries().get(0));
+      codec.writeValue(out, row);
+    }
+    return out.size();
+  }
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    Collection<RunResult> results = new Runner(new OptionsBuilder().include(RowCodecBenchmark.class.getSimpleName())
+            .param("format", FORMATS).build()).run();
+    System.out.println();
+    System.out.println(String.format("%12s %14s %14s %14s %12s", "format", "file bytes", "row bytes", "bytes per row", "load ms"));
+    for (String format : FORMATS) {
+      File file = write(format);
+      long length = file.length();
+      file.delete();
+      long rowBytes = rowBytes(format);
+      double load = 0;
+      for (RunResult result : results)
+        if (result.getParams().getParam("format").equals(format))
+          load = result.getPrimaryResult().getScore();
+      System.out.println(String.format("%12s %14d %14d %14.1f %12.2f", format, length, rowBytes, (double) rowBytes / SIZE, load));
+    }
+  }
+}
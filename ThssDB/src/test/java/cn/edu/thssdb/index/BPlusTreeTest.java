@@ -0,0 +1,141 @@
+package cn.edu.thssdb.index;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BPlusTreeTest {
+  private BPlusTree<Integer, Integer> tree;
+  private ArrayList<Integer> keys;
+  private ArrayList<Integer> values;
+  private HashMap<Integer, Integer> map;
+
+  @Before
+  public void setUp() {
+    tree = new BPlusTree<>();
+    keys = new ArrayList<>();
+    values = new ArrayList<>();
+    map = new HashMap<>();
+    HashSet<Integer> set = new HashSet<>();
+    int size = 10000;
+    for (int i = 0; i < size; i++) {
+      double random = Math.random();
+      set.add((int) (random * size));
+    }
+    for (Integer key : set) {
+      int hashCode = key.hashCode();
+      keys.add(key);
+      values.add(hashCode);
+      tree.put(key, hashCode);
+      map.put(key, hashCode);
+    }
+  }
+
+  @Test
+  public void testGet() {
+    for (Integer key : keys) {
+      // check if all the results equal
+      assertEquals(map.get(key), tree.get(key));
+    }
+  }
+
+  @Test
+  public void testRemove() {
+    int size = keys.size();
+    for (int i = 0; i < size; i += 2) {
+      // remove half data
+      tree.remove(keys.get(i));
+    }
+    // check if size equals half of origin
+    assertEquals(size / 2, tree.size());
+    for (int i = 1; i < size; i += 2) {
+      assertEquals(map.get(keys.get(i)), tree.get(keys.get(i)));
+    }
+  }
+
+  @Test
+  public void testIterator() {
+    BPlusTreeIterator<Integer, Integer> iterator = tree.iterator();
+    int c = 0;
+    while (iterator.hasNext()) {
+      assertTrue(values.contains(iterator.next().right));
+      c++;
+    }
+    assertEquals(values.size(), c);
+  }
+
+  @Test
+  public void testCursor() {
+    ArrayList<Integer> sorted = new ArrayList<>(keys);
+    Collections.sort(sorted);
+    BPlusTreeCursor<Integer, Integer> cursor = tree.cursor();
+    for (Integer key : sorted) {
+      assertTrue(cursor.next());
+      assertEquals(key, cursor.key());
+      assertEquals(map.get(key), cursor.value());
+    }
+    assertFalse(cursor.next());
+
+    Collections.reverse(sorted);
+    cursor = tree.descendingCursor();
+    for (Integer key : sorted) {
+      assertTrue(cursor.next());
+      assertEquals(key, cursor.key());
+    }
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testRange() {
+    TreeMap<Integer, Integer> sorted = new TreeMap<>(map);
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      int from = random.nextInt(12000) - 1000;
+      int to = from + random.nextInt(3000);
+      boolean fromInclusive = random.nextBoolean();
+      boolean toInclusive = random.nextBoolean();
+      BPlusTreeCursor<Integer, Integer> cursor = tree.range(from, fromInclusive, to, toInclusive);
+      for (Integer key : sorted.subMap(from, fromInclusive, to, toInclusive).keySet()) {
+        assertTrue(cursor.next());
+        assertEquals(key, cursor.key());
+      }
+      assertFalse(cursor.next());
+    }
+    Integer key = keys.get(0);
+    BPlusTreeCursor<Integer, Integer> cursor = tree.range(key, true, key, true);
+    assertTrue(cursor.next());
+    assertEquals(map.get(key), cursor.value());
+    assertFalse(cursor.next());
+
+    cursor = tree.seek(-1);
+    assertTrue(cursor.next());
+    assertEquals(sorted.firstKey(), cursor.key());
+    cursor = tree.range(null, false, sorted.firstKey(), false);
+    assertFalse(cursor.next());
+    assertFalse(tree.seek(sorted.lastKey() + 1).next());
+  }
+
+  @Test
+  public void testDescendingAfterRemove() {
+    for (int i = 0; i < keys.size(); i += 2)
+      tree.remove(keys.get(i));
+    ArrayList<Integer> remaining = new ArrayList<>();
+    for (int i = 1; i < keys.size(); i += 2)
+      remaining.add(keys.get(i));
+    Collections.sort(remaining, Collections.reverseOrder());
+    BPlusTreeIterator<Integer, Integer> iterator = tree.descendingIterator();
+    for (Integer key : remaining)
+      assertEquals(key, iterator.next().left);
+    assertFalse(iterator.hasNext());
+  }
+}
@@ -0,0 +1,131 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.exception.DuplicateKeyException;
+import cn.edu.thssdb.storage.PageFile;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkLoadTest {
+
+  private static Iterator<Pair<Integer, Integer>> entries(int from, int to) {
+    ArrayList<Pair<Integer, Integer>> entries = new ArrayList<>();
+    for (int i = from; i < to; i++)
+      entries.add(new Pair<>(i, -i));
+    return entries.iterator();
+  }
+
+  private static void check(BPlusTree<Integer, Integer> tree, int size) {
+    assertEquals(size, tree.size());
+    BPlusTreeCursor<Integer, Integer> cursor = tree.cursor();
+    for (int i = 0; i < size; i++) {
+      assertTrue(cursor.next());
+      assertEquals(Integer.valueOf(i), cursor.key());
+      assertEquals(Integer.valueOf(-i), cursor.value());
+    }
+    assertFalse(cursor.next());
+    cursor = tree.descendingCursor();
+    for (int i = size - 1; i >= 0; i--) {
+      assertTrue(cursor.next());
+      assertEquals(Integer.valueOf(i), cursor.key());
+    }
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testSizes() {
+    for (double fillFactor : new double[]{0.1, 0.5, 0.9, 1.0})
+      for (int size : new int[]{0, 1, 63, 64, 65, 128, 129, 1000, 8321, 20000}) {
+        BPlusTree<Integer, Integer> tree = new BPlusTree<>();
+        tree.bulkLoad(entries(0, size), fillFactor);
+        check(tree, size);
+        // the loaded tree keeps working as an ordinary one
+        ArrayList<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+          keys.add(i);
+        Collections.shuffle(keys);
+        for (int i = 0; i < size / 2; i++)
+          tree.remove(keys.get(i));
+        for (int i = 0; i < size / 2; i++)
+          tree.put(keys.get(i), -keys.get(i));
+        check(tree, size);
+      }
+  }
+
+  @Test
+  public void testUnsorted() {
+    BPlusTree<Integer, Integer> tree = new BPlusTree<>();
+    try {
+      tree.bulkLoad(Arrays.asList(new Pair<>(2, 2), new Pair<>(1, 1)).iterator(), 1.0);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+    try {
+      tree.bulkLoad(Arrays.asList(new Pair<>(1, 1), new Pair<>(1, 1)).iterator(), 1.0);
+      fail();
+    } catch (DuplicateKeyException ignored) {
+    }
+    check(tree, 0);
+    tree.put(0, 0);
+    try {
+      tree.bulkLoad(entries(1, 2), 1.0);
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+  }
+
+  @Test
+  public void testPaged() throws IOException {
+    BPlusTreeCodec<Integer, Integer> codec = new BPlusTreeCodec<Integer, Integer>() {
+      @Override
+      public void writeKey(DataOutput out, Integer key) throws IOException {
+        out.writeInt(key);
+      }
+
+      @Override
+      public Integer readKey(DataInput in) throws IOException {
+        return in.readInt();
+      }
+
+      @Override
+      public void writeValue(DataOutput out, Integer value) throws IOException {
+        out.writeInt(value);
+      }
+
+      @Override
+      public Integer readValue(DataInput in) throws IOException {
+        return in.readInt();
+      }
+    };
+    File file = File.createTempFile("bulk", ".tree");
+    file.delete();
+    long bufferPoolSize = Global.BUFFER_POOL_SIZE;
+    Global.BUFFER_POOL_SIZE = 8L * Global.PAGE_SIZE;
+    try {
+      BPlusTree<Integer, Integer> tree = new BPlusTree<>(new PageFile(file.getPath()), codec);
+      tree.bulkLoad(entries(0, 50000), 0.9);
+      tree.checkpoint();
+      tree.close();
+      tree = new BPlusTree<>(new PageFile(file.getPath()), codec);
+      check(tree, 50000);
+      tree.close();
+    } finally {
+      Global.BUFFER_POOL_SIZE = bufferPoolSize;
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package cn.edu.thssdb.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// codecs shared by the tests of the on-disk indexes
+final class Codecs {
+  static final BPlusTreeCodec<Integer, String> INT_STRING = new BPlusTreeCodec<Integer, String>() {
+    @Override
+    public void writeKey(DataOutput out, Integer key) throws IOException {
+      out.writeInt(key);
+    }
+
+    @Override
+    public Integer readKey(DataInput in) throws IOException {
+      return in.readInt();
+    }
+
+    @Override
+    public void writeValue(DataOutput out, String value) throws IOException {
+      out.writeUTF(value);
+    }
+
+    @Override
+    public String readValue(DataInput in) throws IOException {
+      return in.readUTF();
+    }
+  };
+
+  private Codecs() {
+  }
+}
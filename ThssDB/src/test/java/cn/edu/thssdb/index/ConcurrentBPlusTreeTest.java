@@ -0,0 +1,198 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.DuplicateKeyException;
+import cn.edu.thssdb.exception.KeyNotExistException;
+import cn.edu.thssdb.storage.PageFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentBPlusTreeTest {
+  private static final BPlusTreeCodec<Integer, Integer> CODEC = new BPlusTreeCodec<Integer, Integer>() {
+    @Override
+    public void writeKey(DataOutput out, Integer key) throws IOException {
+      out.writeInt(key);
+    }
+
+    @Override
+    public Integer readKey(DataInput in) throws IOException {
+      return in.readInt();
+    }
+
+    @Override
+    public void writeValue(DataOutput out, Integer value) throws IOException {
+      out.writeInt(value);
+    }
+
+    @Override
+    public Integer readValue(DataInput in) throws IOException {
+      return in.readInt();
+    }
+  };
+
+  private static final int THREADS = 8;
+  private static final int KEYS = 4000;
+  private static final int OPERATIONS = 40000;
+
+  private int fanout;
+  private long bufferPoolSize;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    fanout = Global.fanout;
+    bufferPoolSize = Global.BUFFER_POOL_SIZE;
+    // small nodes, so that splits and merges happen all the time
+    Global.fanout = 6;
+    file = File.createTempFile("concurrent", ".tree");
+    file.delete();
+  }
+
+  @After
+  public void tearDown() {
+    Global.fanout = fanout;
+    Global.BUFFER_POOL_SIZE = bufferPoolSize;
+    file.delete();
+  }
+
+  @Test
+  public void testInMemory() throws InterruptedException {
+    BPlusTree<Integer, Integer> tree = new BPlusTree<>(KeyLayout.<Integer>ints(key -> key, key -> key));
+    AtomicIntegerArray present = stress(tree);
+    check(tree, present);
+  }
+
+  @Test
+  public void testPaged() throws InterruptedException {
+    Global.BUFFER_POOL_SIZE = 8L * Global.PAGE_SIZE;
+    BPlusTree<Integer, Integer> tree = new BPlusTree<>(new PageFile(file.getPath()), CODEC);
+    AtomicIntegerArray present = stress(tree);
+    check(tree, present);
+    tree.checkpoint();
+    tree.close();
+
+    tree = new BPlusTree<>(new PageFile(file.getPath()), CODEC);
+    check(tree, present);
+    tree.close();
+  }
+
+  /**
+   * Writers put, update and remove random keys of a shared range, keeping count of what succeeded,
+   * while readers look keys up and walk the tree with cursors.
+   */
+  private AtomicIntegerArray stress(BPlusTree<Integer, Integer> tree) throws InterruptedException {
+    AtomicIntegerArray present = new AtomicIntegerArray(KEYS);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    ArrayList<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      Random random = new Random(t);
+      boolean writer = t % 2 == 0;
+      threads.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < OPERATIONS; i++) {
+            if (writer)
+              write(tree, present, random);
+            else
+              read(tree, random);
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      }));
+    }
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+    assertNull(failure.get());
+    return present;
+  }
+
+  private static void write(BPlusTree<Integer, Integer> tree, AtomicIntegerArray present, Random random) {
+    int key = random.nextInt(KEYS);
+    int operation = random.nextInt(3);
+    try {
+      if (operation == 0) {
+        tree.put(key, key);
+        present.incrementAndGet(key);
+      } else if (operation == 1) {
+        tree.remove(key);
+        present.decrementAndGet(key);
+      } else
+        tree.update(key, key);
+    } catch (DuplicateKeyException | KeyNotExistException e) {
+      // another writer got there first
+    }
+  }
+
+  private static void read(BPlusTree<Integer, Integer> tree, Random random) {
+    int key = random.nextInt(KEYS);
+    if (random.nextInt(100) > 0) {
+      try {
+        assertEquals(key, (int) tree.get(key));
+      } catch (KeyNotExistException e) {
+        // not there right now
+      }
+      return;
+    }
+    // now and then a range, keys come out strictly ascending (descending) and with their own values
+    boolean ascending = random.nextBoolean();
+    BPlusTreeCursor<Integer, Integer> cursor = ascending ? tree.range(key, true, key + 500, false)
+            : tree.descendingCursor();
+    Integer last = null;
+    int count = 0;
+    while (cursor.next() && count++ < 500) {
+      assertEquals(cursor.key(), cursor.value());
+      if (last != null)
+        assertTrue(ascending ? last < cursor.key() : last > cursor.key());
+      last = cursor.key();
+    }
+  }
+
+  private static void check(BPlusTree<Integer, Integer> tree, AtomicIntegerArray present) {
+    int size = 0;
+    for (int key = 0; key < KEYS; key++) {
+      int count = present.get(key);
+      assertTrue(count == 0 || count == 1);
+      assertEquals(count == 1, tree.contains(key));
+      size += count;
+    }
+    assertEquals(size, tree.size());
+    // the leaf chain is intact in both directions
+    BPlusTreeCursor<Integer, Integer> cursor = tree.cursor();
+    int last = -1;
+    int count = 0;
+    while (cursor.next()) {
+      assertTrue(cursor.key() > last);
+      assertEquals(1, present.get(cursor.key()));
+      last = cursor.key();
+      count++;
+    }
+    assertEquals(size, count);
+    cursor = tree.descendingCursor();
+    last = KEYS;
+    count = 0;
+    while (cursor.next()) {
+      assertTrue(cursor.key() < last);
+      last = cursor.key();
+      count++;
+    }
+    assertEquals(size, count);
+    assertFalse(tree.contains(KEYS));
+  }
+}
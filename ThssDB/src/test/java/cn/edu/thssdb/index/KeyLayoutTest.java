@@ -0,0 +1,73 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyLayoutTest {
+
+  private static <K extends Comparable<K>> void check(BPlusTree<K, String> tree, ArrayList<K> keys) {
+    Collections.shuffle(keys);
+    TreeMap<K, String> map = new TreeMap<>();
+    for (K key : keys) {
+      tree.put(key, "value" + key);
+      map.put(key, "value" + key);
+    }
+    for (int i = 0; i < keys.size(); i += 3) {
+      tree.remove(keys.get(i));
+      map.remove(keys.get(i));
+    }
+    assertEquals(map.size(), tree.size());
+    for (K key : keys) {
+      assertEquals(map.containsKey(key), tree.contains(key));
+      if (map.containsKey(key))
+        assertEquals(map.get(key), tree.get(key));
+    }
+    TreeMap<K, String> iterated = new TreeMap<>();
+    for (Pair<K, String> pair : tree)
+      iterated.put(pair.left, pair.right);
+    assertEquals(map, iterated);
+
+    K from = keys.get(0);
+    K to = keys.get(1).compareTo(from) > 0 ? keys.get(1) : from;
+    BPlusTreeCursor<K, String> cursor = tree.range(from, false, to, true);
+    for (K key : map.subMap(from, false, to, true).keySet()) {
+      assertTrue(cursor.next());
+      assertEquals(key, cursor.key());
+    }
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testInts() {
+    ArrayList<Integer> keys = new ArrayList<>();
+    for (int i = -5000; i < 5000; i++)
+      keys.add(i * 7);
+    BPlusTree<Integer, String> tree = new BPlusTree<>(KeyLayout.ints(Integer::intValue, Integer::valueOf));
+    check(tree, keys);
+    assertFalse(tree.contains(1));
+  }
+
+  @Test
+  public void testLongs() {
+    ArrayList<Long> keys = new ArrayList<>();
+    for (long i = -5000; i < 5000; i++)
+      keys.add(i * 1000000007L);
+    check(new BPlusTree<>(KeyLayout.longs(Long::longValue, Long::valueOf)), keys);
+  }
+
+  @Test
+  public void testObjects() {
+    ArrayList<String> keys = new ArrayList<>();
+    for (int i = 0; i < 10000; i++)
+      keys.add("key" + i);
+    check(new BPlusTree<String, String>(KeyLayout.objects()), keys);
+  }
+}
@@ -0,0 +1,196 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LSMTreeTest {
+  private File directory;
+  private int memtableSize;
+  private LSMTree<Integer, String> tree;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = File.createTempFile("lsm", ".tree");
+    directory.delete();
+    memtableSize = Global.LSM_MEMTABLE_SIZE;
+    // many small runs, so that lookups and cursors merge several of them and compactions happen
+    Global.LSM_MEMTABLE_SIZE = 100;
+    tree = new LSMTree<>(directory.getPath(), Codecs.INT_STRING);
+  }
+
+  @After
+  public void tearDown() {
+    Global.LSM_MEMTABLE_SIZE = memtableSize;
+    tree.drop();
+  }
+
+  private static ArrayList<Integer> shuffled(int size) {
+    ArrayList<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < size; i++)
+      keys.add(i);
+    Collections.shuffle(keys);
+    return keys;
+  }
+
+  private static void assertContents(NavigableMap<Integer, String> expected, SortedCursor<Integer, String> cursor) {
+    for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+      assertTrue(cursor.next());
+      assertEquals(entry.getKey(), cursor.key());
+      assertEquals(entry.getValue(), cursor.value());
+    }
+    assertFalse(cursor.next());
+  }
+
+  // changes the tree and the map alike: puts every key, then removes every third and updates every fifth one
+  private void write(ArrayList<Integer> keys, TreeMap<Integer, String> expected) {
+    for (Integer key : keys) {
+      tree.put(key, "value" + key);
+      expected.put(key, "value" + key);
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      Integer key = keys.get(i);
+      if (i % 3 == 0) {
+        tree.remove(key);
+        expected.remove(key);
+      } else if (i % 5 == 0) {
+        tree.update(key, "changed" + key);
+        expected.put(key, "changed" + key);
+      }
+    }
+  }
+
+  @Test
+  public void testMerge() throws InterruptedException {
+    ArrayList<Integer> keys = shuffled(5000);
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    write(keys, expected);
+    assertEquals(expected.size(), tree.size());
+    for (Integer key : keys) {
+      assertEquals(expected.containsKey(key), tree.contains(key));
+      if (expected.containsKey(key))
+        assertEquals(expected.get(key), tree.get(key));
+    }
+    assertFalse(tree.contains(-1));
+    assertContents(expected, tree.cursor());
+    assertContents(expected.subMap(1000, true, 2000, false), tree.range(1000, true, 2000, false));
+    assertContents(expected.subMap(1000, false, 2000, true), tree.range(1000, false, 2000, true));
+    assertContents(expected.headMap(10, true), tree.range(null, false, 10, true));
+
+    // about a hundred runs flushed, compactions merge them in the background
+    tree.flush();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (tree.getRunCount() > 2 * Global.LSM_COMPACTION_THRESHOLD && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    assertTrue(tree.getRunCount() <= 2 * Global.LSM_COMPACTION_THRESHOLD);
+    assertContents(expected, tree.cursor());
+  }
+
+  // waits until the background compactions are done
+  private void settle() throws InterruptedException {
+    tree.flush();
+    int runs;
+    do {
+      runs = tree.getRunCount();
+      Thread.sleep(50);
+    } while (runs != tree.getRunCount());
+  }
+
+  @Test
+  public void testCursorDuringCompaction() throws InterruptedException {
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    write(shuffled(3000), expected);
+    settle();
+    // a cursor opened before more flushes, compactions and checkpoints still sees every key once
+    SortedCursor<Integer, String> cursor = tree.cursor();
+    int count = 0;
+    Integer last = null;
+    while (cursor.next()) {
+      if (count++ % 500 == 0 && cursor.key() < 10000) {
+        for (int i = 0; i < 2000; i++)
+          tree.put(10000 + count * 1000 + i, "more");
+        settle();
+        // deletes the runs compacted away, some of which the cursor is reading
+        tree.checkpoint(count);
+      }
+      if (cursor.key() < 10000) {
+        assertEquals(expected.get(cursor.key()), cursor.value());
+        assertTrue(last == null || cursor.key() > last);
+        last = cursor.key();
+      }
+    }
+    assertEquals(expected.lastKey(), last);
+  }
+
+  @Test
+  public void testCheckpoint() {
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    write(shuffled(2000), expected);
+    tree.checkpoint(42);
+    assertEquals(42, tree.getLsn());
+    // changes after the last checkpoint are lost, even if they were flushed into runs
+    for (int i = 0; i < 1000; i++)
+      tree.put(5000 + i, "lost");
+    tree.remove(expected.firstKey());
+    tree.flush();
+    tree.close();
+
+    tree = new LSMTree<>(directory.getPath(), Codecs.INT_STRING);
+    assertEquals(42, tree.getLsn());
+    assertEquals(expected.size(), tree.size());
+    assertContents(expected, tree.cursor());
+    assertFalse(tree.contains(5000));
+    String[] files = directory.list();
+    assertEquals(tree.getRunCount() + 1, files == null ? 0 : files.length);
+
+    // a checkpoint without changes keeps everything
+    tree.checkpoint(43);
+    tree.close();
+    tree = new LSMTree<>(directory.getPath(), Codecs.INT_STRING);
+    assertEquals(43, tree.getLsn());
+    assertContents(expected, tree.cursor());
+  }
+
+  @Test
+  public void testBloomFilter() {
+    BloomFilter filter = new BloomFilter(10000, Global.LSM_BLOOM_BITS_PER_KEY);
+    for (int i = 0; i < 10000; i++)
+      filter.add(ByteBuffer.allocate(4).putInt(i).array());
+    for (int i = 0; i < 10000; i++)
+      assertTrue(filter.mightContain(ByteBuffer.allocate(4).putInt(i).array()));
+    int falsePositives = 0;
+    for (int i = 10000; i < 20000; i++)
+      if (filter.mightContain(ByteBuffer.allocate(4).putInt(i).array()))
+        falsePositives++;
+    // about 1% at 10 bits a key
+    assertTrue(falsePositives < 300);
+  }
+
+  @Test
+  public void testBulkLoad() {
+    ArrayList<Pair<Integer, String>> sorted = new ArrayList<>();
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) {
+      sorted.add(new Pair<>(i, "value" + i));
+      expected.put(i, "value" + i);
+    }
+    tree.bulkLoad(sorted.iterator(), 1);
+    assertEquals(1000, tree.size());
+    assertContents(expected, tree.cursor());
+  }
+}
@@ -0,0 +1,173 @@
+package cn.edu.thssdb.index;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.common.Pair;
+import cn.edu.thssdb.storage.BufferPool;
+import cn.edu.thssdb.storage.PageFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PagedBPlusTreeTest {
+  private File file;
+  private long bufferPoolSize;
+  private ArrayList<Integer> keys;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("paged", ".tree");
+    file.delete();
+    bufferPoolSize = Global.BUFFER_POOL_SIZE;
+    // a handful of leaves, so that most of the tree is paged out
+    Global.BUFFER_POOL_SIZE = 8L * Global.PAGE_SIZE;
+    keys = new ArrayList<>();
+    for (int i = 0; i < 20000; i++)
+      keys.add(i);
+    Collections.shuffle(keys);
+  }
+
+  @After
+  public void tearDown() {
+    Global.BUFFER_POOL_SIZE = bufferPoolSize;
+    file.delete();
+  }
+
+  @Test
+  public void testPagedOut() {
+    BPlusTree<Integer, String> tree = new BPlusTree<>(new PageFile(file.getPath()), Codecs.INT_STRING);
+    for (Integer key : keys)
+      tree.put(key, "value" + key);
+    assertTrue(BufferPool.getInstance().getUsedPages() <= BufferPool.getInstance().getCapacity());
+    for (Integer key : keys)
+      assertEquals("value" + key, tree.get(key));
+    for (int i = 0; i < keys.size(); i += 2)
+      tree.remove(keys.get(i));
+    assertEquals(keys.size() / 2, tree.size());
+    for (int i = 0; i < keys.size(); i++)
+      assertEquals(i % 2 == 1, tree.contains(keys.get(i)));
+    tree.close();
+  }
+
+  @Test
+  public void testFanout() {
+    // trees of different fanouts side by side, the narrowest one splits or merges at every other change
+    BPlusTree<Integer, String> narrow = new BPlusTree<>(new PageFile(file.getPath()), Codecs.INT_STRING, KeyLayout.<Integer>objects(), Global.MIN_FANOUT);
+    BPlusTree<Integer, String> wide = new BPlusTree<>(KeyLayout.<Integer>objects(), 1024);
+    for (Integer key : keys) {
+      narrow.put(key, "value" + key);
+      wide.put(key, "value" + key);
+    }
+    for (int i = 0; i < keys.size(); i += 2) {
+      narrow.remove(keys.get(i));
+      wide.remove(keys.get(i));
+    }
+    assertEquals(Global.MIN_FANOUT, narrow.getFanout());
+    narrow.checkpoint();
+    narrow.close();
+
+    narrow = new BPlusTree<>(new PageFile(file.getPath()), Codecs.INT_STRING, KeyLayout.<Integer>objects(), Global.MIN_FANOUT);
+    assertEquals(keys.size() / 2, narrow.size());
+    BPlusTreeCursor<Integer, String> cursor = narrow.cursor();
+    for (Pair<Integer, String> pair : wide) {
+      assertTrue(cursor.next());
+      assertEquals(pair.left, cursor.key());
+      assertEquals(pair.right, cursor.value());
+    }
+    assertFalse(cursor.next());
+    narrow.close();
+  }
+
+  @Test
+  public void testCheckpoint() {
+    BPlusTree<Integer, String> tree = new BPlusTree<>(new PageFile(file.getPath()), Codecs.INT_STRING);
+    for (Integer key : keys)
+      tree.put(key, "value" + key);
+    tree.checkpoint();
+    // changes after the last checkpoint are lost, even if some of their pages were written by eviction
+    for (int i = 0; i < keys.size(); i += 2)
+      tree.remove(keys.get(i));
+    tree.close();
+
+    tree = new BPlusTree<>(new PageFile(file.getPath()), Codecs.INT_STRING);
+    assertEquals(keys.size(), tree.size());
+    HashMap<Integer, String> map = new HashMap<>();
+    for (Pair<Integer, String> pair : tree)
+      map.put(pair.left, pair.right);
+    assertEquals(keys.size(), map.size());
+    for (Integer key : keys)
+      assertEquals("value" + key, map.get(key));
+
+    for (int i = 0; i < keys.size(); i += 2)
+      tree.remove(keys.get(i));
+    tree.checkpoint();
+    long length = file.length();
+    // a second checkpoint without changes writes nothing but the header
+    tree.checkpoint();
+    assertEquals(length, file.length());
+    tree.close();
+
+    tree = new BPlusTree<>(new PageFile(file.getPath()), Codecs.INT_STRING);
+    assertEquals(keys.size() / 2, tree.size());
+    for (int i = 0; i < keys.size(); i++)
+      assertEquals(i % 2 == 1, tree.contains(keys.get(i)));
+    assertFalse(tree.contains(-1));
+    // leaves opened from the file are linked in both directions
+    BPlusTreeCursor<Integer, String> cursor = tree.descendingCursor();
+    int count = 0;
+    Integer last = Integer.MAX_VALUE;
+    while (cursor.next()) {
+      assertTrue(cursor.key() < last);
+      assertEquals("value" + cursor.key(), cursor.value());
+      last = cursor.key();
+      count++;
+    }
+    assertEquals(keys.size() / 2, count);
+    tree.close();
+  }
+
+  @Test
+  public void testMapped() {
+    int regionSize = Global.MAP_REGION_SIZE;
+    // regions of a few pages, so that reads cross regions and the file grows past the mapped part
+    Global.MAP_REGION_SIZE = 16 * Global.PAGE_SIZE;
+    try {
+      BPlusTree<Integer, String> tree = new BPlusTree<>(new PageFile(file.getPath(), 0, true), Codecs.INT_STRING);
+      for (Integer key : keys)
+        tree.put(key, "value" + key);
+      for (Integer key : keys)
+        assertEquals("value" + key, tree.get(key));
+      tree.checkpoint();
+      for (int i = 0; i < keys.size(); i += 2)
+        tree.remove(keys.get(i));
+      tree.checkpoint();
+      tree.close();
+
+      // pages written through the channel are read back through the mappings
+      PageFile mapped = new PageFile(file.getPath(), 0, true);
+      assertTrue(mapped.isMapped());
+      tree = new BPlusTree<>(mapped, Codecs.INT_STRING);
+      assertEquals(keys.size() / 2, tree.size());
+      for (int i = 0; i < keys.size(); i++)
+        assertEquals(i % 2 == 1, tree.contains(keys.get(i)));
+      int count = 0;
+      for (Pair<Integer, String> pair : tree) {
+        assertEquals("value" + pair.left, pair.right);
+        count++;
+      }
+      assertEquals(keys.size() / 2, count);
+      tree.close();
+    } finally {
+      Global.MAP_REGION_SIZE = regionSize;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.BPlusTreeCursor;
+import cn.edu.thssdb.index.KeyLayout;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompoundKeyTest {
+  private static Cell key(int tenant, int id) {
+    return new Cell(new CompoundKey(new Comparable[]{tenant, id}));
+  }
+
+  @Test
+  public void testOrder() {
+    assertTrue(key(1, 2).compareTo(key(1, 3)) < 0);
+    assertTrue(key(1, 9).compareTo(key(2, 0)) < 0);
+    assertEquals(0, key(3, 4).compareTo(key(3, 4)));
+    assertEquals(key(3, 4), key(3, 4));
+    // 前缀哨兵落在所有同前缀的键两侧
+    CompoundKey lower = CompoundKey.lowerBound(2);
+    CompoundKey upper = CompoundKey.upperBound(2);
+    assertTrue(lower.compareTo((CompoundKey) key(1, Integer.MAX_VALUE).value) > 0);
+    assertTrue(lower.compareTo((CompoundKey) key(2, Integer.MIN_VALUE).value) < 0);
+    assertTrue(upper.compareTo((CompoundKey) key(2, Integer.MAX_VALUE).value) > 0);
+    assertTrue(upper.compareTo((CompoundKey) key(3, Integer.MIN_VALUE).value) < 0);
+    assertTrue(lower.compareTo(upper) < 0);
+  }
+
+  @Test
+  public void testPackIntPair() {
+    int[] values = {Integer.MIN_VALUE, -5, -1, 0, 1, 5, Integer.MAX_VALUE};
+    ArrayList<Cell> keys = new ArrayList<>();
+    for (int tenant : values)
+      for (int id : values)
+        keys.add(key(tenant, id));
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(keys.get(i), Table.unpackIntPair(Table.packIntPair(keys.get(i))));
+      if (i > 0)
+        assertTrue(Table.packIntPair(keys.get(i - 1)) < Table.packIntPair(keys.get(i)));
+    }
+    assertEquals(Table.packIntPair(key(5, Integer.MIN_VALUE)), Table.packIntPair(new Cell(CompoundKey.lowerBound(5))));
+    assertEquals(Table.packIntPair(key(5, Integer.MAX_VALUE)), Table.packIntPair(new Cell(CompoundKey.upperBound(5))));
+  }
+
+  private static ArrayList<Integer> ids(BPlusTreeCursor<Cell, Integer> cursor) {
+    ArrayList<Integer> ids = new ArrayList<>();
+    while (cursor.next())
+      ids.add(cursor.value());
+    return ids;
+  }
+
+  @Test
+  public void testPrefixRange() {
+    ArrayList<Integer> order = new ArrayList<>();
+    for (int i = 0; i < 10000; i++)
+      order.add(i);
+    Collections.shuffle(order);
+    BPlusTree<Cell, Integer> objects = new BPlusTree<>(KeyLayout.<Cell>objects());
+    BPlusTree<Cell, Integer> longs = new BPlusTree<>(KeyLayout.longs(Table::packIntPair, Table::unpackIntPair));
+    for (int i : order) {
+      objects.put(key(i / 100, i % 100), i);
+      longs.put(key(i / 100, i % 100), i);
+    }
+    ArrayList<Integer> tenant42 = new ArrayList<>();
+    for (int i = 4200; i < 4300; i++)
+      tenant42.add(i);
+    ArrayList<Integer> tenants10to12 = new ArrayList<>();
+    for (int i = 1000; i < 1300; i++)
+      tenants10to12.add(i);
+    for (BPlusTree<Cell, Integer> tree : Arrays.asList(objects, longs)) {
+      Cell lower = new Cell(CompoundKey.lowerBound(42));
+      Cell upper = new Cell(CompoundKey.upperBound(42));
+      assertEquals(tenant42, ids(tree.range(lower, true, upper, true)));
+      // tenant > 9 and tenant < 13
+      assertEquals(tenants10to12, ids(tree.range(new Cell(CompoundKey.upperBound(9)), false,
+              new Cell(CompoundKey.lowerBound(13)), false)));
+      BPlusTreeCursor<Cell, Integer> cursor = tree.seek(key(42, 7));
+      assertTrue(cursor.next());
+      assertEquals(key(42, 7), cursor.key());
+    }
+  }
+}
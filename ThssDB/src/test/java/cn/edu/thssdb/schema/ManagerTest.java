@@ -0,0 +1,155 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.DatabaseNotExistException;
+import cn.edu.thssdb.exception.TableNotExistException;
+import cn.edu.thssdb.parser.SQLHandler;
+import cn.edu.thssdb.transaction.SessionManager;
+import cn.edu.thssdb.type.ColumnType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ManagerTest {
+  private Manager manager;
+  private SQLHandler handler;
+  private SessionManager sessions;
+  private long one;
+  private long two;
+  private String first;
+  private String second;
+
+  @Before
+  public void setUp() {
+    manager = new Manager();
+    handler = new SQLHandler(manager);
+    sessions = SessionManager.getInstance();
+    one = sessions.connect().getId();
+    two = sessions.connect().getId();
+    first = "manager_test_a" + System.nanoTime();
+    second = "manager_test_b" + System.nanoTime();
+    manager.createDatabaseIfNotExists(first);
+    manager.createDatabaseIfNotExists(second);
+  }
+
+  @After
+  public void tearDown() {
+    sessions.disconnect(one);
+    sessions.disconnect(two);
+    for (String databaseName : new String[]{first, second}) {
+      try {
+        manager.deleteDatabase(databaseName);
+      } catch (DatabaseNotExistException ignored) {
+      }
+    }
+    manager.persist();
+  }
+
+  private static Column[] columns() {
+    return new Column[]{new Column("id", ColumnType.INT, 1, true, 0)};
+  }
+
+  @Test
+  public void testCurrentDatabasePerSession() {
+    handler.evaluate("use " + first, one);
+    handler.evaluate("use " + second, two);
+    assertEquals(first, manager.getCurrentDatabase(one).getDatabaseName());
+    assertEquals(second, manager.getCurrentDatabase(two).getDatabaseName());
+
+    handler.evaluate("create table t1 (id int, primary key(id))", one);
+    handler.evaluate("create table t2 (id int, primary key(id))", two);
+    manager.get(first).get("t1");
+    manager.get(second).get("t2");
+    try {
+      manager.get(first).get("t2");
+      fail();
+    } catch (TableNotExistException ignored) {
+    }
+
+    // 删掉的数据库不再是会话的当前数据库，别的会话不受影响
+    Database dropped = manager.get(second);
+    handler.evaluate("drop database " + second, one);
+    assertEquals(first, manager.getCurrentDatabase(one).getDatabaseName());
+    assertNotSame(dropped, manager.getCurrentDatabase(two));
+  }
+
+  @Test
+  public void testCommitAfterDatabaseDropped() {
+    handler.evaluate("use " + second, one);
+    handler.evaluate("create table t (id int, primary key(id))", one);
+    handler.evaluate("begin transaction", one);
+    handler.evaluate("insert into t values (1)", one);
+    Table table = manager.get(second).get("t");
+    assertTrue(table.isLocked());
+
+    // the session's current database is gone, its transaction still ends and gives its locks back
+    handler.evaluate("drop database " + second, two);
+    assertEquals("commit transaction.", handler.evaluate("commit", one).get(0).errorMessage);
+    assertFalse(sessions.get(one).inTransaction());
+    assertFalse(table.isLocked());
+  }
+
+  @Test
+  public void testDisconnectRollsBack() {
+    handler.evaluate("use " + first, one);
+    handler.evaluate("create table t (id int, primary key(id))", one);
+    handler.evaluate("begin transaction", one);
+    handler.evaluate("insert into t values (1)", one);
+    Table table = manager.get(first).get("t");
+    assertTrue(table.iterator().hasNext());
+
+    sessions.disconnect(one);
+    assertFalse(table.iterator().hasNext());
+    assertFalse(table.isLocked());
+    // the id is gone for good, statements with it are refused instead of getting a new session
+    String message = handler.evaluate("insert into t values (2)", one).get(0).errorMessage;
+    assertTrue(message.contains("connect first"));
+    assertNull(sessions.get(one));
+    assertFalse(table.iterator().hasNext());
+  }
+
+  @Test
+  public void testConcurrentCatalog() throws InterruptedException {
+    Database database = manager.get(first);
+    database.create("fixed", columns());
+    Table fixed = database.get("fixed");
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Thread reader = new Thread(() -> {
+        try {
+          while (!done.get()) {
+            assertSame(fixed, manager.get(first).get("fixed"));
+            assertSame(database, manager.get(first));
+          }
+        } catch (Throwable e) {
+          failure.set(e);
+        }
+      });
+      reader.start();
+      readers.add(reader);
+    }
+    for (int i = 0; i < 50; i++)
+      database.create("t" + i, columns());
+    for (int i = 0; i < 50; i++)
+      database.drop("t" + i);
+    done.set(true);
+    for (Thread reader : readers)
+      reader.join();
+    if (failure.get() != null)
+      throw new AssertionError(failure.get());
+  }
+}
@@ -0,0 +1,239 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.exception.LockAbortedException;
+import cn.edu.thssdb.transaction.LockManager;
+import cn.edu.thssdb.transaction.Session;
+import cn.edu.thssdb.transaction.SessionManager;
+import cn.edu.thssdb.transaction.Snapshot;
+import cn.edu.thssdb.transaction.TransactionManager;
+import cn.edu.thssdb.type.ColumnType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MultiVersionTest {
+  private TransactionManager transactions;
+  private Table table;
+
+  @Before
+  public void setUp() {
+    transactions = TransactionManager.getInstance();
+    table = new Table("mvcc_test_" + System.nanoTime(), "t", new Column[]{
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 16)});
+    for (int i = 0; i < 10; i++)
+      table.insert(row(i, "n" + i));
+  }
+
+  @After
+  public void tearDown() {
+    table.dropTable();
+    File databaseFolder = new File(table.getTableFolderPath()).getParentFile();
+    new File(table.getTableFolderPath()).delete();
+    databaseFolder.delete();
+  }
+
+  private static Row row(int id, String name) {
+    return new Row(new Cell[]{new Cell(id), new Cell(name)});
+  }
+
+  private static ArrayList<String> rows(Iterator<Row> iterator) {
+    ArrayList<String> rows = new ArrayList<>();
+    while (iterator.hasNext())
+      rows.add(iterator.next().toString());
+    return rows;
+  }
+
+  private static ArrayList<String> expected(int from, int to, String... changes) {
+    ArrayList<String> rows = new ArrayList<>();
+    for (int i = from; i < to; i++)
+      rows.add(i + ", n" + i);
+    for (String change : changes) {
+      int id = Integer.parseInt(change.substring(1, change.indexOf(',')));
+      rows.removeIf(row -> row.startsWith(id + ","));
+      if (change.charAt(0) == '+')
+        rows.add(change.substring(1));
+    }
+    rows.sort((a, b) -> Integer.parseInt(a.split(",")[0]) - Integer.parseInt(b.split(",")[0]));
+    return rows;
+  }
+
+  @Test
+  public void testSnapshotIsolation() {
+    Snapshot reader = transactions.begin();
+    Snapshot writer = transactions.begin();
+    table.insert(row(10, "n10"), writer.getTransaction());
+    table.update(new Cell(3), row(3, "changed"), writer.getTransaction());
+    table.delete(row(5, "n5"), writer.getTransaction());
+    table.update(new Cell(7), row(11, "moved"), writer.getTransaction());
+    ArrayList<String> before = expected(0, 10);
+    ArrayList<String> after = expected(0, 11, "+3, changed", "-5,", "-7,", "+11, moved");
+
+    assertEquals(before, rows(table.iterator(reader)));
+    assertEquals(after, rows(table.iterator(writer)));
+    assertEquals(after, rows(table.iterator()));
+    assertEquals("3, n3", table.get(new Cell(3), reader).toString());
+    assertEquals("5, n5", table.get(new Cell(5), reader).toString());
+    assertNull(table.get(new Cell(10), reader));
+    assertNull(table.get(new Cell(5), writer));
+    assertEquals(expected(4, 8), rows(table.range(new Cell(4), true, new Cell(8), false, reader)));
+
+    // the reader keeps its snapshot after the writer commits, transactions started later see the writes
+    transactions.end(writer);
+    Snapshot later = transactions.begin();
+    assertEquals(before, rows(table.iterator(reader)));
+    assertEquals(after, rows(table.iterator(later)));
+    transactions.end(later);
+    transactions.end(reader);
+  }
+
+  @Test
+  public void testSecondaryIndex() {
+    table.createIndex("by_name", "name");
+    Snapshot reader = transactions.begin();
+    Snapshot writer = transactions.begin();
+    table.update(new Cell(2), row(2, "n9"), writer.getTransaction());
+    table.delete(row(4, "n4"), writer.getTransaction());
+    int name = table.searchColumn("name");
+    // the index has moved on, rows it no longer points to come from the version chains
+    ArrayList<String> old = new ArrayList<>();
+    Iterator<Row> iterator = table.range(name, new Cell("n2"), true, new Cell("n4"), true, reader);
+    while (iterator.hasNext()) {
+      Row row = iterator.next();
+      String value = (String) row.getEntries().get(name).value;
+      if (value.compareTo("n2") >= 0 && value.compareTo("n4") <= 0)
+        old.add(row.toString());
+    }
+    old.sort(null);
+    assertEquals(expected(2, 5), old);
+    assertEquals(expected(9, 10, "+2, n9"), rows(table.range(name, new Cell("n9"), true, new Cell("n9"), true, writer)));
+    transactions.end(writer);
+    transactions.end(reader);
+  }
+
+  @Test
+  public void testConcurrentWriters() throws InterruptedException {
+    int sessions = 4;
+    int rounds = 200;
+    LockManager locks = LockManager.getInstance();
+    ArrayList<Thread> writers = new ArrayList<>();
+    for (int s = 0; s < sessions; s++) {
+      long session = 1000 + s;
+      int first = 100 + s * rounds;
+      Thread writer = new Thread(() -> {
+        for (int i = 0; i < rounds; i++) {
+          Snapshot snapshot = transactions.begin();
+          // rows of their own, without waiting for the others
+          table.takeRowXLock(session, new Cell(first + i));
+          table.insert(row(first + i, "s" + session), snapshot.getTransaction());
+          // and a row they all change, one after the other
+          table.takeRowXLock(session, new Cell(0));
+          int count = Integer.parseInt(((String) table.get(new Cell(0)).getEntries().get(1).value).substring(1));
+          table.update(new Cell(0), row(0, "n" + (count + 1)), snapshot.getTransaction());
+          locks.unlockAll(session);
+          transactions.end(snapshot);
+        }
+      });
+      writers.add(writer);
+      writer.start();
+    }
+    for (Thread writer : writers)
+      writer.join();
+    assertEquals(10 + sessions * rounds, rows(table.iterator()).size());
+    assertEquals("0, n" + sessions * rounds, table.get(new Cell(0)).toString());
+    assertFalse(table.isLocked());
+  }
+
+  @Test
+  public void testDeadlockVictimRollsBack() throws InterruptedException {
+    table.createIndex("by_name", "name");
+    int name = table.searchColumn("name");
+    Session older = SessionManager.getInstance().connect();
+    Session younger = SessionManager.getInstance().connect();
+    older.begin();
+    younger.begin();
+    table.takeRowXLock(older.getId(), new Cell(1));
+    table.update(new Cell(1), row(1, "o1"), older.getSnapshot().getTransaction());
+    older.wrote(null, table);
+    long victim = younger.getSnapshot().getTransaction();
+    for (int id : new int[]{2, 3, 20})
+      table.takeRowXLock(younger.getId(), new Cell(id));
+    table.update(new Cell(2), row(2, "y2"), victim);
+    table.delete(row(3, "n3"), victim);
+    table.insert(row(20, "y20"), victim);
+    younger.wrote(null, table);
+    Snapshot during = transactions.begin();
+
+    Thread waiting = new Thread(() -> table.takeRowXLock(older.getId(), new Cell(2)));
+    waiting.start();
+    while (waiting.getState() != Thread.State.WAITING && waiting.isAlive())
+      Thread.sleep(1);
+    try {
+      table.takeRowXLock(younger.getId(), new Cell(1));
+      fail();
+    } catch (LockAbortedException e) {
+      younger.abort();
+    }
+    waiting.join();
+    older.commit();
+
+    // the victim's writes are gone from the tree, the secondary index and every snapshot
+    ArrayList<String> after = expected(0, 10, "+1, o1");
+    Snapshot later = transactions.begin();
+    assertEquals(after, rows(table.iterator()));
+    assertEquals(after, rows(table.iterator(later)));
+    assertEquals(expected(0, 10), rows(table.iterator(during)));
+    assertNull(table.get(new Cell(20), later));
+    assertNull(table.get(new Cell(20), during));
+    assertFalse(table.index.contains(new Cell(20)));
+    ArrayList<String> names = new ArrayList<>();
+    Iterator<Row> iterator = table.range(name, new Cell("n3"), true, new Cell("y3"), true, later);
+    while (iterator.hasNext())
+      names.add((String) iterator.next().getEntries().get(name).value);
+    assertTrue(names.contains("n3"));
+    assertFalse(names.contains("y2") || names.contains("y20"));
+    assertEquals(1, younger.getAborts());
+    assertFalse(table.isLocked());
+    transactions.end(later);
+    transactions.end(during);
+
+    // once every snapshot has passed it, nothing of the aborted transaction is left
+    transactions.vacuum();
+    assertEquals(0, table.versions.size());
+    Snapshot last = transactions.begin();
+    assertNull(table.get(new Cell(20), last));
+    assertEquals(after, rows(table.iterator(last)));
+    transactions.end(last);
+  }
+
+  @Test
+  public void testVacuum() {
+    Snapshot reader = transactions.begin();
+    Snapshot writer = transactions.begin();
+    for (int i = 0; i < 10; i++)
+      table.update(new Cell(i), row(i, "v" + i), writer.getTransaction());
+    transactions.end(writer);
+
+    // versions the reader still sees are kept
+    transactions.vacuum();
+    assertEquals(10, table.versions.size());
+    assertEquals(expected(0, 10), rows(table.iterator(reader)));
+
+    transactions.end(reader);
+    transactions.vacuum();
+    assertEquals(0, table.versions.size());
+    Snapshot later = transactions.begin();
+    assertEquals("3, v3", table.get(new Cell(3), later).toString());
+    transactions.end(later);
+  }
+}
@@ -0,0 +1,561 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.FileIOException;
+import cn.edu.thssdb.exception.TableOptionInvalidException;
+import cn.edu.thssdb.transaction.Session;
+import cn.edu.thssdb.transaction.SessionManager;
+import cn.edu.thssdb.transaction.Snapshot;
+import cn.edu.thssdb.transaction.TransactionManager;
+import cn.edu.thssdb.type.ColumnType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RedoLogTest {
+  private String name;
+  private Database database;
+
+  @Before
+  public void setUp() {
+    name = "redo_test_" + System.nanoTime();
+    database = new Database(name);
+    database.create("t", new Column[]{
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 16)});
+  }
+
+  @After
+  public void tearDown() {
+    database.dropDatabase();
+    for (File segment : logSegments())
+      segment.delete();
+    new File(database.getDatabaseLogFilePath()).delete();
+    new File(database.getDatabaseTableFolderPath()).delete();
+    new File(database.getDatabasePath()).delete();
+  }
+
+  private File[] logSegments() {
+    File log = new File(database.getDatabaseLogFilePath());
+    return log.getParentFile().listFiles((dir, name) -> name.startsWith(log.getName() + "."));
+  }
+
+  private static Row row(int id, String name) {
+    return new Row(new Cell[]{new Cell(id), new Cell(name)});
+  }
+
+  private ArrayList<String> rows() {
+    ArrayList<String> rows = new ArrayList<>();
+    for (Row row : database.get("t"))
+      rows.add(row.toString());
+    return rows;
+  }
+
+  // close without a checkpoint, as if the server had crashed
+  private void restart() {
+    database.close();
+    database = new Database(name);
+  }
+
+  // keep only what reached the log file, as if the server had crashed before closing the log
+  private void crash() throws IOException {
+    File log = new File(database.getDatabaseLogFilePath());
+    byte[] written = Files.readAllBytes(log.toPath());
+    database.close();
+    Files.write(log.toPath(), written);
+    database = new Database(name);
+  }
+
+  @Test
+  public void testReplayCommitted() {
+    TransactionManager transactions = TransactionManager.getInstance();
+    Table table = database.get("t");
+    for (int i = 0; i < 5; i++)
+      table.insert(row(i, "n" + i));
+    Snapshot committed = transactions.begin();
+    table.update(new Cell(1), row(1, "changed"), committed.getTransaction());
+    table.delete(row(2, "n2"), committed.getTransaction());
+    table.update(new Cell(3), row(7, "moved"), committed.getTransaction());
+    database.commit(committed.getTransaction());
+    transactions.end(committed);
+    Snapshot open = transactions.begin();
+    table.insert(row(9, "lost"), open.getTransaction());
+    transactions.end(open);
+
+    ArrayList<String> expected = new ArrayList<>();
+    expected.add("0, n0");
+    expected.add("1, changed");
+    expected.add("4, n4");
+    expected.add("7, moved");
+    restart();
+    assertEquals(expected, rows());
+    // transaction ids of the log are not handed out again
+    Snapshot next = transactions.begin();
+    assertTrue(next.getTransaction() > open.getTransaction());
+    transactions.end(next);
+    // replaying again changes nothing
+    restart();
+    assertEquals(expected, rows());
+
+    // after a checkpoint the records it covers are skipped
+    database.quit();
+    long lsn = database.get("t").getLsn();
+    assertTrue(lsn > 0 && lsn < database.getLog().getLsn());
+    restart();
+    assertEquals(lsn, database.get("t").getLsn());
+    assertEquals(expected, rows());
+  }
+
+  @Test
+  public void testAutocommitDurable() throws IOException {
+    Table table = database.get("t");
+    Snapshot committed = TransactionManager.getInstance().begin();
+    table.insert(row(1, "committed"), committed.getTransaction());
+    database.commit(committed.getTransaction());
+    TransactionManager.getInstance().end(committed);
+    // statements outside of any transaction are acknowledged once they return, with no commit after them
+    table.insert(row(2, "autocommit"));
+    ArrayList<Row> rows = new ArrayList<>();
+    rows.add(row(3, "batch"));
+    rows.add(row(4, "batch"));
+    table.insert(rows);
+    table.update(new Cell(1), row(5, "moved"));
+
+    ArrayList<String> expected = new ArrayList<>();
+    expected.add("2, autocommit");
+    expected.add("3, batch");
+    expected.add("4, batch");
+    expected.add("5, moved");
+    crash();
+    assertEquals(expected, rows());
+  }
+
+  @Test
+  public void testLsmEngine() {
+    Column[] columns = {
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 16)};
+    database.create("e", columns, Global.fanout, false, Global.ENGINE_LSM);
+    Table table = database.get("e");
+    for (int i = 0; i < 5; i++)
+      table.insert(row(i, "n" + i));
+    table.update(new Cell(1), row(1, "changed"));
+    table.delete(row(2, "n2"));
+    table.update(new Cell(3), row(7, "moved"));
+    ArrayList<String> expected = new ArrayList<>();
+    expected.add("0, n0");
+    expected.add("1, changed");
+    expected.add("4, n4");
+    expected.add("7, moved");
+
+    // the engine is kept in the metadata, the changes are replayed into the memtable
+    restart();
+    table = database.get("e");
+    assertEquals(Global.ENGINE_LSM, table.getEngine());
+    ArrayList<String> rows = new ArrayList<>();
+    for (Row row : table)
+      rows.add(row.toString());
+    assertEquals(expected, rows);
+    assertEquals("changed", table.get(new Cell(1)).getEntries().get(1).toString());
+    assertFalse(table.index.contains(new Cell(2)));
+
+    // a checkpoint writes the memtable into a run, nothing is left to replay
+    database.quit();
+    long lsn = table.getLsn();
+    assertTrue(lsn > 0);
+    restart();
+    table = database.get("e");
+    assertEquals(lsn, table.getLsn());
+    rows.clear();
+    for (Row row : table)
+      rows.add(row.toString());
+    assertEquals(expected, rows);
+  }
+
+  @Test(expected = TableOptionInvalidException.class)
+  public void testLsmEngineNotMapped() {
+    database.create("e", new Column[]{new Column("id", ColumnType.INT, 1, true, 0)}, Global.fanout, true, Global.ENGINE_LSM);
+  }
+
+  @Test
+  public void testDroppedTable() {
+    database.get("t").insert(row(1, "old"));
+    database.drop("t");
+    database.create("t", new Column[]{
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 16)});
+    database.get("t").insert(row(2, "new"));
+    restart();
+    ArrayList<String> expected = new ArrayList<>();
+    expected.add("2, new");
+    assertEquals(expected, rows());
+  }
+
+  @Test
+  public void testParallelReplay() {
+    TransactionManager transactions = TransactionManager.getInstance();
+    int tables = 6;
+    for (int t = 1; t < tables; t++)
+      database.create("t" + t, new Column[]{
+              new Column("id", ColumnType.INT, 1, true, 0),
+              new Column("name", ColumnType.STRING, 0, false, 16)});
+    // transactions that touch several tables, and one that never commits
+    for (int i = 0; i < 200; i++) {
+      Snapshot snapshot = transactions.begin();
+      for (int t = 1; t < tables; t++)
+        if ((i + t) % 3 != 0)
+          database.get("t" + t).insert(row(i, "t" + t + "-" + i), snapshot.getTransaction());
+      database.commit(snapshot.getTransaction());
+      transactions.end(snapshot);
+    }
+    Snapshot open = transactions.begin();
+    database.get("t1").insert(row(1000, "lost"), open.getTransaction());
+    transactions.end(open);
+    database.get("t2").update(new Cell(0), row(0, "changed"));
+    database.get("t3").delete(row(1, "t3-1"));
+
+    ArrayList<ArrayList<String>> expected = new ArrayList<>();
+    for (int t = 1; t < tables; t++) {
+      ArrayList<String> rows = new ArrayList<>();
+      for (Row row : database.get("t" + t))
+        if (!row.toString().equals("1000, lost"))
+          rows.add(row.toString());
+      expected.add(rows);
+    }
+    int threads = Global.RECOVERY_THREADS;
+    Global.RECOVERY_THREADS = 4;
+    try {
+      restart();
+    } finally {
+      Global.RECOVERY_THREADS = threads;
+    }
+    for (int t = 1; t < tables; t++) {
+      ArrayList<String> rows = new ArrayList<>();
+      for (Row row : database.get("t" + t))
+        rows.add(row.toString());
+      assertEquals(expected.get(t - 1), rows);
+    }
+    // t was not in the log and stays closed
+    assertFalse(database.get("t").isLoaded());
+  }
+
+  @Test
+  public void testLazyTables() throws InterruptedException {
+    database.create("u", new Column[]{new Column("id", ColumnType.INT, 1, true, 0)});
+    database.get("t").insert(row(1, "a"));
+    database.get("u").insert(new Row(new Cell[]{new Cell(1)}));
+    database.quit();
+    restart();
+    // only the metadata is read when the database is opened
+    assertFalse(database.get("t").isLoaded());
+    assertFalse(database.get("u").isLoaded());
+    ArrayList<String> expected = new ArrayList<>();
+    expected.add("1, a");
+    assertEquals(expected, rows());
+    assertTrue(database.get("t").isLoaded());
+    assertFalse(database.get("u").isLoaded());
+
+    // a checkpoint closes the tables nobody touched for a while
+    long idle = Global.TABLE_IDLE_TIME;
+    Global.TABLE_IDLE_TIME = 50;
+    try {
+      database.get("t").insert(row(2, "b"));
+      Thread.sleep(100);
+      database.get("u").get(new Cell(1));
+      database.checkpoint();
+      assertFalse(database.get("t").isLoaded());
+      assertTrue(database.get("u").isLoaded());
+      // a table a snapshot may still read stays open
+      Snapshot snapshot = TransactionManager.getInstance().begin();
+      database.get("u").insert(new Row(new Cell[]{new Cell(2)}), snapshot.getTransaction());
+      database.commit(snapshot.getTransaction());
+      Thread.sleep(100);
+      database.checkpoint();
+      assertTrue(database.get("u").isLoaded());
+      TransactionManager.getInstance().end(snapshot);
+    } finally {
+      Global.TABLE_IDLE_TIME = idle;
+    }
+    expected.add("2, b");
+    assertEquals(expected, rows());
+    restart();
+    assertEquals(expected, rows());
+  }
+
+  @Test
+  public void testUnloadWhileReading() throws InterruptedException {
+    Table table = database.get("t");
+    int size = 2000;
+    for (int i = 0; i < size; i++)
+      table.insert(row(i, "n" + i));
+    database.quit();
+    TransactionManager transactions = TransactionManager.getInstance();
+
+    // an open iterator keeps the table loaded, an access after the idle check too
+    Snapshot snapshot = transactions.begin();
+    Iterator<Row> iterator = table.iterator(snapshot);
+    iterator.next();
+    assertFalse(table.unload(Long.MAX_VALUE));
+    assertTrue(table.isLoaded());
+    int read = 1;
+    while (iterator.hasNext()) {
+      iterator.next();
+      read++;
+    }
+    assertEquals(size, read);
+    assertFalse(table.unload(0));
+    assertTrue(table.unload(Long.MAX_VALUE));
+    assertFalse(table.isLoaded());
+
+    // readers never see the table closed under them while another thread keeps unloading it
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicInteger unloads = new AtomicInteger();
+    Thread unloader = new Thread(() -> {
+      while (!done.get())
+        if (table.unload(Long.MAX_VALUE))
+          unloads.incrementAndGet();
+    });
+    unloader.start();
+    try {
+      for (int round = 0; round < 20; round++) {
+        int count = 0;
+        Iterator<Row> rows = table.iterator(snapshot);
+        while (rows.hasNext()) {
+          rows.next();
+          count++;
+        }
+        assertEquals(size, count);
+        assertEquals("7, n7", table.get(new Cell(7), snapshot).toString());
+        // the next round opens the table again while the unloader tries to close it
+        while (table.isLoaded())
+          Thread.sleep(1);
+      }
+    } finally {
+      done.set(true);
+      unloader.join();
+      transactions.end(snapshot);
+    }
+    assertTrue(unloads.get() >= 20);
+  }
+
+  @Test
+  public void testPinReleasedWhenLoadFails() throws IOException {
+    Table table = new Table(name + "_pin", "t", new Column[]{
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 16)});
+    File tableFolder = new File(table.getTableFolderPath());
+    try {
+      // a plain file where the table folder should be, opening the table fails
+      assertTrue(tableFolder.getParentFile().mkdirs());
+      assertTrue(tableFolder.createNewFile());
+      try {
+        table.get(new Cell(1));
+        fail();
+      } catch (FileIOException e) {
+        assertEquals(0, table.getReaders());
+      }
+      assertFalse(table.isLoaded());
+
+      // once it opens, a reader that has not finished keeps the table from being unloaded
+      assertTrue(tableFolder.delete());
+      table.insert(row(1, "a"));
+      Iterator<Row> iterator = table.iterator();
+      assertTrue(iterator.hasNext());
+      assertEquals(1, table.getReaders());
+      assertFalse(table.unload(Long.MAX_VALUE));
+      iterator.next();
+      assertFalse(iterator.hasNext());
+      assertEquals(0, table.getReaders());
+    } finally {
+      if (tableFolder.isDirectory())
+        table.dropTable();
+      tableFolder.delete();
+      tableFolder.getParentFile().delete();
+    }
+  }
+
+  @Test
+  public void testCleanTablesSkipped() {
+    database.create("u", new Column[]{new Column("id", ColumnType.INT, 1, true, 0)});
+    database.get("t").insert(row(1, "a"));
+    database.get("u").insert(new Row(new Cell[]{new Cell(1)}));
+    database.checkpoint();
+    File[] files = {new File(database.get("t").getTablePath()), new File(database.get("t").getTableMetaPath()),
+            new File(database.get("u").getTablePath()), new File(database.get("u").getTableMetaPath())};
+    for (File file : files)
+      assertTrue(file.setLastModified(1000));
+    long lsn = database.get("u").getLsn();
+
+    // only the table written since the last checkpoint is written again, metadata never changes after create
+    database.get("t").insert(row(2, "b"));
+    database.checkpoint();
+    assertTrue(files[0].lastModified() > 1000);
+    assertEquals(1000, files[1].lastModified());
+    assertEquals(1000, files[2].lastModified());
+    assertEquals(1000, files[3].lastModified());
+    assertEquals(lsn, database.get("u").getLsn());
+    database.quit();
+    assertEquals(1000, files[2].lastModified());
+
+    ArrayList<String> expected = new ArrayList<>();
+    expected.add("1, a");
+    expected.add("2, b");
+    restart();
+    assertEquals(expected, rows());
+    assertTrue(database.get("u").iterator().hasNext());
+  }
+
+  @Test
+  public void testFuzzyCheckpoint() throws InterruptedException {
+    TransactionManager transactions = TransactionManager.getInstance();
+    database.get("t").createIndex("by_name", "name");
+    int size = 3000;
+    AtomicInteger written = new AtomicInteger();
+    Thread writer = new Thread(() -> {
+      Table table = database.get("t");
+      for (int i = 0; i < size; i++) {
+        Snapshot snapshot = transactions.begin();
+        table.insert(row(i, "n" + i), snapshot.getTransaction());
+        if (i % 3 == 0)
+          table.update(new Cell(i / 2), row(i / 2, "u" + i), snapshot.getTransaction());
+        database.commit(snapshot.getTransaction());
+        transactions.end(snapshot);
+        written.incrementAndGet();
+      }
+    });
+    // checkpoints while the writer goes on, the last few hundred transactions are left to replay
+    writer.start();
+    boolean checkpointed = false;
+    while (written.get() < size - 300 || !checkpointed) {
+      database.checkpoint();
+      checkpointed = true;
+    }
+    // only the segment after the last checkpoint is left, and the one before if a transaction began in it
+    assertTrue(logSegments().length <= 1);
+    writer.join();
+
+    ArrayList<String> expected = rows();
+    assertEquals(size, expected.size());
+    restart();
+    assertEquals(expected, rows());
+    Table table = database.get("t");
+    int name = table.searchColumn("name");
+    int indexed = 0;
+    Iterator<Row> iterator = table.range(name, null, false, null, false);
+    while (iterator.hasNext()) {
+      Row row = iterator.next();
+      indexed++;
+      Cell value = row.getEntries().get(name);
+      Iterator<Row> found = table.range(name, value, true, value, true);
+      assertTrue(found.hasNext());
+      assertEquals(row.toString(), found.next().toString());
+    }
+    assertEquals(size, indexed);
+  }
+
+  @Test
+  public void testUndoAfterCheckpoint() {
+    TransactionManager transactions = TransactionManager.getInstance();
+    Table table = database.get("t");
+    table.createIndex("by_name", "name");
+    for (int i = 0; i < 5; i++)
+      table.insert(row(i, "n" + i));
+    ArrayList<String> expected = rows();
+    Snapshot open = transactions.begin();
+    table.insert(row(9, "lost"), open.getTransaction());
+    table.update(new Cell(1), row(1, "lost"), open.getTransaction());
+    table.delete(row(2, "n2"), open.getTransaction());
+    // the checkpoint writes the uncommitted rows and keeps the log they are in
+    database.checkpoint();
+    assertEquals(1, logSegments().length);
+    Snapshot committed = transactions.begin();
+    table.update(new Cell(3), row(3, "kept"), committed.getTransaction());
+    database.commit(committed.getTransaction());
+    transactions.end(committed);
+    transactions.end(open);
+
+    // the transaction never ended: recovery takes its rows out of the table and the index
+    restart();
+    expected.set(3, "3, kept");
+    assertEquals(expected, rows());
+    table = database.get("t");
+    int name = table.searchColumn("name");
+    assertFalse(table.range(name, new Cell("lost"), true, new Cell("lost"), true).hasNext());
+    assertTrue(table.range(name, new Cell("n2"), true, new Cell("n2"), true).hasNext());
+    // the checkpoint after recovery holds the undone table, the old log is gone
+    assertEquals(0, logSegments().length);
+    restart();
+    assertEquals(expected, rows());
+  }
+
+  @Test
+  public void testRollbackLogged() {
+    TransactionManager transactions = TransactionManager.getInstance();
+    Table table = database.get("t");
+    for (int i = 0; i < 5; i++)
+      table.insert(row(i, "n" + i));
+    ArrayList<String> expected = rows();
+    Snapshot aborted = transactions.begin();
+    table.insert(row(9, "lost"), aborted.getTransaction());
+    table.update(new Cell(1), row(1, "lost"), aborted.getTransaction());
+    database.checkpoint();
+    table.rollback(aborted.getTransaction());
+    database.abort(aborted.getTransaction());
+    transactions.abort(aborted);
+    assertEquals(expected, rows());
+    // a later transaction writes a row the aborted one had written, recovery must not put the before-image back
+    Snapshot committed = transactions.begin();
+    table.update(new Cell(1), row(1, "kept"), committed.getTransaction());
+    database.commit(committed.getTransaction());
+    transactions.end(committed);
+
+    restart();
+    expected.set(1, "1, kept");
+    assertEquals(expected, rows());
+  }
+
+  @Test
+  public void testCommitInEveryDatabase() {
+    String otherName = name + "_other";
+    Database other = new Database(otherName);
+    try {
+      other.create("u", new Column[]{
+              new Column("id", ColumnType.INT, 1, true, 0),
+              new Column("name", ColumnType.STRING, 0, false, 16)});
+      // one transaction writes both databases, the commit record must reach both logs
+      Session session = SessionManager.getInstance().connect();
+      session.begin();
+      long transaction = session.getSnapshot().getTransaction();
+      database.get("t").insert(row(1, "here"), transaction);
+      session.wrote(database, database.get("t"));
+      other.get("u").insert(row(2, "there"), transaction);
+      session.wrote(other, other.get("u"));
+      session.commit();
+      SessionManager.getInstance().disconnect(session.getId());
+
+      restart();
+      other.close();
+      other = new Database(otherName);
+      assertEquals("1, here", rows().get(0));
+      assertEquals("2, there", other.get("u").iterator().next().toString());
+    } finally {
+      other.dropDatabase();
+      new File(other.getDatabaseLogFilePath()).delete();
+      new File(other.getDatabaseTableFolderPath()).delete();
+      new File(other.getDatabasePath()).delete();
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.ValueExceedException;
+import cn.edu.thssdb.index.BPlusTree;
+import cn.edu.thssdb.index.KeyLayout;
+import cn.edu.thssdb.index.LSMTree;
+import cn.edu.thssdb.index.SortedCursor;
+import cn.edu.thssdb.storage.PageFile;
+import cn.edu.thssdb.type.ColumnType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RowCodecTest {
+  private static final Column[] COLUMNS = {
+          new Column("id", ColumnType.INT, 1, true, 0),
+          new Column("code", ColumnType.STRING, 2, true, 200),
+          new Column("total", ColumnType.LONG, 0, false, 0),
+          new Column("ratio", ColumnType.FLOAT, 0, false, 0),
+          new Column("score", ColumnType.DOUBLE, 0, false, 0),
+          new Column("a", ColumnType.INT, 0, false, 0),
+          new Column("b", ColumnType.INT, 0, false, 0),
+          new Column("c", ColumnType.INT, 0, false, 0),
+          new Column("note", ColumnType.STRING, 0, false, 8)};
+  private final RowCodec codec = new RowCodec(Arrays.asList(COLUMNS), new int[]{0, 1});
+
+  private static Row row(Comparable... values) {
+    Cell[] cells = new Cell[values.length];
+    for (int i = 0; i < values.length; i++)
+      cells[i] = new Cell(values[i]);
+    return new Row(cells);
+  }
+
+  private static List<Comparable> values(Row row) {
+    ArrayList<Comparable> values = new ArrayList<>();
+    for (Cell cell : row.getEntries())
+      values.add(cell.value);
+    return values;
+  }
+
+  private byte[] encode(Row row) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    codec.writeValue(new DataOutputStream(bytes), row);
+    return bytes.toByteArray();
+  }
+
+  private Row decode(byte[] bytes) throws IOException {
+    return codec.readValue(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Row full = row(1, "k", 2L, 0.5f, 0.25, 3, 4, 5, "清华");
+    assertEquals(values(full), values(decode(encode(full))));
+    // two bitmap bytes, the fixed-width cells, one length byte per string
+    assertEquals(2 + 4 + 2 + 8 + 4 + 8 + 4 * 3 + 1 + 6, encode(full).length);
+
+    Row sparse = row(2, "k", null, null, null, null, null, null, null);
+    byte[] bytes = encode(sparse);
+    assertEquals(2 + 4 + 2, bytes.length);
+    assertEquals(values(sparse), values(decode(bytes)));
+
+    // a string of more than 127 bytes takes a two-byte length
+    char[] chars = new char[200];
+    Arrays.fill(chars, 'x');
+    Row wide = row(3, new String(chars), null, null, null, null, null, null, "");
+    assertEquals(2 + 4 + 2 + 200 + 1, encode(wide).length);
+    assertEquals(values(wide), values(decode(encode(wide))));
+  }
+
+  @Test
+  public void testColumns() throws IOException {
+    String[] regions = {"north", "south", "east"};
+    ArrayList<Row> rows = new ArrayList<>();
+    int rowBytes = 0;
+    for (int i = 0; i < 300; i++) {
+      // sequential ids, few distinct codes, a constant, nulls now and then, a column of nulls, extreme values
+      Row row = row(i, regions[i / 100], 7L, i * 0.5f, i % 10 == 0 ? null : i * 0.25, null,
+              i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE, -i, "n" + i);
+      rows.add(row);
+      rowBytes += encode(row).length;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    codec.writeColumns(new DataOutputStream(bytes), rows);
+    List<Row> decoded = codec.readColumns(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), rows.size());
+    assertEquals(rows.size(), decoded.size());
+    for (int i = 0; i < rows.size(); i++)
+      assertEquals(values(rows.get(i)), values(decoded.get(i)));
+    assertTrue(bytes.size() < rowBytes);
+    // the rows share the strings of the dictionary
+    assertSame(decoded.get(0).getEntries().get(1).value, decoded.get(99).getEntries().get(1).value);
+
+    // sequential keys and columns of few distinct values take a fraction of the rows
+    rows.clear();
+    rowBytes = 0;
+    for (int i = 0; i < 300; i++) {
+      Row row = row(i, regions[i % 3], (long) (i / 50), null, null, 1, 2, 3, i < 150 ? "open" : "closed");
+      rows.add(row);
+      rowBytes += encode(row).length;
+    }
+    bytes.reset();
+    codec.writeColumns(new DataOutputStream(bytes), rows);
+    assertTrue(bytes.size() < rowBytes / 4);
+    decoded = codec.readColumns(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), rows.size());
+    for (int i = 0; i < rows.size(); i++)
+      assertEquals(values(rows.get(i)), values(decoded.get(i)));
+
+    // a block of deletions only has no values
+    bytes.reset();
+    codec.writeColumns(new DataOutputStream(bytes), new ArrayList<>());
+    assertEquals(0, codec.readColumns(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 0).size());
+  }
+
+  @Test
+  public void testStatistics() throws IOException {
+    ArrayList<Row> rows = new ArrayList<>();
+    for (int i = 10; i < 20; i++)
+      rows.add(row(i, "k" + i, null, null, null, null, null, null, null));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    codec.writeStatistics(new DataOutputStream(bytes), rows);
+    Object statistics = codec.readStatistics(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertTrue(RowCodec.overlaps(0, new Cell(19), true, null, false).test(statistics));
+    assertFalse(RowCodec.overlaps(0, new Cell(19), false, null, false).test(statistics));
+    assertFalse(RowCodec.overlaps(0, null, false, new Cell(10), false).test(statistics));
+    assertTrue(RowCodec.overlaps(0, new Cell(15), true, new Cell(15), true).test(statistics));
+    assertFalse(RowCodec.overlaps(1, new Cell("k2"), true, new Cell("k2"), true).test(statistics));
+    // a column with nulls has no bounds, its groups are never skipped
+    assertTrue(RowCodec.overlaps(2, new Cell(0L), true, new Cell(0L), true).test(statistics));
+  }
+
+  @Test
+  public void testSkipRowGroups() throws IOException {
+    File directory = File.createTempFile("columns", ".lsm");
+    directory.delete();
+    Column[] columns = {new Column("id", ColumnType.INT, 1, true, 0), new Column("status", ColumnType.STRING, 0, false, 8)};
+    RowCodec codec = new RowCodec(Arrays.asList(columns), new int[]{0});
+    LSMTree<Cell, Row> tree = new LSMTree<>(directory.getPath(), codec);
+    try {
+      for (int i = 0; i < 1000; i++)
+        tree.put(new Cell(i), row(i, "old"));
+      tree.flush();
+      // the newer run hides the older rows of these keys, whose row groups match "old"
+      for (int i = 0; i < 100; i++)
+        tree.update(new Cell(i), row(i, "new"));
+      tree.flush();
+      assertEquals(100, count(tree.range(null, false, null, false, RowCodec.overlaps(1, new Cell("new"), true, new Cell("new"), true)), "new"));
+      assertEquals(900, count(tree.range(null, false, null, false, RowCodec.overlaps(1, new Cell("old"), true, new Cell("old"), true)), "old"));
+      // no row group has "gone", none is read
+      SortedCursor<Cell, Row> cursor = tree.range(null, false, null, false, RowCodec.overlaps(1, new Cell("gone"), true, new Cell("gone"), true));
+      assertFalse(cursor.next());
+    } finally {
+      tree.drop();
+    }
+  }
+
+  // the rows of the cursor with the status, all of them have it
+  private static int count(SortedCursor<Cell, Row> cursor, String status) {
+    int count = 0;
+    while (cursor.next()) {
+      assertEquals(status, cursor.value().getEntries().get(1).value);
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void testCompoundKey() throws IOException {
+    Cell key = new Cell(new CompoundKey(new Comparable[]{7, "seven"}));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    codec.writeKey(new DataOutputStream(bytes), key);
+    assertEquals(4 + 1 + 5, bytes.size());
+    assertEquals(key, codec.readKey(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+  }
+
+  @Test(expected = ValueExceedException.class)
+  public void testMaxLength() throws IOException {
+    encode(row(1, "k", null, null, null, null, null, null, "too long!"));
+  }
+
+  @Test
+  public void testMigrateTaggedPages() {
+    String databaseName = "codec_test_" + System.nanoTime();
+    Column[] columns = {new Column("id", ColumnType.INT, 1, true, 0), new Column("name", ColumnType.STRING, 0, false, 16)};
+    File tableFolder = new File(Global.DBMS_DIR + File.separator + "data" + File.separator + databaseName + File.separator + "tables");
+    tableFolder.mkdirs();
+    // a table file written with the tagged codec, payload format 0
+    String path = tableFolder.getPath() + File.separator + "t";
+    BPlusTree<Cell, Row> old = new BPlusTree<>(new PageFile(path), new TablePageCodec(),
+            KeyLayout.ints(cell -> (Integer) cell.value, value -> new Cell(value)), Global.fanout);
+    for (int i = 0; i < 100; i++)
+      old.put(new Cell(i), row(i, i % 3 == 0 ? null : "n" + i));
+    old.checkpoint();
+    old.close();
+
+    Table table = new Table(databaseName, "t", columns);
+    try {
+      assertEquals(null, table.get(new Cell(3)).getEntries().get(1).value);
+      assertEquals(100, table.index.size());
+      assertEquals("4, n4", table.get(new Cell(4)).toString());
+      table.close();
+      PageFile file = new PageFile(path);
+      assertEquals(RowCodec.FORMAT, file.getFormat());
+      file.close();
+      table = new Table(databaseName, "t", columns);
+      assertEquals("98, n98", table.get(new Cell(98)).toString());
+      assertEquals(null, table.get(new Cell(99)).getEntries().get(1).value);
+    } finally {
+      table.dropTable();
+      tableFolder.delete();
+      tableFolder.getParentFile().delete();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package cn.edu.thssdb.schema;
+
+import cn.edu.thssdb.type.ColumnType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SecondaryIndexTest {
+  private File file;
+  private ArrayList<Row> rows;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("secondary", ".index");
+    file.delete();
+    // (id, value): every value appears for ten ids, some values are NULL
+    rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+      rows.add(new Row(new Cell[]{new Cell(i), new Cell(i % 7 == 0 ? null : i % 100)}));
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  private static ArrayList<Integer> ids(Iterator<Cell> primaryKeys) {
+    ArrayList<Integer> ids = new ArrayList<>();
+    while (primaryKeys.hasNext())
+      ids.add((Integer) primaryKeys.next().value);
+    return ids;
+  }
+
+  private ArrayList<Integer> expected(int from, int to) {
+    ArrayList<Integer> ids = new ArrayList<>();
+    for (int value = from; value <= to; value++)
+      for (int i = value; i < 1000; i += 100)
+        if (i % 7 != 0)
+          ids.add(i);
+    return ids;
+  }
+
+  @Test
+  public void testRange() {
+    SecondaryIndex index = new SecondaryIndex("i", 1, row -> row.getEntries().get(0), file.getPath());
+    index.build(rows.iterator());
+    assertEquals(expected(42, 42), ids(index.primaryKeys(new Cell(42), true, new Cell(42), true)));
+    assertEquals(expected(10, 20), ids(index.primaryKeys(new Cell(10), true, new Cell(20), true)));
+    assertEquals(expected(11, 19), ids(index.primaryKeys(new Cell(10), false, new Cell(20), false)));
+    assertEquals(expected(0, 4), ids(index.primaryKeys(null, false, new Cell(5), false)));
+    assertEquals(expected(95, 99), ids(index.primaryKeys(new Cell(95), true, null, false)));
+    index.close();
+  }
+
+  @Test
+  public void testMaintain() {
+    SecondaryIndex index = new SecondaryIndex("i", 1, row -> row.getEntries().get(0), file.getPath());
+    for (Row row : rows)
+      index.insert(row);
+    for (int i = 0; i < 1000; i += 100)
+      index.delete(rows.get(i + 3));
+    index.insert(new Row(new Cell[]{new Cell(1003), new Cell(3)}));
+    index.persist(0);
+    index.close();
+
+    index = new SecondaryIndex("i", 1, row -> row.getEntries().get(0), file.getPath());
+    ArrayList<Integer> ids = ids(index.primaryKeys(new Cell(3), true, new Cell(3), true));
+    ArrayList<Integer> expected = new ArrayList<>();
+    expected.add(1003);
+    assertEquals(expected, ids);
+    assertEquals(expected(4, 4), ids(index.primaryKeys(new Cell(4), true, new Cell(4), true)));
+    index.close();
+  }
+
+  @Test
+  public void testRangeSkipsConcurrentlyDeletedRows() throws InterruptedException {
+    Table table = new Table("secondary_test_" + System.nanoTime(), "s", new Column[]{
+            new Column("id", ColumnType.INT, 1, true, 0),
+            new Column("name", ColumnType.STRING, 0, false, 16)});
+    try {
+      table.createIndex("s_name", "name");
+      for (int i = 0; i < 100; i++)
+        table.insert(new Row(new Cell[]{new Cell(i), new Cell("a")}));
+      // a writer inserts and deletes rows with the indexed value while a reader scans the index range,
+      // so the reader keeps finding primary keys whose rows are gone by the time it looks them up
+      AtomicBoolean done = new AtomicBoolean();
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread writer = new Thread(() -> {
+        try {
+          for (int round = 0; round < 200; round++)
+            for (int i = 0; i < 100; i++) {
+              Row row = new Row(new Cell[]{new Cell(100 + i), new Cell("a")});
+              table.insert(row);
+              table.delete(row);
+            }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          done.set(true);
+        }
+      });
+      writer.start();
+      while (!done.get() && failure.get() == null) {
+        try {
+          Iterator<Row> iterator = table.range(1, new Cell("a"), true, new Cell("a"), true);
+          while (iterator.hasNext())
+            assertEquals("a", iterator.next().getEntries().get(1).value);
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      }
+      writer.join();
+      assertNull(failure.get());
+      int count = 0;
+      for (Iterator<Row> iterator = table.range(1, new Cell("a"), true, new Cell("a"), true); iterator.hasNext(); iterator.next())
+        count++;
+      assertEquals(100, count);
+    } finally {
+      table.dropTable();
+      File databaseFolder = new File(table.getTableFolderPath()).getParentFile();
+      new File(table.getTableFolderPath()).delete();
+      databaseFolder.delete();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package cn.edu.thssdb.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CheckpointerTest {
+  private File file;
+  private WriteAheadLog log;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("checkpoint", ".log");
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+  }
+
+  @After
+  public void tearDown() {
+    log.close();
+    file.delete();
+  }
+
+  private void commit() {
+    log.commit(log.append("0#commit".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testLogBytes() {
+    AtomicInteger checkpoints = new AtomicInteger();
+    Checkpointer checkpointer = new Checkpointer("test", log, checkpoints::incrementAndGet, 0, 1000);
+    // 24 bytes a record
+    for (int i = 0; i < 40; i++) {
+      commit();
+      checkpointer.logged();
+    }
+    assertEquals(0, checkpoints.get());
+    for (int i = 0; i < 10; i++) {
+      commit();
+      checkpointer.logged();
+    }
+    checkpointer.close();
+    assertEquals(1, checkpoints.get());
+    assertEquals(1, checkpointer.getCount());
+  }
+
+  @Test
+  public void testInterval() throws InterruptedException {
+    AtomicInteger checkpoints = new AtomicInteger();
+    Checkpointer checkpointer = new Checkpointer("test", log, () -> {
+      if (checkpoints.incrementAndGet() == 1)
+        throw new IllegalStateException("first checkpoint fails");
+    }, 20, 0);
+    commit();
+    checkpointer.logged();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (checkpointer.getCount() < 2 && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    checkpointer.close();
+    // the failed one is tried again
+    assertTrue(checkpoints.get() >= 3);
+    assertTrue(checkpointer.getCount() >= 2);
+  }
+}
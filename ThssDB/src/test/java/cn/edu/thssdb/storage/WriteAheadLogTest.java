@@ -0,0 +1,202 @@
+package cn.edu.thssdb.storage;
+
+import cn.edu.thssdb.common.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteAheadLogTest {
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("wal", ".log");
+  }
+
+  @After
+  public void tearDown() {
+    File[] segments = file.getParentFile().listFiles((dir, name) -> name.startsWith(file.getName() + "."));
+    if (segments != null)
+      for (File segment : segments)
+        segment.delete();
+    file.delete();
+  }
+
+  private static byte[] record(String line) {
+    return line.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> lines(WriteAheadLog log) {
+    ArrayList<String> lines = new ArrayList<>();
+    Iterator<Pair<Long, byte[]>> records = log.iterator();
+    while (records.hasNext())
+      lines.add(new String(records.next().right, StandardCharsets.UTF_8));
+    return lines;
+  }
+
+  private List<String> lines() {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    List<String> lines = lines(log);
+    log.close();
+    return lines;
+  }
+
+  // every session appends a few records and commits, like SQLHandler does
+  private void commitConcurrently(WriteAheadLog log, int sessions, int commits) throws InterruptedException {
+    AtomicInteger early = new AtomicInteger();
+    ArrayList<Thread> threads = new ArrayList<>();
+    for (int s = 0; s < sessions; s++) {
+      int session = s;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < commits; i++) {
+          log.append(record(session + "#insert " + i));
+          long offset = log.append(record(session + "#commit " + i));
+          log.commit(offset);
+          if (log.getDurableOffset() < offset && log.getPolicy() != WriteAheadLog.CommitPolicy.ASYNC)
+            early.incrementAndGet();
+        }
+      }));
+    }
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+    assertEquals(0, early.get());
+  }
+
+  @Test
+  public void testSync() throws IOException, InterruptedException {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    commitConcurrently(log, 4, 20);
+    assertEquals(80, log.getSyncCount());
+    log.close();
+    assertEquals(160, lines().size());
+  }
+
+  @Test
+  public void testGroupCommit() throws IOException, InterruptedException {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.GROUP, 2000);
+    commitConcurrently(log, 16, 10);
+    // the window gathers commits of several sessions into one force
+    assertTrue(log.getSyncCount() < 160);
+    log.close();
+    List<String> lines = lines();
+    assertEquals(320, lines.size());
+    assertEquals(320, new HashSet<>(lines).size());
+  }
+
+  @Test
+  public void testAsync() throws IOException {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.ASYNC, 1000);
+    long offset = log.append(record("0#commit"));
+    log.commit(offset);
+    log.close();
+    assertEquals(1, lines().size());
+  }
+
+  @Test
+  public void testReopenAndTruncate() {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.GROUP, 0);
+    log.commit(log.append(record("0#begin transaction")));
+    log.close();
+
+    // appends continue at the end of the file
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.GROUP, 0);
+    long offset = log.append(record("0#commit"));
+    log.commit(offset);
+    assertEquals(2, lines(log).size());
+    assertEquals(offset, log.getLsn());
+    assertEquals(file.length(), 16 + log.size());
+
+    log.truncate();
+    assertEquals(0, log.size());
+    assertEquals(16, file.length());
+    // offsets go on growing after a truncation, and after a restart
+    long next = log.append(record("1#begin transaction"));
+    assertTrue(next > offset);
+    log.commit(next);
+    assertEquals(1, lines(log).size());
+    log.close();
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.GROUP, 0);
+    assertEquals(next, log.getLsn());
+    assertEquals(next, (long) log.iterator().next().left);
+    log.close();
+  }
+
+  @Test
+  public void testTornTail() throws IOException {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    long first = log.append(record("0#insert"));
+    log.commit(log.append(record("0#commit")));
+    log.close();
+    // a crash in the middle of writing the second record
+    long length = file.length();
+    try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+      f.setLength(length - 3);
+    }
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    assertEquals(first, log.getLsn());
+    assertEquals(1, lines(log).size());
+    log.commit(log.append(record("1#commit")));
+    log.close();
+    assertEquals(2, lines().size());
+
+    // a corrupted record ends the log as well
+    try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+      f.seek(f.length() - 1);
+      f.write('?');
+    }
+    assertEquals(1, lines().size());
+  }
+
+  @Test
+  public void testSegments() {
+    WriteAheadLog log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    log.commit(log.append(record("0#insert 1")));
+    long first = log.roll();
+    assertEquals(first, log.roll()); // nothing to seal
+    log.commit(log.append(record("0#insert 2")));
+    long second = log.roll();
+    log.commit(log.append(record("0#insert 3")));
+    assertEquals(3, lines(log).size());
+    assertTrue(new File(file.getPath() + ".0").isFile());
+    assertTrue(new File(file.getPath() + "." + first).isFile());
+    log.close();
+
+    // sealed segments are found again, and deleted once a checkpoint covers them
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    assertEquals(3, lines(log).size());
+    log.truncate(first);
+    assertTrue(!new File(file.getPath() + ".0").exists());
+    assertEquals(2, lines(log).size());
+    log.truncate(second);
+    assertEquals(1, lines(log).size());
+    assertEquals(log.getLsn() - second, log.size());
+    long end = log.getLsn();
+    log.roll();
+    log.close();
+
+    // a crash right after sealing leaves no current segment
+    file.delete();
+    log = new WriteAheadLog(file.getPath(), WriteAheadLog.CommitPolicy.SYNC, 0);
+    assertEquals(end, log.getLsn());
+    long next = log.append(record("1#insert 4"));
+    log.commit(next);
+    assertEquals(2, lines(log).size());
+    assertEquals(end, (long) log.iterator().next().left);
+    log.close();
+  }
+}
@@ -0,0 +1,349 @@
+package cn.edu.thssdb.transaction;
+
+import cn.edu.thssdb.common.Global;
+import cn.edu.thssdb.exception.LockAbortedException;
+import cn.edu.thssdb.transaction.LockManager.LockMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LockManagerTest {
+  private static final Object TABLE = "table";
+
+  private LockManager locks;
+  private List<Long> granted;
+
+  @Before
+  public void setUp() {
+    locks = new LockManager();
+    granted = Collections.synchronizedList(new ArrayList<>());
+  }
+
+  // a session asking for a lock on its own thread, parked until the lock is granted
+  private Thread request(long session, LockMode mode) throws InterruptedException {
+    Thread thread = new Thread(() -> {
+      locks.lock(session, TABLE, mode);
+      granted.add(session);
+    });
+    thread.start();
+    while (thread.getState() != Thread.State.WAITING && thread.isAlive())
+      Thread.sleep(1);
+    return thread;
+  }
+
+  @Test
+  public void testSharedAndExclusive() throws InterruptedException {
+    assertTrue(locks.lock(1, TABLE, LockMode.S));
+    assertTrue(locks.lock(2, TABLE, LockMode.S));
+    Thread writer = request(3, LockMode.X);
+    assertTrue(granted.isEmpty());
+    locks.unlockAll(1);
+    assertTrue(granted.isEmpty());
+    locks.unlockAll(2);
+    writer.join();
+    assertEquals(Collections.singletonList(3L), granted);
+    assertEquals(LockMode.X, locks.heldMode(3, TABLE));
+    locks.unlockAll(3);
+    assertFalse(locks.isLocked(TABLE));
+  }
+
+  @Test
+  public void testFifo() throws InterruptedException {
+    locks.lock(1, TABLE, LockMode.S);
+    Thread writer = request(2, LockMode.X);
+    // compatible with the reader, but queued behind the writer so that it does not starve
+    Thread reader = request(3, LockMode.S);
+    assertTrue(granted.isEmpty());
+    locks.unlockAll(1);
+    writer.join();
+    assertEquals(Collections.singletonList(2L), granted);
+    assertTrue(reader.isAlive());
+    locks.unlockAll(2);
+    reader.join();
+    assertEquals(2, granted.size());
+    assertEquals(3L, (long) granted.get(1));
+  }
+
+  @Test
+  public void testUpgrade() throws InterruptedException {
+    locks.lock(1, TABLE, LockMode.S);
+    locks.lock(2, TABLE, LockMode.S);
+    Thread reader = request(3, LockMode.X);
+    // the upgrade goes ahead of the requests already waiting
+    Thread upgrade = request(1, LockMode.X);
+    locks.unlockAll(2);
+    upgrade.join();
+    assertEquals(Collections.singletonList(1L), granted);
+    assertEquals(LockMode.X, locks.heldMode(1, TABLE));
+    locks.unlockAll(1);
+    reader.join();
+    assertNull(locks.heldMode(1, TABLE));
+  }
+
+  @Test
+  public void testReentrant() {
+    assertTrue(locks.lock(1, TABLE, LockMode.X));
+    assertFalse(locks.lock(1, TABLE, LockMode.X));
+    assertFalse(locks.lock(1, TABLE, LockMode.S));
+    assertEquals(LockMode.X, locks.heldMode(1, TABLE));
+    locks.unlock(1, TABLE);
+    assertFalse(locks.isLocked(TABLE));
+    // unlocking what is not held does nothing
+    locks.unlock(1, TABLE);
+    locks.unlockAll(1);
+  }
+
+  @Test
+  public void testRows() throws InterruptedException {
+    // writers of different rows do not wait for each other
+    locks.lockRow(1, TABLE, 1, LockMode.X);
+    locks.lockRow(2, TABLE, 2, LockMode.X);
+    assertEquals(LockMode.IX, locks.heldMode(1, TABLE));
+    assertEquals(LockMode.IX, locks.heldMode(2, TABLE));
+    Thread sameRow = new Thread(() -> {
+      locks.lockRow(3, TABLE, 1, LockMode.X);
+      granted.add(3L);
+    });
+    sameRow.start();
+    while (sameRow.getState() != Thread.State.WAITING)
+      Thread.sleep(1);
+    // a table lock waits for the row locks, and requests behind it for the table lock
+    Thread table = request(4, LockMode.X);
+    locks.unlockAll(1);
+    sameRow.join();
+    assertEquals(Collections.singletonList(3L), granted);
+    locks.unlockAll(2);
+    locks.unlockAll(3);
+    table.join();
+    assertEquals(LockMode.X, locks.heldMode(4, TABLE));
+    assertEquals(0, locks.rowLocks(3, TABLE));
+  }
+
+  @Test
+  public void testIntentionModes() {
+    locks.lock(1, TABLE, LockMode.S);
+    locks.lockRow(1, TABLE, 1, LockMode.S);
+    assertEquals(0, locks.rowLocks(1, TABLE));
+    // a reader of the whole table that writes a row
+    locks.lockRow(1, TABLE, 1, LockMode.X);
+    assertEquals(LockMode.SIX, locks.heldMode(1, TABLE));
+    assertEquals(1, locks.rowLocks(1, TABLE));
+    locks.unlockAll(1);
+    assertEquals(0, locks.rowLocks(1, TABLE));
+    assertFalse(locks.isLocked(TABLE));
+  }
+
+  @Test
+  public void testEscalation() {
+    int threshold = Global.LOCK_ESCALATION_THRESHOLD;
+    Global.LOCK_ESCALATION_THRESHOLD = 3;
+    try {
+      for (int i = 0; i < 3; i++)
+        locks.lockRow(1, TABLE, i, LockMode.S);
+      assertEquals(LockMode.IS, locks.heldMode(1, TABLE));
+      locks.lockRow(1, TABLE, 3, LockMode.S);
+      assertEquals(LockMode.S, locks.heldMode(1, TABLE));
+      assertEquals(0, locks.rowLocks(1, TABLE));
+      // writing rows of a table read as a whole: SIX and row locks, then X
+      for (int i = 0; i < 4; i++)
+        locks.lockRow(1, TABLE, i, LockMode.X);
+      assertEquals(LockMode.X, locks.heldMode(1, TABLE));
+      assertEquals(0, locks.rowLocks(1, TABLE));
+      locks.lockRow(1, TABLE, 9, LockMode.X);
+      assertEquals(0, locks.rowLocks(1, TABLE));
+    } finally {
+      Global.LOCK_ESCALATION_THRESHOLD = threshold;
+    }
+    locks.unlockAll(1);
+    assertFalse(locks.isLocked(TABLE));
+  }
+
+  // a session locking a resource on its own thread, the failure if it is aborted (it then gives its locks back)
+  private Thread request(long session, Object resource, AtomicReference<RuntimeException> failure)
+          throws InterruptedException {
+    Thread thread = new Thread(() -> {
+      try {
+        locks.lock(session, resource, LockMode.X);
+        granted.add(session);
+      } catch (LockAbortedException e) {
+        failure.set(e);
+        locks.unlockAll(session);
+      }
+    });
+    thread.start();
+    while (thread.getState() != Thread.State.WAITING && thread.isAlive())
+      Thread.sleep(1);
+    return thread;
+  }
+
+  @Test
+  public void testDeadlock() throws InterruptedException {
+    // opposite orders: the younger session closes the cycle and is aborted itself
+    locks.lock(1, "a", LockMode.X);
+    locks.lock(2, "b", LockMode.X);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    Thread older = request(1, "b", failure);
+    try {
+      locks.lock(2, "a", LockMode.X);
+      fail();
+    } catch (LockAbortedException e) {
+      assertTrue(e.getMessage().contains("deadlock"));
+    }
+    // the victim keeps its locks until it has rolled back, then the other goes on
+    assertEquals(LockMode.X, locks.heldMode(2, "b"));
+    assertTrue(granted.isEmpty());
+    locks.unlockAll(2);
+    older.join();
+    assertNull(failure.get());
+    assertEquals(Collections.singletonList(1L), granted);
+    assertNull(locks.heldMode(2, "b"));
+    assertEquals(1, locks.getDeadlocks());
+    locks.unlockAll(1);
+    locks.unlockAll(2);
+    assertFalse(locks.isLocked("a"));
+    assertFalse(locks.isLocked("b"));
+  }
+
+  @Test
+  public void testDeadlockVictimWaiting() throws InterruptedException {
+    // the older session closes the cycle, the younger one waiting already is aborted
+    locks.lock(1, "a", LockMode.X);
+    locks.lock(2, "b", LockMode.X);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    Thread younger = request(2, "a", failure);
+    locks.lock(1, "b", LockMode.X);
+    younger.join();
+    assertTrue(failure.get() instanceof LockAbortedException);
+    assertTrue(granted.isEmpty());
+    assertEquals(LockMode.X, locks.heldMode(1, "b"));
+    assertEquals(1, locks.getDeadlocks());
+    locks.unlockAll(1);
+  }
+
+  @Test
+  public void testDeadlockThroughQueue() throws InterruptedException {
+    // 1 reads, 2 waits to write, 3 waits behind 2 to read; 1 then waits for what 3 holds
+    locks.lock(2, "c", LockMode.X);
+    locks.lock(1, "a", LockMode.S);
+    locks.lock(3, "b", LockMode.X);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    Thread writer = request(2, "a", failure);
+    Thread reader = new Thread(() -> {
+      try {
+        locks.lock(3, "a", LockMode.S);
+      } catch (LockAbortedException e) {
+        failure.set(e);
+        locks.unlockAll(3);
+      }
+    });
+    reader.start();
+    while (reader.getState() != Thread.State.WAITING && reader.isAlive())
+      Thread.sleep(1);
+    // 3 is the youngest in the cycle
+    locks.lock(1, "b", LockMode.X);
+    reader.join();
+    assertTrue(failure.get() instanceof LockAbortedException);
+    assertEquals(1, locks.getDeadlocks());
+    locks.unlockAll(1);
+    writer.join();
+    assertEquals(Collections.singletonList(2L), granted);
+    locks.unlockAll(2);
+  }
+
+  @Test
+  public void testRandomOrders() throws InterruptedException {
+    // transactions lock rows of a few tables in any order, aborted ones start over; none is stuck for good
+    int threads = 4;
+    int transactions = 300;
+    AtomicInteger committed = new AtomicInteger();
+    AtomicInteger aborted = new AtomicInteger();
+    ArrayList<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long session = t;
+      Random random = new Random(t);
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < transactions; ) {
+          try {
+            for (int j = 0; j < 3; j++)
+              locks.lockRow(session, "t" + random.nextInt(2), random.nextInt(4),
+                      random.nextBoolean() ? LockMode.S : LockMode.X);
+            committed.incrementAndGet();
+            i++;
+          } catch (LockAbortedException e) {
+            aborted.incrementAndGet();
+          } finally {
+            locks.unlockAll(session);
+          }
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers)
+      worker.join();
+    assertEquals(threads * transactions, committed.get());
+    assertEquals(aborted.get(), locks.getDeadlocks());
+    assertFalse(locks.isLocked("t0"));
+    assertFalse(locks.isLocked("t1"));
+  }
+
+  @Test
+  public void testInterrupted() throws InterruptedException {
+    locks.lock(1, TABLE, LockMode.X);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    Thread waiter = new Thread(() -> {
+      try {
+        locks.lock(2, TABLE, LockMode.X);
+      } catch (LockAbortedException e) {
+        failure.set(e);
+      }
+    });
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING)
+      Thread.sleep(1);
+    Thread next = request(3, LockMode.S);
+    waiter.interrupt();
+    waiter.join();
+    assertTrue(failure.get() instanceof LockAbortedException);
+    locks.unlockAll(1);
+    next.join();
+    assertEquals(Collections.singletonList(3L), granted);
+    assertNull(locks.heldMode(2, TABLE));
+  }
+
+  @Test
+  public void testMutualExclusion() throws InterruptedException {
+    int threads = 4;
+    int rounds = 2000;
+    int[] counter = new int[1];
+    ArrayList<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long session = t;
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < rounds; i++) {
+          locks.lock(session, TABLE, LockMode.X);
+          counter[0]++;
+          locks.unlockAll(session);
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers)
+      worker.join();
+    assertEquals(threads * rounds, counter[0]);
+    assertFalse(locks.isLocked(TABLE));
+  }
+}
@@ -0,0 +1,95 @@
+package cn.edu.thssdb.transaction;
+
+import cn.edu.thssdb.transaction.LockManager.LockMode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionManagerTest {
+  private SessionManager sessions;
+
+  @Before
+  public void setUp() {
+    sessions = new SessionManager();
+  }
+
+  @Test
+  public void testConcurrentConnect() throws InterruptedException {
+    Set<Long> ids = Collections.synchronizedSet(new HashSet<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 1000; j++)
+          ids.add(sessions.connect().getId());
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads)
+      thread.join();
+    assertEquals(4000, ids.size());
+    assertEquals(4000, sessions.getSessions().size());
+  }
+
+  @Test
+  public void testOpen() {
+    Session opened = sessions.open(0);
+    assertSame(opened, sessions.open(0));
+    assertSame(opened, sessions.get(0));
+    assertNotEquals(0, sessions.connect().getId());
+    assertNull(sessions.get(-1));
+  }
+
+  @Test
+  public void testTransaction() {
+    Session session = sessions.connect();
+    assertFalse(session.inTransaction());
+    assertTrue(session.begin());
+    assertFalse(session.begin());
+    assertFalse(session.hasWritten());
+    session.wrote(null, transaction -> fail());
+    assertTrue(session.hasWritten());
+    session.commit();
+    assertFalse(session.inTransaction());
+    assertFalse(session.hasWritten());
+    assertEquals(1, session.getCommits());
+    assertEquals(0, session.getAborts());
+  }
+
+  @Test
+  public void testDisconnectAborts() {
+    Object table = new Object();
+    LockManager locks = LockManager.getInstance();
+    Session session = sessions.connect();
+    session.begin();
+    locks.lock(session.getId(), table, LockMode.X);
+    List<Long> rolledBack = new ArrayList<>();
+    // the table takes the writes back while the session still holds its lock
+    session.wrote(null, transaction -> {
+      assertTrue(locks.isLocked(table));
+      rolledBack.add(transaction);
+    });
+    long transaction = session.getSnapshot().getTransaction();
+
+    sessions.disconnect(session.getId());
+    assertEquals(Collections.singletonList(transaction), rolledBack);
+    assertNull(sessions.get(session.getId()));
+    assertFalse(session.inTransaction());
+    assertFalse(locks.isLocked(table));
+    assertEquals(1, session.getAborts());
+    assertEquals(0, session.getCommits());
+  }
+}